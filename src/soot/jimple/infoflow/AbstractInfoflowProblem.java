@@ -49,7 +49,14 @@ public abstract class AbstractInfoflowProblem extends DefaultJimpleIFDSTabulatio
 		 * information, also track the current statement on the path. Consumes
 		 * a lot of memory.
 		 */
-		ForwardTracking
+		ForwardTracking,
+		
+		/**
+		 * Like forward tracking, every taint keeps a link to the path it has
+		 * been propagated along, but the statements on the path are only put
+		 * into a list when someone asks for the path of a reported flow.
+		 */
+		LazyTracking
 	}
 
 	
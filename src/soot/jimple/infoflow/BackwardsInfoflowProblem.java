@@ -256,6 +256,10 @@ public class BackwardsInfoflowProblem extends AbstractInfoflowProblem {
 						}
 						*/
 
+						// If facts are merged across sources, the callee is
+						// analyzed separately for each calling context
+						source = source.deriveCalleeEntry();
+
 						Set<Abstraction> res = new HashSet<Abstraction>();
 						
 						// if the returned value is tainted - taint values from return statements
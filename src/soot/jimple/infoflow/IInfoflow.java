@@ -5,6 +5,7 @@ import java.util.List;
 import soot.Transform;
 import soot.jimple.infoflow.AbstractInfoflowProblem.PathTrackingMethod;
 import soot.jimple.infoflow.entryPointCreators.IEntryPointCreator;
+import soot.jimple.infoflow.heros.CancellableExecutor;
 import soot.jimple.infoflow.source.ISourceSinkManager;
 import soot.jimple.infoflow.taintWrappers.ITaintPropagationWrapper;
 /**
@@ -13,6 +14,33 @@ import soot.jimple.infoflow.taintWrappers.ITaintPropagationWrapper;
  */
 public interface IInfoflow {
 	
+	/**
+	 * Supported strategies for distributing the work of the forward and the
+	 * backward solver over the worker threads
+	 */
+	public enum QueuePolicy {
+		/**
+		 * All worker threads take their tasks from one shared FIFO queue
+		 */
+		SharedQueue,
+		
+		/**
+		 * Every worker thread has its own deque and idle threads steal work
+		 * from busy ones. Whether this is faster than the shared queue has
+		 * not been measured yet. Requires Java 7. On older versions, the
+		 * shared queue is used instead.
+		 */
+		WorkStealing,
+		
+		/**
+		 * All worker threads share one queue in which edges are ordered by
+		 * the call graph distance of their method to the nearest sink.
+		 * Finds the first flow earlier, especially together with
+		 * {@link IInfoflow#setStopAfterFirstFlow(boolean)}.
+		 */
+		SinkDistance
+	}
+	
 	/**
 	 * Sets the taint wrapper for deciding on taint propagation through black-box
 	 * methods
@@ -31,11 +59,97 @@ public interface IInfoflow {
 	
 	/**
 	 * Sets whether the information flow analysis shall stop after the first
-	 * flow has been found
+	 * flow has been found. If so, all edges that are still waiting to be
+	 * processed are dropped as soon as the first flow has been recorded.
 	 * @param stopAfterFirstFlow True if the analysis shall stop after the
 	 * first flow has been found, otherwise false.
 	 */
 	public void setStopAfterFirstFlow(boolean stopAfterFirstFlow);
+	
+	/**
+	 * Sets whether taints shall be kept out of callees that can neither reach
+	 * a sink nor change the state of their callers. This avoids analyzing
+	 * large parts of the program that have nothing to do with the sinks.
+	 * @param prune True if such callees shall be skipped, otherwise false.
+	 * The default is false.
+	 */
+	public void setPruneIrrelevantCalls(boolean prune);
+	
+	/**
+	 * Sets whether equal taint abstractions shall be replaced by one
+	 * canonical instance. This saves memory and speeds up the lookups in the
+	 * solvers.
+	 * @param intern True if abstractions shall be interned, otherwise false.
+	 * The default is true.
+	 */
+	public void setInternAbstractions(boolean intern);
+	
+	/**
+	 * Sets whether taint abstractions shall be merged across sources. If so,
+	 * an access path is only propagated once, together with the set of all
+	 * sources from which it is tainted. This pays off if many sources reach
+	 * the same values. Merging is ignored if paths are tracked.
+	 * @param merge True if abstractions shall be merged across sources,
+	 * otherwise false. The default is false.
+	 */
+	public void setMergeSources(boolean merge);
+	
+	/**
+	 * Sets how the tasks of the forward and the backward solver shall be
+	 * distributed over the worker threads
+	 * @param policy The queueing policy to use. The default is
+	 * {@link QueuePolicy#SharedQueue}.
+	 */
+	public void setQueuePolicy(QueuePolicy policy);
+	
+	/**
+	 * Sets the number of worker threads used by the forward and the backward
+	 * solver
+	 * @param numThreads The number of worker threads. Values smaller than one
+	 * select the default, i.e. one thread per available processor.
+	 */
+	public void setNumThreads(int numThreads);
+	
+	/**
+	 * Sets the executor to be used by the forward and the backward solver. If
+	 * an executor is given, the thread count and queue policy settings are
+	 * ignored. Note that the solvers shut the executor down once the analysis
+	 * has finished, so a new executor is required for every run. The
+	 * executor must be cancellable, so that the analysis can stop early after
+	 * the first flow or when a budget set with setMaxTime(), setMaxEdges() or
+	 * setMaxMemory() is exhausted.
+	 * @param executor The executor to use, or null to let the analysis
+	 * create one from the thread count and queue policy
+	 */
+	public void setExecutor(CancellableExecutor executor);
+	
+	/**
+	 * Sets the maximum wall-clock time the analysis may take. If the time is
+	 * up, the solvers stop and the flows found so far are reported as
+	 * incomplete results. The time is only checked when the solvers schedule
+	 * a new edge.
+	 * @param maxTime The maximum time in milliseconds. Values smaller than one
+	 * disable the limit.
+	 */
+	public void setMaxTime(long maxTime);
+	
+	/**
+	 * Sets the maximum number of edges the forward and the backward solver may
+	 * process together. If the limit is reached, the solvers stop and the
+	 * flows found so far are reported as incomplete results.
+	 * @param maxEdges The maximum number of edges. Values smaller than one
+	 * disable the limit.
+	 */
+	public void setMaxEdges(long maxEdges);
+	
+	/**
+	 * Sets the maximum amount of heap memory the analysis may use. If the
+	 * limit is exceeded, the solvers stop and the flows found so far are
+	 * reported as incomplete results.
+	 * @param maxMemory The maximum heap usage in bytes. Values smaller than
+	 * one disable the limit.
+	 */
+	public void setMaxMemory(long maxMemory);
 
 
     /**
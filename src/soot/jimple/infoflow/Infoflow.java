@@ -1,7 +1,6 @@
 package soot.jimple.infoflow;
 
 import heros.InterproceduralCFG;
-import heros.solver.CountingThreadPoolExecutor;
 
 import java.io.BufferedWriter;
 import java.io.File;
@@ -16,7 +15,6 @@ import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Set;
-import java.util.concurrent.LinkedBlockingQueue;
 import java.util.concurrent.TimeUnit;
 
 import org.slf4j.Logger;
@@ -24,26 +22,37 @@ import org.slf4j.LoggerFactory;
 
 import soot.MethodOrMethodContext;
 import soot.PackManager;
-import soot.PatchingChain;
 import soot.Scene;
 import soot.SceneTransformer;
 import soot.SootClass;
 import soot.SootMethod;
 import soot.Transform;
 import soot.Unit;
-import soot.jimple.Stmt;
 import soot.jimple.infoflow.AbstractInfoflowProblem.PathTrackingMethod;
 import soot.jimple.infoflow.InfoflowResults.SinkInfo;
 import soot.jimple.infoflow.InfoflowResults.SourceInfo;
 import soot.jimple.infoflow.config.IInfoflowConfig;
 import soot.jimple.infoflow.data.Abstraction;
+import soot.jimple.infoflow.data.AbstractionPool;
+import soot.jimple.infoflow.data.AccessPathStore;
+import soot.jimple.infoflow.data.SourceSetRegistry;
 import soot.jimple.infoflow.entryPointCreators.DefaultEntryPointCreator;
 import soot.jimple.infoflow.entryPointCreators.IEntryPointCreator;
+import soot.jimple.infoflow.handlers.AsyncResultDispatcher;
+import soot.jimple.infoflow.handlers.ResultFoundHandler;
 import soot.jimple.infoflow.handlers.ResultsAvailableHandler;
+import soot.jimple.infoflow.heros.CancellableExecutor;
 import soot.jimple.infoflow.heros.InfoflowSolver;
+import soot.jimple.infoflow.heros.PriorityExecutor;
+import soot.jimple.infoflow.heros.SharedQueueExecutor;
+import soot.jimple.infoflow.heros.SolverBudget;
+import soot.jimple.infoflow.source.CachingSourceSinkManager;
 import soot.jimple.infoflow.source.DefaultSourceSinkManager;
+import soot.jimple.infoflow.source.SourceSinkScanner;
 import soot.jimple.infoflow.source.ISourceSinkManager;
 import soot.jimple.infoflow.taintWrappers.ITaintPropagationWrapper;
+import soot.jimple.infoflow.util.SinkDistanceCalculator;
+import soot.jimple.infoflow.util.SinkReachabilityAnalysis;
 import soot.jimple.infoflow.util.SootMethodRepresentationParser;
 import soot.jimple.toolkits.callgraph.ReachableMethods;
 import soot.jimple.toolkits.ide.JimpleIFDSSolver;
@@ -68,12 +77,23 @@ public class Infoflow implements IInfoflow {
 	private IInfoflowConfig sootConfig;
 	private boolean stopAfterFirstFlow = false;
 	private boolean inspectSinks = true;
+	private QueuePolicy queuePolicy = QueuePolicy.SharedQueue;
+	private int numThreads = -1;
+	private CancellableExecutor customExecutor = null;
+	private long maxTime = -1;
+	private long maxEdges = -1;
+	private long maxMemory = -1;
+	private boolean pruneIrrelevantCalls = false;
+	private boolean internAbstractions = true;
+	private boolean mergeSources = false;
 
     private BiDirICFGFactory icfgFactory = new DefaultBiDiICFGFactory();
     private List<Transform> preProcessors = Collections.emptyList();
     private BiDiInterproceduralCFG<Unit,SootMethod> iCfg;
     
     private Set<ResultsAvailableHandler> onResultsAvailable = new HashSet<ResultsAvailableHandler>();
+    private Set<ResultFoundHandler> onResultFound = new HashSet<ResultFoundHandler>();
+    private int resultQueueCapacity = 1024;
 
 	/**
 	 * Creates a new instance of the InfoFlow class for analyzing plain Java code without any references to APKs or the Android SDK.
@@ -122,6 +142,51 @@ public class Infoflow implements IInfoflow {
 		this.stopAfterFirstFlow = stopAfterFirstFlow;
 	}
 
+	@Override
+	public void setQueuePolicy(QueuePolicy policy) {
+		this.queuePolicy = policy;
+	}
+	
+	@Override
+	public void setNumThreads(int numThreads) {
+		this.numThreads = numThreads;
+	}
+	
+	@Override
+	public void setExecutor(CancellableExecutor executor) {
+		this.customExecutor = executor;
+	}
+
+	@Override
+	public void setPruneIrrelevantCalls(boolean prune) {
+		this.pruneIrrelevantCalls = prune;
+	}
+	
+	@Override
+	public void setInternAbstractions(boolean intern) {
+		this.internAbstractions = intern;
+	}
+	
+	@Override
+	public void setMergeSources(boolean merge) {
+		this.mergeSources = merge;
+	}
+	
+	@Override
+	public void setMaxTime(long maxTime) {
+		this.maxTime = maxTime;
+	}
+	
+	@Override
+	public void setMaxEdges(long maxEdges) {
+		this.maxEdges = maxEdges;
+	}
+	
+	@Override
+	public void setMaxMemory(long maxMemory) {
+		this.maxMemory = maxMemory;
+	}
+
     @Override
     public void setIcfgFactory(BiDirICFGFactory factory){
         this.icfgFactory = factory;
@@ -247,7 +312,7 @@ public class Infoflow implements IInfoflow {
 		// entryPoints are the entryPoints required by Soot to calculate Graph - if there is no main method,
 		// we have to create a new main method and use it as entryPoint and store our real entryPoints
 		Scene.v().setEntryPoints(Collections.singletonList(entryPointCreator.createDummyMain(entryPoints)));
-		PackManager.v().runPacks();
+		runPacks();
 		if (debug)
 			PackManager.v().writeOutput();
 	}
@@ -291,60 +356,104 @@ public class Infoflow implements IInfoflow {
 		}
 		Scene.v().setEntryPoints(Collections.singletonList(ep));
 		Options.v().set_main_class(ep.getDeclaringClass().getName());
-		PackManager.v().runPacks();
+		runPacks();
 		if (debug)
 			PackManager.v().writeOutput();
 	}
 
+	/**
+	 * Runs the Soot packs including the taint analysis. The canonical access
+	 * paths are only needed while the analysis is running, so the store is
+	 * bound to the current Scene before and cleared afterwards, even if the
+	 * analysis fails.
+	 */
+	private void runPacks() {
+		AccessPathStore.v().bindToScene(Scene.v());
+		try {
+			PackManager.v().runPacks();
+		}
+		finally {
+			AccessPathStore.v().clear();
+		}
+	}
+
+	/**
+	 * Waits until all workers of the given executor have finished. After the
+	 * analysis has been stopped early, they may still be processing the edges
+	 * they had taken before, and may still record results. The executor
+	 * accepts no new edges, so the workers will finish eventually.
+	 * @param executor The executor whose workers to wait for
+	 * @return True if all workers have finished, false if the current thread
+	 * was interrupted before
+	 */
+	private boolean awaitWorkers(CancellableExecutor executor) {
+		try {
+			while (!executor.awaitTermination(10, TimeUnit.SECONDS))
+				logger.warn("Still waiting for the solver threads to finish");
+			return true;
+		}
+		catch (InterruptedException ex) {
+			Thread.currentThread().interrupt();
+			return false;
+		}
+	}
+
 	private void addSceneTransformer(final ISourceSinkManager sourcesSinks, final Set<String> additionalSeeds) {
 		Transform transform = new Transform("wjtp.ifds", new SceneTransformer() {
 			protected void internalTransform(String phaseName, @SuppressWarnings("rawtypes") Map options) {
+				// The clock starts now, but the budget is only enforced while
+				// the solvers are running
+				SolverBudget budget = null;
+				if (maxTime > 0 || maxEdges > 0 || maxMemory > 0)
+					budget = new SolverBudget(maxTime, maxEdges, maxMemory);
+
                 logger.info("Callgraph has {} edges", Scene.v().getCallGraph().size());
                 iCfg = icfgFactory.buildBiDirICFG();
-				InfoflowProblem forwardProblem  = new InfoflowProblem(iCfg, sourcesSinks);
+				// The seed scan and the flow functions share one classification
+				// per statement, so the manager is asked only once for each
+				CachingSourceSinkManager cachedSourcesSinks = new CachingSourceSinkManager(sourcesSinks);
+				InfoflowProblem forwardProblem  = new InfoflowProblem(iCfg, cachedSourcesSinks);
 				forwardProblem.setTaintWrapper(taintWrapper);
 				forwardProblem.setPathTracking(pathTracking);
 				forwardProblem.setStopAfterFirstFlow(stopAfterFirstFlow);
 
 				// We have to look through the complete program to find sources
 				// which are then taken as seeds.
-				int sinkCount = 0;
                 logger.info("Looking for sources and sinks...");
 
 				List<MethodOrMethodContext> eps = new ArrayList<MethodOrMethodContext>(Scene.v().getEntryPoints());
 				ReachableMethods reachableMethods = new ReachableMethods(Scene.v().getCallGraph(), eps.iterator(), null);
 				reachableMethods.update();
+				List<SootMethod> methods = new ArrayList<SootMethod>(reachableMethods.size());
+				for(Iterator<MethodOrMethodContext> iter = reachableMethods.listener(); iter.hasNext(); )
+					methods.add(iter.next().method());
+
+				// In Debug mode, we collect the Jimple bodies for writing them
+				// to disk later
 				Map<String, String> classes = new HashMap<String, String>(10000);
-				for(Iterator<MethodOrMethodContext> iter = reachableMethods.listener(); iter.hasNext(); ) {
-					SootMethod m = iter.next().method();
-					if (m.hasActiveBody()) {
-						// In Debug mode, we collect the Jimple bodies for
-						// writing them to disk later
-						if (debug)
+				if (debug)
+					for (SootMethod m : methods)
+						if (m.hasActiveBody())
 							if (classes.containsKey(m.getDeclaringClass().getName()))
 								classes.put(m.getDeclaringClass().getName(), classes.get(m.getDeclaringClass().getName())
 										+ m.getActiveBody().toString());
 							else
 								classes.put(m.getDeclaringClass().getName(), m.getActiveBody().toString());
-						
-						// Look for a source in the method. Also look for sinks. If we
-						// have no sink in the program, we don't need to perform any
-						// analysis
-						PatchingChain<Unit> units = m.getActiveBody().getUnits();
-						for (Unit u : units) {
-							Stmt s = (Stmt) u;
-							if (sourcesSinks.isSource(s, forwardProblem.interproceduralCFG())) {
-								forwardProblem.initialSeeds.put(u, Collections.singleton(forwardProblem.zeroValue()));
-								logger.debug("Source found: {}", u);
-							}
-							if (sourcesSinks.isSink(s, forwardProblem.interproceduralCFG())) {
-                                logger.debug("Sink found: {}", u);
-								sinkCount++;
-							}
-						}
-						
-					}
+
+				// Look for sources and sinks in all methods. If we have no sink
+				// in the program, we don't need to perform any analysis
+				int threadCount = numThreads > 0 ? numThreads : forwardProblem.numThreads();
+				SourceSinkScanner scanner = new SourceSinkScanner(cachedSourcesSinks,
+						forwardProblem.interproceduralCFG(), threadCount);
+				scanner.scan(methods);
+				for (Unit u : scanner.getSources()) {
+					forwardProblem.initialSeeds.put(u, Collections.singleton(forwardProblem.zeroValue()));
+					logger.debug("Source found: {}", u);
 				}
+				for (Unit u : scanner.getSinks())
+					logger.debug("Sink found: {}", u);
+				int sinkCount = scanner.getSinks().size();
+				Set<SootMethod> sinkMethods = scanner.getSinkMethods();
 				
 				// We optionally also allow additional seeds to be specified
 				if (additionalSeeds != null)
@@ -358,6 +467,15 @@ public class Infoflow implements IInfoflow {
 								Collections.singleton(forwardProblem.zeroValue()));
 					}
 
+				// Find the methods into which we need not pass any taints
+				if (pruneIrrelevantCalls) {
+					SinkReachabilityAnalysis sinkReachability = new SinkReachabilityAnalysis
+							(Scene.v().getCallGraph(), reachableMethods, sinkMethods);
+					logger.info("{} methods can neither reach a sink nor affect their callers",
+							sinkReachability.getIrrelevantMethodCount());
+					forwardProblem.setSinkReachability(sinkReachability);
+				}
+
 				// In Debug mode, we write the Jimple files to disk
 				if (debug){
 					File dir = new File("JimpleFiles");
@@ -382,7 +500,7 @@ public class Infoflow implements IInfoflow {
 				JimpleIFDSSolver<Abstraction, InterproceduralCFG<Unit, SootMethod>> forwardSolver;
 				logger.info("Source lookup done, found {} sources.", forwardProblem.initialSeeds.size());
 
-				CountingThreadPoolExecutor executor = new CountingThreadPoolExecutor(1, forwardProblem.numThreads(), 30, TimeUnit.SECONDS, new LinkedBlockingQueue<Runnable>());
+				CancellableExecutor executor = createExecutor(threadCount);
 				forwardSolver = new InfoflowSolver(forwardProblem, debug, executor);
 				BackwardsInfoflowProblem backProblem = new BackwardsInfoflowProblem();
 				InfoflowSolver backSolver = new InfoflowSolver(backProblem, debug, executor);
@@ -393,26 +511,102 @@ public class Infoflow implements IInfoflow {
 				backProblem.setForwardSolver((InfoflowSolver) forwardSolver);
 				backProblem.setTaintWrapper(taintWrapper);
 				backProblem.setDebug(debug);
+				
+				((InfoflowSolver) forwardSolver).setBudget(budget);
+				backSolver.setBudget(budget);
+				
+				AbstractionPool abstractionPool = internAbstractions ? new AbstractionPool() : null;
+				((InfoflowSolver) forwardSolver).setAbstractionPool(abstractionPool);
+				backSolver.setAbstractionPool(abstractionPool);
+				
+				SourceSetRegistry sourceSets = null;
+				if (mergeSources) {
+					if (pathTracking == PathTrackingMethod.NoTracking)
+						sourceSets = new SourceSetRegistry();
+					else
+						logger.warn("Sources cannot be merged when tracking paths, merging is disabled");
+				}
+				forwardProblem.setSourceSetRegistry(sourceSets);
+				((InfoflowSolver) forwardSolver).setSourceSetRegistry(sourceSets);
+				backSolver.setSourceSetRegistry(sourceSets);
+				
+				if (executor instanceof PriorityExecutor) {
+					Map<SootMethod, Integer> sinkDistances = SinkDistanceCalculator.computeDistances
+							(Scene.v().getCallGraph(), sinkMethods);
+					logger.info("{} methods are connected to a sink", sinkDistances.size());
+					((InfoflowSolver) forwardSolver).setSinkDistances(sinkDistances);
+					backSolver.setSinkDistances(sinkDistances);
+				}
+
+				// Results found while the solvers are running are passed on
+				// to the streaming handlers on a separate thread
+				AsyncResultDispatcher resultDispatcher = null;
+				if (!onResultFound.isEmpty()) {
+					resultDispatcher = new AsyncResultDispatcher(onResultFound, resultQueueCapacity);
+					forwardProblem.getResults().addResultFoundHandler(resultDispatcher);
+				}
 
-				forwardSolver.solve();
+				boolean workersFinished = true;
+				try {
+					forwardSolver.solve();
 
-				for (SootMethod ep : Scene.v().getEntryPoints()) {
-					Unit ret = ep.getActiveBody().getUnits().getLast();
+					// If we stopped early, some workers may still be finishing the
+					// edge they were processing when the executor was cancelled.
+					// Let them finish before we read the results.
+					if (stopAfterFirstFlow || budget != null)
+						workersFinished = awaitWorkers(executor);
 
-					logger.info("----------------------------------------------\n"+
-                                "At end of: {}\n"+
-                                "{} Variables (with {} source-to-sink connections):\n"+
-                                "----------------------------------------------",
-                            ep.getSignature(), forwardSolver.ifdsResultsAt(ret).size(), forwardProblem.results.size());
+					for (SootMethod ep : Scene.v().getEntryPoints()) {
+						Unit ret = ep.getActiveBody().getUnits().getLast();
 
-					for (Abstraction l : forwardSolver.ifdsResultsAt(ret)) {
-						logger.info("{} contains value from {}",l.getAccessPath(), l.getSource());
+						logger.info("----------------------------------------------\n"+
+	                                "At end of: {}\n"+
+	                                "{} Variables (with {} source-to-sink connections):\n"+
+	                                "----------------------------------------------",
+	                            ep.getSignature(), forwardSolver.ifdsResultsAt(ret).size(), forwardProblem.results.size());
+
+						for (Abstraction l : forwardSolver.ifdsResultsAt(ret)) {
+							logger.info("{} contains value from {}",l.getAccessPath(), l.getSource());
+						}
+						logger.info("---");
 					}
-					logger.info("---");
-				}
 
 
+					if (abstractionPool != null)
+						logger.info("{} distinct abstractions have been created", abstractionPool.size());
+					if (sourceSets != null) {
+						forwardProblem.resolveMergedResults();
+						logger.info("{} sources have been merged into {} facts",
+								sourceSets.getSourceCount(), sourceSets.size());
+					}
+				}
+				finally {
+					// The dispatcher thread must be stopped even if the solvers
+					// have failed
+					if (resultDispatcher != null) {
+						forwardProblem.getResults().removeResultFoundHandler(resultDispatcher);
+						try {
+							if (!resultDispatcher.shutdown(10000))
+								logger.warn("Result handlers did not finish in time");
+						}
+						catch (InterruptedException ex) {
+							Thread.currentThread().interrupt();
+						}
+					}
+				}
+
 				results = forwardProblem.results;
+				if (resultDispatcher != null)
+					results.setDroppedResultCount(resultDispatcher.getDroppedResultCount());
+				if (budget != null && budget.isExhausted()) {
+					logger.warn("The {} budget is exhausted after {} edges, the results are incomplete",
+							budget.getExhaustedBudget(), budget.getProcessedEdges());
+					results.setIncomplete(true);
+				}
+				if (!workersFinished) {
+					logger.warn("Interrupted while waiting for the solver threads, the results are incomplete");
+					results.setIncomplete(true);
+				}
 				if (results.getResults().isEmpty())
 					logger.warn("No results found.");
 				else for (Entry<SinkInfo, Set<SourceInfo>> entry : results.getResults().entrySet()) {
@@ -442,6 +636,49 @@ public class Infoflow implements IInfoflow {
 		PackManager.v().getPack("wjtp").add(transform);
 	}
 
+	/**
+	 * Creates the executor shared by the forward and the backward solver. If
+	 * the caller has supplied an executor, this one is used instead.
+	 * @param threadCount The number of worker threads
+	 * @return The executor to use
+	 */
+	private CancellableExecutor createExecutor(int threadCount) {
+		if (customExecutor != null)
+			return customExecutor;
+		logger.info("Using {} worker threads with queue policy {}", threadCount, queuePolicy);
+		switch (queuePolicy) {
+		case WorkStealing:
+			CancellableExecutor workStealingExecutor = createWorkStealingExecutor(threadCount);
+			if (workStealingExecutor != null)
+				return workStealingExecutor;
+			logger.warn("Work stealing requires Java 7, using a shared queue instead");
+			return new SharedQueueExecutor(threadCount);
+		case SinkDistance:
+			return new PriorityExecutor(threadCount);
+		default:
+			return new SharedQueueExecutor(threadCount);
+		}
+	}
+
+	/**
+	 * Creates an executor with work stealing. The class is loaded by name,
+	 * since it is only built and only runs on Java 7 and later.
+	 * @param threadCount The number of worker threads
+	 * @return The new executor, or null if it is not available
+	 */
+	private CancellableExecutor createWorkStealingExecutor(int threadCount) {
+		try {
+			return (CancellableExecutor) Class.forName("soot.jimple.infoflow.heros.WorkStealingExecutor")
+					.getConstructor(int.class).newInstance(threadCount);
+		}
+		catch (Exception ex) {
+			return null;
+		}
+		catch (LinkageError err) {
+			return null;
+		}
+	}
+
 		private void stringToTextFile(String fileName, String contents) throws IOException {
 			BufferedWriter wr = null;
 			try {
@@ -493,5 +730,33 @@ public class Infoflow implements IInfoflow {
 	public void removeResultsAvailableHandler(ResultsAvailableHandler handler) {
 		onResultsAvailable.remove(handler);
 	}
+	
+	/**
+	 * Adds a handler that is called for every new information flow as soon as
+	 * it is found, while the analysis is still running. The handlers are
+	 * called on a separate thread.
+	 * @param handler The handler to add
+	 */
+	public void addResultFoundHandler(ResultFoundHandler handler) {
+		onResultFound.add(handler);
+	}
+	
+	/**
+	 * Removes a handler that is called for every new information flow
+	 * @param handler The handler to remove
+	 */
+	public void removeResultFoundHandler(ResultFoundHandler handler) {
+		onResultFound.remove(handler);
+	}
+	
+	/**
+	 * Sets the maximum number of new information flows that may wait for
+	 * the result found handlers. If the handlers cannot keep up, further
+	 * flows are only reported to the results available handlers.
+	 * @param capacity The maximum number of waiting flows
+	 */
+	public void setResultQueueCapacity(int capacity) {
+		this.resultQueueCapacity = capacity;
+	}
 
 }
\ No newline at end of file
@@ -8,10 +8,14 @@ import heros.flowfunc.KillAll;
 import heros.solver.PathEdge;
 
 import java.util.ArrayList;
+import java.util.BitSet;
 import java.util.Collections;
 import java.util.HashSet;
 import java.util.List;
+import java.util.Queue;
 import java.util.Set;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -36,16 +40,46 @@ import soot.jimple.ThrowStmt;
 import soot.jimple.infoflow.data.Abstraction;
 import soot.jimple.infoflow.data.AbstractionWithPath;
 import soot.jimple.infoflow.data.AccessPath;
+import soot.jimple.infoflow.data.PropagationPath;
+import soot.jimple.infoflow.data.SourceSet;
+import soot.jimple.infoflow.data.SourceSetRegistry;
 import soot.jimple.infoflow.heros.InfoflowSolver;
 import soot.jimple.infoflow.source.DefaultSourceSinkManager;
 import soot.jimple.infoflow.source.ISourceSinkManager;
 import soot.jimple.infoflow.util.BaseSelector;
+import soot.jimple.infoflow.util.SinkReachabilityAnalysis;
 import soot.jimple.toolkits.ide.icfg.JimpleBasedBiDiICFG;
 
 public class InfoflowProblem extends AbstractInfoflowProblem {
 
 	private InfoflowSolver bSolver; 
 	private final ISourceSinkManager sourceSinkManager;
+	private SinkReachabilityAnalysis sinkReachability = null;
+	private SourceSetRegistry sourceSets = null;
+
+	/**
+	 * A sink reached by a fact that is merged across sources
+	 */
+	private static class MergedResult {
+		private final Value sink;
+		private final Stmt sinkStmt;
+		private final SourceSet sourceSet;
+
+		public MergedResult(Value sink, Stmt sinkStmt, SourceSet sourceSet) {
+			this.sink = sink;
+			this.sinkStmt = sinkStmt;
+			this.sourceSet = sourceSet;
+		}
+	}
+
+	private final Queue<MergedResult> mergedResults = new ConcurrentLinkedQueue<MergedResult>();
+
+	/**
+	 * Set by the thread that records the first flow if the analysis shall
+	 * stop after it. Other threads may find further flows before the solvers
+	 * have stopped, but these are not recorded.
+	 */
+	private final AtomicBoolean firstFlowFound = new AtomicBoolean(false);
 
     private final Logger logger = LoggerFactory.getLogger(getClass());
 
@@ -81,7 +115,7 @@ public class InfoflowProblem extends AbstractInfoflowProblem {
 		if(vals != null) {
 			for (AccessPath val : vals) {
 				Abstraction newAbs = source.deriveNewAbstraction(val);
-				if (pathTracking == PathTrackingMethod.ForwardTracking)
+				if (pathTracking != PathTrackingMethod.NoTracking)
 					((AbstractionWithPath) newAbs).addPathElement(iStmt);
 				res.add(newAbs);
 
@@ -102,6 +136,100 @@ public class InfoflowProblem extends AbstractInfoflowProblem {
 		return res;
 	}
 	
+	/**
+	 * Checks whether a taint need not be passed into the given callee because
+	 * it can neither reach a sink from there nor change the caller's state
+	 * @param call The call site
+	 * @param callee The callee to check
+	 * @return True if taints shall not be passed into the callee, otherwise
+	 * false
+	 */
+	private boolean isPrunedCall(Unit call, SootMethod callee) {
+		// The return value of the callee may always be tainted
+		return sinkReachability != null
+				&& !(call instanceof AssignStmt)
+				&& sinkReachability.isIrrelevant(callee);
+	}
+	
+	/**
+	 * Records a flow from the source of the given abstraction to a sink. If
+	 * the analysis shall stop after the first flow, only the first flow is
+	 * recorded and all others are ignored.
+	 * @param sink The value that reaches the sink
+	 * @param sinkStmt The sink statement
+	 * @param source The abstraction that reaches the sink
+	 * @param pathEnd The last statement on the propagation path
+	 */
+	private void addResult(Value sink, Stmt sinkStmt, Abstraction source, Unit pathEnd) {
+		if (stopAfterFirstFlow && !firstFlowFound.compareAndSet(false, true))
+			return;
+		switch (pathTracking) {
+		case ForwardTracking:
+			results.addResult(sink, sinkStmt, source.getSource(), source.getSourceContext(),
+					((AbstractionWithPath) source).getPropagationPath(), pathEnd);
+			break;
+		case LazyTracking:
+			results.addResult(sink, sinkStmt, source.getSource(), source.getSourceContext(),
+					new PropagationPath(((AbstractionWithPath) source).getPath(), pathEnd));
+			break;
+		default:
+			if (source.getSourceSet() != null) {
+				// More sources may reach this fact later, so we resolve the
+				// sources again once the analysis is done. This is not
+				// necessary if we only want the first flow.
+				if (!stopAfterFirstFlow)
+					mergedResults.add(new MergedResult(sink, sinkStmt, source.getSourceSet()));
+				addMergedResult(sink, sinkStmt, source.getSourceSet());
+			}
+			else
+				results.addResult(sink, sinkStmt, source.getSource(), source.getSourceContext());
+		}
+		checkStopAfterFirstFlow();
+	}
+
+	/**
+	 * Adds one result for every source in the given set, or only for the
+	 * first one if the analysis shall stop after the first flow
+	 * @param sink The sink value
+	 * @param sinkStmt The statement containing the sink
+	 * @param sourceSet The set of sources from which the sink was reached
+	 */
+	private void addMergedResult(Value sink, Stmt sinkStmt, SourceSet sourceSet) {
+		BitSet sourceIndices = sourceSet.resolve();
+		for (int i = sourceIndices.nextSetBit(0); i >= 0; i = sourceIndices.nextSetBit(i + 1)) {
+			results.addResult(sink, sinkStmt, sourceSets.getSource(i), sourceSets.getSourceContext(i));
+			if (stopAfterFirstFlow)
+				break;
+		}
+	}
+
+	/**
+	 * Completes the results for facts that are merged across sources. Sources
+	 * that reached a sink after it was first found are only known once the
+	 * solvers are done, so this method must be called after the analysis.
+	 */
+	public void resolveMergedResults() {
+		for (MergedResult result : mergedResults)
+			addMergedResult(result.sink, result.sinkStmt, result.sourceSet);
+		mergedResults.clear();
+	}
+	
+	/**
+	 * Terminates the analysis if it shall stop after the first flow and this
+	 * flow has just been found. Terminating only drops the edges that are
+	 * still queued. Workers that are already processing an edge finish it.
+	 * The flow functions therefore still check for a result themselves and
+	 * stop creating new facts once there is one.
+	 */
+	private void checkStopAfterFirstFlow() {
+		if (stopAfterFirstFlow && bSolver != null && !results.isEmpty()) {
+			logger.info("Found the first flow, terminating the analysis");
+			// The forward and the backward solver share their executor, so
+			// this stops both of them
+			bSolver.terminate();
+		}
+	}
+	
 	@Override
 	public FlowFunctions<Unit, Abstraction, SootMethod> createFlowFunctionsFactory() {
 		return new FlowFunctions<Unit, Abstraction, SootMethod>() {
@@ -130,7 +258,7 @@ public class InfoflowProblem extends AbstractInfoflowProblem {
 
 				// also taint the target of the assignment
 				Abstraction newAbs = source.deriveNewAbstraction(baseTarget, cutFirstField, src);
-				if (pathTracking == PathTrackingMethod.ForwardTracking)
+				if (pathTracking != PathTrackingMethod.NoTracking)
 					((AbstractionWithPath) newAbs).addPathElement(src);
 				taintSet.add(newAbs);
 				
@@ -180,6 +308,9 @@ public class InfoflowProblem extends AbstractInfoflowProblem {
 									abs = new AbstractionWithPath(is.getLeftOp(),
 										is.getRightOp(),
 										is, false, true, is).addPathElement(is);
+								else if (sourceSets != null)
+									abs = new Abstraction(is.getLeftOp(), null, null, false, true, is)
+										.deriveWithSourceSet(sourceSets.getSourceNode(is.getRightOp(), is));
 								else
 									abs = new Abstraction(is.getLeftOp(),
 										is.getRightOp(), is, false, true, is);
@@ -263,7 +394,7 @@ public class InfoflowProblem extends AbstractInfoflowProblem {
 										addLeftValue = true;
 										/*
 										if (leftValue instanceof Local) {
-											if (pathTracking == PathTrackingMethod.ForwardTracking)
+											if (pathTracking != PathTrackingMethod.NoTracking)
 												res.add(((AbstractionWithPath) newSource.deriveNewAbstraction
 														(newSource.getAccessPath().copyWithNewValue(leftValue), assignStmt)).addPathElement(src));
 											else
@@ -293,15 +424,7 @@ public class InfoflowProblem extends AbstractInfoflowProblem {
 							// if one of them is true -> add leftValue
 							if (addLeftValue) {
 								if (sourceSinkManager.isSink(assignStmt, interproceduralCFG())) {
-									if (pathTracking != PathTrackingMethod.NoTracking)
-										results.addResult(leftValue, assignStmt,
-												newSource.getSource(),
-												newSource.getSourceContext(),
-												((AbstractionWithPath) newSource).getPropagationPath(),
-												assignStmt);
-									else
-										results.addResult(leftValue, assignStmt,
-												newSource.getSource(), newSource.getSourceContext());
+									addResult(leftValue, assignStmt, newSource, assignStmt);
 								}
 								if(triggerInaktiveTaintOrReverseFlow(leftValue, newSource) || newSource.isAbstractionActive())
 									addTaintViaStmt(src, leftValue, newSource, res, cutFirstField);
@@ -376,15 +499,7 @@ public class InfoflowProblem extends AbstractInfoflowProblem {
 								return Collections.emptySet();
 
 							if (returnStmt.getOp().equals(source.getAccessPath().getPlainValue()) && sourceSinkManager.isSink(returnStmt, interproceduralCFG())) {
-								if (pathTracking != PathTrackingMethod.NoTracking)
-									results.addResult(returnStmt.getOp(), returnStmt,
-											source.getSource(),
-											source.getSourceContext(),
-											((AbstractionWithPath) source).getPropagationPath(),
-											returnStmt);
-								else
-									results.addResult(returnStmt.getOp(), returnStmt,
-											source.getSource(), source.getSourceContext());
+								addResult(returnStmt.getOp(), returnStmt, source, returnStmt);
 							}
 
 							return Collections.singleton(source);
@@ -419,6 +534,7 @@ public class InfoflowProblem extends AbstractInfoflowProblem {
 				final Stmt stmt = (Stmt) src;
 				final InvokeExpr ie = stmt.getInvokeExpr();
 				final List<Value> callArgs = ie.getArgs();
+				final boolean pruned = isPrunedCall(src, dest);
 				final List<Value> paramLocals = new ArrayList<Value>();
 				for (int i = 0; i < dest.getParameterCount(); i++) {
 					paramLocals.add(dest.getActiveBody().getParameterLocal(i));
@@ -433,6 +549,9 @@ public class InfoflowProblem extends AbstractInfoflowProblem {
 						if (source.equals(zeroValue)) {
 							return Collections.singleton(source);
 						}
+						// The taint stays in the caller, see the call-to-return function
+						if (pruned)
+							return Collections.emptySet();
 						if(taintWrapper != null && taintWrapper.isExclusive(stmt, source.getAccessPath())) {
 							//taint is propagated in CallToReturnFunction, so we do not need any taint here:
 							return Collections.emptySet();
@@ -448,6 +567,9 @@ public class InfoflowProblem extends AbstractInfoflowProblem {
 						}else{
 							newSource = source;
 						}
+						// If facts are merged across sources, the callee is
+						// analyzed separately for each calling context
+						newSource = newSource.deriveCalleeEntry();
 						
 						Set<Abstraction> res = new HashSet<Abstraction>();
 						// check if whole object is tainted (happens with strings, for example:)
@@ -457,7 +579,7 @@ public class InfoflowProblem extends AbstractInfoflowProblem {
 							if (vie.getBase().equals(newSource.getAccessPath().getPlainValue())) {
 								Abstraction abs = newSource.deriveNewAbstraction(newSource.getAccessPath().copyWithNewValue
 										(dest.getActiveBody().getThisLocal()));
-								if (pathTracking == PathTrackingMethod.ForwardTracking)
+								if (pathTracking != PathTrackingMethod.NoTracking)
 									((AbstractionWithPath) abs).addPathElement(stmt);
 								//add new callArgs:
 								assert abs != newSource; 		// our source abstraction must be immutable
@@ -475,7 +597,7 @@ public class InfoflowProblem extends AbstractInfoflowProblem {
 										(triggerInaktiveTaintOrReverseFlow(callArgs.get(i), newSource) || newSource.isAbstractionActive())) {
 									Abstraction abs = newSource.deriveNewAbstraction(newSource.getAccessPath().copyWithNewValue
 											(paramLocals.get(i)), stmt);
-									if (pathTracking == PathTrackingMethod.ForwardTracking)
+									if (pathTracking != PathTrackingMethod.NoTracking)
 										((AbstractionWithPath) abs).addPathElement(stmt);
 									assert abs != newSource;		// our source abstraction must be immutable
 									abs.setAbstractionFromCallEdge(abs.clone());
@@ -544,15 +666,7 @@ public class InfoflowProblem extends AbstractInfoflowProblem {
 									&& newSource.getAccessPath().getPlainValue().equals(returnStmt.getOp())
 									&& sourceSinkManager.isSink(returnStmt, interproceduralCFG())) {
 
-								if (pathTracking != PathTrackingMethod.NoTracking)
-									results.addResult(returnStmt.getOp(), returnStmt,
-											newSource.getSource(),
-											newSource.getSourceContext(),
-											((AbstractionWithPath) newSource).getPropagationPath(),
-											returnStmt);
-								else
-									results.addResult(returnStmt.getOp(), returnStmt,
-											newSource.getSource(), newSource.getSourceContext());
+								addResult(returnStmt.getOp(), returnStmt, newSource, returnStmt);
 							}
 						}
 						
@@ -572,7 +686,7 @@ public class InfoflowProblem extends AbstractInfoflowProblem {
 								if (retLocal.equals(newSource.getAccessPath().getPlainLocal()) &&
 										(triggerInaktiveTaintOrReverseFlow(leftOp, newSource) || newSource.isAbstractionActive())) {
 									Abstraction abs = newSource.deriveNewAbstraction(newSource.getAccessPath().copyWithNewValue(leftOp), callSite);
-									if (pathTracking == PathTrackingMethod.ForwardTracking)
+									if (pathTracking != PathTrackingMethod.NoTracking)
 										((AbstractionWithPath) abs).addPathElement(exitStmt);
 									assert abs != newSource;		// our source abstraction must be immutable
 									res.add(abs);
@@ -617,7 +731,7 @@ public class InfoflowProblem extends AbstractInfoflowProblem {
 									//either the param is a fieldref (not possible in jimple?) or an array Or one of its fields is tainted/all fields are tainted
 									if (triggerInaktiveTaintOrReverseFlow(originalCallArg, newSource)) {
 										Abstraction abs = newSource.deriveNewAbstraction(newSource.getAccessPath().copyWithNewValue(originalCallArg), callSite);
-										if (pathTracking == PathTrackingMethod.ForwardTracking)
+										if (pathTracking != PathTrackingMethod.NoTracking)
 											abs = ((AbstractionWithPath) abs).addPathElement(exitStmt);
 										res.add(abs);
 										if(triggerInaktiveTaintOrReverseFlow(originalCallArg, abs)){
@@ -654,7 +768,7 @@ public class InfoflowProblem extends AbstractInfoflowProblem {
 										if (stmt.getInvokeExpr() instanceof InstanceInvokeExpr) {
 											InstanceInvokeExpr iIExpr = (InstanceInvokeExpr) stmt.getInvokeExpr();
 											Abstraction abs = newSource.deriveNewAbstraction(newSource.getAccessPath().copyWithNewValue(iIExpr.getBase()));
-											if (pathTracking == PathTrackingMethod.ForwardTracking)
+											if (pathTracking != PathTrackingMethod.NoTracking)
 												((AbstractionWithPath) abs).addPathElement(stmt);
 											res.add(abs);
 											if(triggerInaktiveTaintOrReverseFlow(iIExpr.getBase(), abs)){
@@ -740,10 +854,13 @@ public class InfoflowProblem extends AbstractInfoflowProblem {
 								if (sourceSinkManager.isSource(stmt, interproceduralCFG())) {
 									logger.debug("Found source: " + stmt.getInvokeExpr().getMethod());
 									Abstraction abs; 
-									if (pathTracking == PathTrackingMethod.ForwardTracking)
+									if (pathTracking != PathTrackingMethod.NoTracking)
 										abs = new AbstractionWithPath(stmt.getLeftOp(),
 												stmt.getInvokeExpr(),
 												stmt, false, true, iStmt).addPathElement(call);
+									else if (sourceSets != null)
+										abs = new Abstraction(stmt.getLeftOp(), null, null, false, true, iStmt)
+												.deriveWithSourceSet(sourceSets.getSourceNode(stmt.getInvokeExpr(), stmt));
 									else
 										abs = new Abstraction(stmt.getLeftOp(),
 												stmt.getInvokeExpr(), stmt, false, true, iStmt);
@@ -764,30 +881,13 @@ public class InfoflowProblem extends AbstractInfoflowProblem {
 								}
 
 								if (taintedParam) {
-									if (pathTracking != PathTrackingMethod.NoTracking)
-										results.addResult(iStmt.getInvokeExpr(), iStmt,
-												newSource.getSource(),
-												newSource.getSourceContext(),
-												((AbstractionWithPath) newSource).getPropagationPath(),
-												call);
-									else
-										results.addResult(iStmt.getInvokeExpr(), iStmt,
-												newSource.getSource(), newSource.getSourceContext());
+									addResult(iStmt.getInvokeExpr(), iStmt, newSource, call);
 								}
 								// if the base object which executes the method is tainted the sink is reached, too.
 								if (iStmt.getInvokeExpr() instanceof InstanceInvokeExpr) {
 									InstanceInvokeExpr vie = (InstanceInvokeExpr) iStmt.getInvokeExpr();
 									if (vie.getBase().equals(newSource.getAccessPath().getPlainValue())) {
-										if (pathTracking != PathTrackingMethod.NoTracking)
-											results.addResult(iStmt.getInvokeExpr(), iStmt,
-													newSource.getSource(),
-													newSource.getSourceContext(),
-													((AbstractionWithPath) newSource).getPropagationPath(),
-													call);
-
-										else
-											results.addResult(iStmt.getInvokeExpr(), iStmt,
-													newSource.getSource(), newSource.getSourceContext());
+										addResult(iStmt.getInvokeExpr(), iStmt, newSource, call);
 									}
 								}
 							}
@@ -796,7 +896,7 @@ public class InfoflowProblem extends AbstractInfoflowProblem {
 
 						/**
 						 * Checks whether the given call has at least one valid target,
-						 * i.e. a callee with a body.
+						 * i.e. a callee with a body into which taints are passed.
 						 * @param call The call site to check
 						 * @return True if there is at least one callee implementation
 						 * for the given call, otherwise false
@@ -804,7 +904,7 @@ public class InfoflowProblem extends AbstractInfoflowProblem {
 						private boolean hasValidCallees(Unit call) {
 							Set<SootMethod> callees = interproceduralCFG().getCalleesOfCallAt(call);
 							for (SootMethod callee : callees)
-								if (callee.isConcrete())
+								if (callee.isConcrete() && !isPrunedCall(call, callee))
 										return true;
 							return false;
 						}
@@ -844,6 +944,29 @@ public class InfoflowProblem extends AbstractInfoflowProblem {
 		bSolver = backwardSolver;
 	}
 
+	/**
+	 * Sets the analysis that tells which callees can neither reach a sink nor
+	 * change the state of their callers. Taints are not passed into such
+	 * callees.
+	 * @param sinkReachability The sink reachability analysis, or null to
+	 * analyze all callees
+	 */
+	public void setSinkReachability(SinkReachabilityAnalysis sinkReachability) {
+		this.sinkReachability = sinkReachability;
+	}
+
+	/**
+	 * Sets the registry through which facts are merged across sources. The
+	 * sources of merged facts are not part of their identity, so an access
+	 * path reached from many sources is only propagated once. Merging is not
+	 * supported together with path tracking.
+	 * @param sourceSets The registry to use, or null if every source shall
+	 * have its own facts. The solvers must use the same registry.
+	 */
+	public void setSourceSetRegistry(SourceSetRegistry sourceSets) {
+		this.sourceSets = sourceSets;
+	}
+
 	@Override
 	public boolean autoAddZero() {
 		return false;
@@ -1,11 +1,14 @@
 package soot.jimple.infoflow;
 
 import java.util.ArrayList;
-import java.util.HashSet;
+import java.util.Collections;
 import java.util.List;
 import java.util.Map;
+import java.util.Map.Entry;
 import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CopyOnWriteArrayList;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -13,6 +16,8 @@ import soot.Unit;
 import soot.Value;
 import soot.jimple.InvokeExpr;
 import soot.jimple.Stmt;
+import soot.jimple.infoflow.data.PropagationPath;
+import soot.jimple.infoflow.handlers.ResultFoundHandler;
 import soot.tagkit.LineNumberTag;
 
 /**
@@ -28,10 +33,11 @@ public class InfoflowResults {
 	 * Class for modeling information flowing out of a specific source
 	 * @author Steven Arzt
 	 */
-	public class SourceInfo {
+	public static class SourceInfo {
 		private final Value source;
 		private final Stmt context;
-		private final List<Unit> path;
+		private List<Unit> path;
+		private PropagationPath lazyPath;
 		
 		public SourceInfo(Value source, Stmt context) {
 			assert source != null;
@@ -48,6 +54,21 @@ public class InfoflowResults {
 			this.context = context;
 			this.path = path;
 		}
+		
+		/**
+		 * Creates a new source whose path is only put into a list when it is
+		 * requested for the first time
+		 * @param source The source value
+		 * @param context The source statement
+		 * @param lazyPath The propagation path from the source to the sink
+		 */
+		public SourceInfo(Value source, Stmt context, PropagationPath lazyPath) {
+			assert source != null;
+
+			this.source = source;
+			this.context = context;
+			this.lazyPath = lazyPath;
+		}
 
 		public Value getSource() {
 			return this.source;
@@ -57,7 +78,11 @@ public class InfoflowResults {
 			return this.context;
 		}
 		
-		public List<Unit> getPath() {
+		public synchronized List<Unit> getPath() {
+			if (this.path == null && this.lazyPath != null) {
+				this.path = this.lazyPath.toList();
+				this.lazyPath = null;
+			}
 			return this.path;
 		}
 
@@ -93,7 +118,7 @@ public class InfoflowResults {
 	 * Class for modeling information flowing into a specific source
 	 * @author Steven Arzt
 	 */
-	public class SinkInfo {
+	public static class SinkInfo {
 		private final Value sink;
 		private final Stmt context;
 		
@@ -140,7 +165,33 @@ public class InfoflowResults {
 		}
 	}
 	
-	private final Map<SinkInfo, Set<SourceInfo>> results = new ConcurrentHashMap<SinkInfo, Set<SourceInfo>>();
+	/**
+	 * The sources for every sink. The source sets are concurrent as well, so
+	 * that results can be added by many solver threads without locking.
+	 */
+	private final ConcurrentMap<SinkInfo, Set<SourceInfo>> results = new ConcurrentHashMap<SinkInfo, Set<SourceInfo>>();
+
+	/*
+	 * Secondary indexes for answering queries without scanning all results.
+	 * They are updated whenever a new sink or a new source is recorded.
+	 */
+	private final ConcurrentMap<Value, Set<Value>> sourcesBySinkValue = new ConcurrentHashMap<Value, Set<Value>>();
+	private final ConcurrentMap<String, Set<SinkInfo>> sinksByMethod = new ConcurrentHashMap<String, Set<SinkInfo>>();
+	private final ConcurrentMap<String, Set<String>> sourceMethodsBySinkMethod = new ConcurrentHashMap<String, Set<String>>();
+	private final ConcurrentMap<Stmt, Set<SinkInfo>> sinksByStmt = new ConcurrentHashMap<Stmt, Set<SinkInfo>>();
+	private final ConcurrentMap<Stmt, Set<SinkInfo>> sinksBySourceStmt = new ConcurrentHashMap<Stmt, Set<SinkInfo>>();
+
+	/**
+	 * The sources of every sink by source statement. Together with the sinks
+	 * by statement, this allows addResult() to recognize a known flow before
+	 * it allocates anything.
+	 */
+	private final ConcurrentMap<SinkInfo, ConcurrentMap<Stmt, Set<SourceInfo>>> sourcesBySinkAndStmt =
+			new ConcurrentHashMap<SinkInfo, ConcurrentMap<Stmt, Set<SourceInfo>>>();
+
+	private volatile boolean incomplete = false;
+	private volatile long droppedResultCount = 0;
+	private final List<ResultFoundHandler> resultFoundHandlers = new CopyOnWriteArrayList<ResultFoundHandler>();
 	
 	public InfoflowResults() {
 		
@@ -163,6 +214,44 @@ public class InfoflowResults {
 		return this.results.isEmpty();
 	}
 	
+	/**
+	 * Gets whether the analysis has been stopped before it could finish, e.g.
+	 * because its time budget was exhausted. In that case, this object only
+	 * contains the flows that have been found so far.
+	 * @return True if the results are incomplete, otherwise false
+	 */
+	public boolean isIncomplete() {
+		return this.incomplete;
+	}
+	
+	/**
+	 * Sets whether the analysis has been stopped before it could finish
+	 * @param incomplete True if the results are incomplete, otherwise false
+	 */
+	public void setIncomplete(boolean incomplete) {
+		this.incomplete = incomplete;
+	}
+	
+	/**
+	 * Gets the number of results that have not been streamed to the
+	 * {@link ResultFoundHandler}s because the handlers could not keep up.
+	 * These results are still contained in this object.
+	 * @return The number of results that have not been streamed
+	 */
+	public long getDroppedResultCount() {
+		return this.droppedResultCount;
+	}
+	
+	/**
+	 * Sets the number of results that have not been streamed to the
+	 * {@link ResultFoundHandler}s
+	 * @param droppedResultCount The number of results that have not been
+	 * streamed
+	 */
+	public void setDroppedResultCount(long droppedResultCount) {
+		this.droppedResultCount = droppedResultCount;
+	}
+	
 	/**
 	 * Checks whether this result object contains a sink that exactly matches the
 	 * given value.
@@ -171,10 +260,7 @@ public class InfoflowResults {
 	 * false.
 	 */
 	public boolean containsSink(Value sink) {
-		for (SinkInfo si : this.results.keySet())
-			if (si.getSink().equals(sink))
-				return true;
-		return false;
+		return this.sourcesBySinkValue.containsKey(sink);
 	}
 	
 	/**
@@ -185,43 +271,201 @@ public class InfoflowResults {
 	 * result object, otherwise false.
 	 */
 	public boolean containsSinkMethod(String sinkSignature) {
-		return !findSinkByMethodSignature(sinkSignature).isEmpty();
+		return this.sinksByMethod.containsKey(sinkSignature);
 	}
 
 	public void addResult(Value sink, Stmt sinkStmt, Value source, Stmt sourceStmt) {
-		this.addResult(new SinkInfo(sink, sinkStmt), new SourceInfo(source, sourceStmt));
+		if (!containsFlow(sink, sinkStmt, source, sourceStmt))
+			this.addResult(new SinkInfo(sink, sinkStmt), new SourceInfo(source, sourceStmt));
 	}
 	
 	public void addResult(Value sink, Stmt sinkStmt, Value source,
 			Stmt sourceStmt, List<Unit> propagationPath) {
-		this.addResult(new SinkInfo(sink, sinkStmt), new SourceInfo(source, sourceStmt, propagationPath));
+		if (!containsFlow(sink, sinkStmt, source, sourceStmt))
+			this.addResult(new SinkInfo(sink, sinkStmt), new SourceInfo(source, sourceStmt, propagationPath));
+	}
+
+	public void addResult(Value sink, Stmt sinkStmt, Value source,
+			Stmt sourceStmt, PropagationPath propagationPath) {
+		if (!containsFlow(sink, sinkStmt, source, sourceStmt))
+			this.addResult(new SinkInfo(sink, sinkStmt), new SourceInfo(source, sourceStmt, propagationPath));
 	}
 
 	public void addResult(Value sink, Stmt sinkContext, Value source,
 			Stmt sourceStmt, List<Unit> propagationPath, Unit stmt) {
-		List<Unit> newPropPath = new ArrayList<Unit>(propagationPath);
+		// Only the first path for each source is kept, so we do not copy the
+		// path if the source is already known
+		if (containsFlow(sink, sinkContext, source, sourceStmt))
+			return;
+
+		List<Unit> newPropPath = new ArrayList<Unit>(propagationPath.size() + 1);
+		newPropPath.addAll(propagationPath);
 		newPropPath.add(stmt);
-		this.addResult(new SinkInfo(sink, sinkContext),
-				new SourceInfo(source, sourceStmt, newPropPath));
+		this.addResult(new SinkInfo(sink, sinkContext), new SourceInfo(source, sourceStmt, newPropPath));
+	}
+
+	/**
+	 * Checks whether the given flow has already been recorded. The check
+	 * looks up the sink and the source by their statements, so it does not
+	 * allocate anything.
+	 * @param sink The sink value
+	 * @param sinkStmt The statement containing the sink
+	 * @param source The source value
+	 * @param sourceStmt The statement containing the source
+	 * @return True if the flow is known, false if it is new or is just being
+	 * recorded by another thread
+	 */
+	private boolean containsFlow(Value sink, Stmt sinkStmt, Value source, Stmt sourceStmt) {
+		Set<SinkInfo> sinks = this.sinksByStmt.get(sinkStmt);
+		if (sinks == null)
+			return false;
+		for (SinkInfo si : sinks)
+			if (si.getSink().equals(sink)) {
+				ConcurrentMap<Stmt, Set<SourceInfo>> sourcesByStmt = this.sourcesBySinkAndStmt.get(si);
+				Set<SourceInfo> sources = sourcesByStmt == null ? null : sourcesByStmt.get(sourceStmt);
+				if (sources != null)
+					for (SourceInfo src : sources)
+						if (src.getSource().equals(source))
+							return true;
+				return false;
+			}
+		return false;
 	}
 
-	public void addResult(SinkInfo sink, SourceInfo source) {
+	/**
+	 * Adds a new flow from the given source to the given sink. This method
+	 * may be called by multiple threads at the same time.
+	 * @param sink The sink that has been reached
+	 * @param source The source from which the sink has been reached
+	 * @return True if the flow is new, false if it was already known
+	 */
+	public boolean addResult(SinkInfo sink, SourceInfo source) {
+		return addSource(sink, getOrCreateSources(sink), source);
+	}
+
+	/**
+	 * Adds a source to the set of sources of the given sink and updates the
+	 * indexes if the source is new
+	 * @param sink The sink that has been reached
+	 * @param sourceInfo The set of sources of the given sink
+	 * @param source The source from which the sink has been reached
+	 * @return True if the flow is new, false if it was already known
+	 */
+	private boolean addSource(SinkInfo sink, Set<SourceInfo> sourceInfo, SourceInfo source) {
+		if (!sourceInfo.add(source))
+			return false;
+
+		addToIndex(sourcesBySinkValue, sink.getSink(), source.getSource());
+		addToIndex(sinksBySourceStmt, source.getContext(), sink);
+		addToIndex(getOrCreateIndex(sourcesBySinkAndStmt, sink), source.getContext(), source);
+		String sinkSignature = getMethodSignature(sink.getSink());
+		String sourceSignature = getMethodSignature(source.getSource());
+		if (sinkSignature != null && sourceSignature != null)
+			addToIndex(sourceMethodsBySinkMethod, sinkSignature, sourceSignature);
+
+		for (ResultFoundHandler handler : resultFoundHandlers)
+			handler.onResultFound(sink, source);
+		return true;
+	}
+
+	/**
+	 * Gets the set of sources for the given sink, atomically creating an
+	 * empty one if there is none yet
+	 * @param sink The sink for which to get the sources
+	 * @return The set of sources for the given sink
+	 */
+	private Set<SourceInfo> getOrCreateSources(SinkInfo sink) {
 		Set<SourceInfo> sourceInfo = this.results.get(sink);
 		if (sourceInfo == null) {
-			sourceInfo = new HashSet<SourceInfo>();
-			this.results.put(sink, sourceInfo);
+			Set<SourceInfo> newSet = Collections.newSetFromMap(new ConcurrentHashMap<SourceInfo, Boolean>());
+			sourceInfo = this.results.putIfAbsent(sink, newSet);
+			if (sourceInfo == null) {
+				sourceInfo = newSet;
+				addToIndex(sinksByStmt, sink.getContext(), sink);
+				String sinkSignature = getMethodSignature(sink.getSink());
+				if (sinkSignature != null)
+					addToIndex(sinksByMethod, sinkSignature, sink);
+			}
 		}
-		synchronized (sourceInfo) {
-			sourceInfo.add(source);
+		return sourceInfo;
+	}
+
+	/**
+	 * Gets the index stored for the given key in the given map of indexes,
+	 * atomically creating an empty one if there is none yet
+	 * @param indexes The map of indexes
+	 * @param key The key for which to get the index
+	 * @return The index stored for the given key
+	 */
+	private static <K, L, V> ConcurrentMap<L, Set<V>> getOrCreateIndex
+			(ConcurrentMap<K, ConcurrentMap<L, Set<V>>> indexes, K key) {
+		ConcurrentMap<L, Set<V>> index = indexes.get(key);
+		if (index == null) {
+			ConcurrentMap<L, Set<V>> newIndex = new ConcurrentHashMap<L, Set<V>>();
+			index = indexes.putIfAbsent(key, newIndex);
+			if (index == null)
+				index = newIndex;
+		}
+		return index;
+	}
+
+	/**
+	 * Adds a value to the set stored for the given key in the given index
+	 * @param index The index to which to add the value
+	 * @param key The key under which to store the value
+	 * @param value The value to add
+	 */
+	private static <K, V> void addToIndex(ConcurrentMap<K, Set<V>> index, K key, V value) {
+		if (key == null)
+			return;
+		Set<V> values = index.get(key);
+		if (values == null) {
+			Set<V> newSet = Collections.newSetFromMap(new ConcurrentHashMap<V, Boolean>());
+			values = index.putIfAbsent(key, newSet);
+			if (values == null)
+				values = newSet;
 		}
+		values.add(value);
+	}
+
+	/**
+	 * Gets the signature of the method called by the given value
+	 * @param value The value to check
+	 * @return The signature of the called method if the given value is a
+	 * method call, otherwise null
+	 */
+	private static String getMethodSignature(Value value) {
+		if (value instanceof InvokeExpr)
+			return ((InvokeExpr) value).getMethod().getSignature();
+		return null;
 	}
 
 	/**
-	 * Gets all results in this object as a hash map.
+	 * Adds a handler that is called for every new flow recorded in this
+	 * object. The handler is called on the thread that records the flow,
+	 * which usually is a solver thread, so it must return quickly.
+	 * @param handler The handler to add
+	 */
+	public void addResultFoundHandler(ResultFoundHandler handler) {
+		resultFoundHandlers.add(handler);
+	}
+
+	/**
+	 * Removes a handler that is called for every new flow recorded in this
+	 * object
+	 * @param handler The handler to remove
+	 */
+	public void removeResultFoundHandler(ResultFoundHandler handler) {
+		resultFoundHandlers.remove(handler);
+	}
+
+	/**
+	 * Gets all results in this object as a hash map. The map cannot be
+	 * modified, use addResult() instead.
 	 * @return All results in this object as a hash map.
 	 */
 	public Map<SinkInfo, Set<SourceInfo>> getResults() {
-		return this.results;
+		return Collections.unmodifiableMap(this.results);
 	}
 	
 	/**
@@ -232,19 +476,8 @@ public class InfoflowResults {
 	 * otherwise
 	 */
 	public boolean isPathBetween(Value sink, Value source) {
-		Set<SourceInfo> sources = null;
-		for(SinkInfo sI : this.results.keySet()){
-			if(sI.getSink().equals(sink)){
-				sources = this.results.get(sI);
-				break;
-			}
-		}
-		if (sources == null)
-			return false;
-		for (SourceInfo src : sources)
-			if (src.source.equals(source))
-				return true;
-		return false;
+		Set<Value> sources = this.sourcesBySinkValue.get(sink);
+		return sources != null && sources.contains(source);
 	}
 	
 	/**
@@ -253,15 +486,18 @@ public class InfoflowResults {
 	 * @param source The source from which there may be a path
 	 * @return True if there is a path between the given source and sink, false
 	 * otherwise
+	 * @deprecated This method compares the textual representations of the
+	 * Jimple values, which have to be rebuilt on every call. Use
+	 * {@link #isPathBetween(Value, Value)} or
+	 * {@link #isPathBetweenMethods(String, String)} instead.
 	 */
+	@Deprecated
 	public boolean isPathBetween(String sink, String source) {
-		for (SinkInfo si : this.results.keySet())
-			if (si.getSink().toString().equals(sink)) {
-				Set<SourceInfo> sources = this.results.get(si);
-				for (SourceInfo src : sources)
-					if (src.source.toString().equals(source))
+		for (Entry<Value, Set<Value>> entry : this.sourcesBySinkValue.entrySet())
+			if (entry.getKey().toString().equals(sink))
+				for (Value src : entry.getValue())
+					if (src.toString().equals(source))
 						return true;
-		}
 		return false;
 	}
 
@@ -274,36 +510,53 @@ public class InfoflowResults {
 	 * otherwise
 	 */
 	public boolean isPathBetweenMethods(String sinkSignature, String sourceSignature) {
-		List<SinkInfo> sinkVals = findSinkByMethodSignature(sinkSignature);
-		for (SinkInfo si : sinkVals) {
-			Set<SourceInfo> sources = this.results.get(si);
-			if (sources == null)
-				return false;
-			for (SourceInfo src : sources)
-				if (src.source instanceof InvokeExpr) {
-					InvokeExpr expr = (InvokeExpr) src.source;
-					if (expr.getMethod().getSignature().equals(sourceSignature))
-						return true;
-				}
-		}
-		return false;
+		Set<String> sources = this.sourceMethodsBySinkMethod.get(sinkSignature);
+		return sources != null && sources.contains(sourceSignature);
 	}
 
 	/**
-	 * Finds the entry for a sink method with the given signature
+	 * Finds the sinks that call the method with the given signature
 	 * @param sinkSignature The sink's method signature to look for
-	 * @return The key of the entry with the given method signature if such an
-	 * entry has been found, otherwise null.
+	 * @return The sinks calling the method with the given signature. If
+	 * there are none, the set is empty.
 	 */
-	private List<SinkInfo> findSinkByMethodSignature(String sinkSignature) {
-		List<SinkInfo> sinkVals = new ArrayList<SinkInfo>();
-		for (SinkInfo si : this.results.keySet())
-			if (si.getSink() instanceof InvokeExpr) {
-				InvokeExpr expr = (InvokeExpr) si.getSink();
-				if (expr.getMethod().getSignature().equals(sinkSignature))
-					sinkVals.add(si);
-			}
-		return sinkVals;
+	public Set<SinkInfo> findSinkByMethodSignature(String sinkSignature) {
+		return getIndexEntry(sinksByMethod, sinkSignature);
+	}
+
+	/**
+	 * Finds the sinks in the given statement
+	 * @param sinkStmt The statement containing the sinks
+	 * @return The sinks in the given statement. If there are none, the set is
+	 * empty.
+	 */
+	public Set<SinkInfo> findSinksByStatement(Stmt sinkStmt) {
+		return getIndexEntry(sinksByStmt, sinkStmt);
+	}
+
+	/**
+	 * Finds the sinks that have been reached from the source in the given
+	 * statement
+	 * @param sourceStmt The statement containing the source
+	 * @return The sinks reached from the given source. If there are none, the
+	 * set is empty.
+	 */
+	public Set<SinkInfo> findSinksBySourceStatement(Stmt sourceStmt) {
+		return getIndexEntry(sinksBySourceStmt, sourceStmt);
+	}
+
+	/**
+	 * Gets the values stored for the given key in the given index
+	 * @param index The index to query
+	 * @param key The key to look for
+	 * @return The values stored for the given key, or an empty set if there
+	 * are none
+	 */
+	private static <K, V> Set<V> getIndexEntry(Map<K, Set<V>> index, K key) {
+		Set<V> values = index.get(key);
+		if (values == null)
+			return Collections.emptySet();
+		return Collections.unmodifiableSet(values);
 	}
 
 	/**
@@ -2,7 +2,6 @@ package soot.jimple.infoflow.data;
 
 
 import java.util.ArrayList;
-import java.util.Arrays;
 import java.util.List;
 
 import soot.SootField;
@@ -48,10 +47,23 @@ public class Abstraction implements Cloneable {
 	 */
 	private Abstraction abstractionFromCallEdge;
 	private Abstraction zeroAbstraction;
+	/**
+	 * the sources of this abstraction if facts are merged across sources,
+	 * otherwise null
+	 */
+	private SourceSet sourceSet;
+	/**
+	 * the node of the caller's fact from which this abstraction was passed
+	 * into the current method if facts are merged across sources, otherwise
+	 * null. Unlike the set of sources, this is part of the identity of the
+	 * abstraction, so that a callee is analyzed separately for every calling
+	 * context and does not mix up the sources of different callers.
+	 */
+	private SourceSet callingContext;
 
 	public Abstraction(Value taint, Value src, Stmt srcContext, boolean exceptionThrown, boolean isActive, Unit activationUnit){
 		this.source = src;
-		this.accessPath = new AccessPath(taint);
+		this.accessPath = AccessPathStore.v().getAccessPath(taint);
 		this.activationUnit = activationUnit;
 		this.sourceContext = srcContext;
 		this.exceptionThrown = exceptionThrown;
@@ -74,7 +86,7 @@ public class Abstraction implements Cloneable {
 	 * @param original The original abstraction to copy
 	 */
 	protected Abstraction(Value p, Abstraction original){
-		this(new AccessPath(p), original);
+		this(AccessPathStore.v().getAccessPath(p), original);
 	}
 
 	/**
@@ -102,6 +114,8 @@ public class Abstraction implements Cloneable {
 			abstractionFromCallEdge = original.abstractionFromCallEdge;
 			zeroAbstraction = original.zeroAbstraction;
 			isActive = original.isActive;
+			sourceSet = original.sourceSet;
+			callingContext = original.callingContext;
 		}
 		accessPath = p.clone();
 	}
@@ -148,7 +162,7 @@ public class Abstraction implements Cloneable {
 		SootField[] fields = new SootField[cutFirstField ? orgFields.length - 1 : orgFields.length];
 		for (int i = cutFirstField ? 1 : 0; i < orgFields.length; i++)
 			fields[cutFirstField ? i - 1 : i] = orgFields[i];
-		a = deriveNewAbstraction(new AccessPath(taint, Arrays.asList(fields)));
+		a = deriveNewAbstraction(AccessPathStore.v().createAccessPath(taint, fields));
 		a.isActive = isActive;
 		if (isActive)
 			a.activationUnit = newActUnit;
@@ -175,13 +189,66 @@ public class Abstraction implements Cloneable {
 	 */
 	public final Abstraction deriveNewAbstractionOnCatch(Value taint, Unit newActivationUnit){
 		assert this.exceptionThrown;
-		Abstraction abs = deriveNewAbstraction(new AccessPath(taint));
+		Abstraction abs = deriveNewAbstraction(AccessPathStore.v().getAccessPath(taint));
 		abs.exceptionThrown = false;
 		if(isActive)
 			abs.activationUnit = newActivationUnit;
 		return abs;
 	}
 
+	/**
+	 * Derives a copy of this abstraction that carries the given set of
+	 * sources
+	 * @param sourceSet The set of sources from which the new abstraction
+	 * originates
+	 * @return The newly derived abstraction
+	 */
+	public final Abstraction deriveWithSourceSet(SourceSet sourceSet){
+		Abstraction abs = clone();
+		abs.sourceSet = sourceSet;
+		return abs;
+	}
+
+	/**
+	 * Derives the abstraction with which this abstraction enters a callee. If
+	 * facts are merged across sources, the new abstraction is bound to the
+	 * node of this abstraction at the call site, so the callee's facts only
+	 * carry the sources of this calling context.
+	 * @return The abstraction to pass into the callee
+	 */
+	public final Abstraction deriveCalleeEntry(){
+		if (sourceSet == null || callingContext == sourceSet)
+			return this;
+		return deriveWithCallingContext(sourceSet);
+	}
+
+	/**
+	 * Derives a copy of this abstraction that belongs to the given calling
+	 * context
+	 * @param callingContext The node of the caller's fact from which the
+	 * current method was entered, or null for the outermost context
+	 * @return This abstraction if it already belongs to the given context,
+	 * otherwise the newly derived abstraction
+	 */
+	public final Abstraction deriveWithCallingContext(SourceSet callingContext){
+		if (this.callingContext == callingContext)
+			return this;
+		Abstraction abs = clone();
+		abs.callingContext = callingContext;
+		return abs;
+	}
+
+	/**
+	 * Gets the calling context to which this abstraction belongs if facts are
+	 * merged across sources
+	 * @return The node of the caller's fact from which the current method was
+	 * entered, or null if facts are not merged or this is the outermost
+	 * context
+	 */
+	public SourceSet getCallingContext() {
+		return this.callingContext;
+	}
+
 	public Value getSource() {
 		return source;
 	}
@@ -190,6 +257,16 @@ public class Abstraction implements Cloneable {
 		return this.sourceContext;
 	}
 	
+	/**
+	 * Gets the set of sources from which this abstraction originates if facts
+	 * are merged across sources. The set is not part of the identity of the
+	 * abstraction.
+	 * @return The set of sources, or null if facts are not merged
+	 */
+	public SourceSet getSourceSet() {
+		return this.sourceSet;
+	}
+	
 	public boolean isAbstractionActive(){
 		return isActive;
 	}
@@ -333,9 +410,32 @@ public class Abstraction implements Cloneable {
 			return false;
 		if(this.isActive != other.isActive)
 			return false;
+		if (this.callingContext != other.callingContext)
+			return false;
 		return true;
 	}
 	
+	/**
+	 * Checks whether this abstraction is equal to the given one, including
+	 * the chain of abstractions from the call edges and the sets of sources.
+	 * Abstractions that are equal in this sense behave identically in the
+	 * solvers.
+	 * @param other The abstraction to compare to
+	 * @return True if both abstractions are equal including their call edge
+	 * abstractions, otherwise false
+	 */
+	boolean equalsWithCallEdges(Abstraction other) {
+		Abstraction a = this;
+		Abstraction b = other;
+		while (a != b) {
+			if (a == null || b == null || a.sourceSet != b.sourceSet || !a.equals(b))
+				return false;
+			a = a.abstractionFromCallEdge;
+			b = b.abstractionFromCallEdge;
+		}
+		return true;
+	}
+
 	@Override
 	public int hashCode() {
 		final int prime = 31;
@@ -349,6 +449,7 @@ public class Abstraction implements Cloneable {
 			this.hashCode = prime * this.hashCode + (exceptionThrown ? 1231 : 1237);
 			this.hashCode = prime * this.hashCode + ((zeroAbstraction == null) ? 0 : zeroAbstraction.hashCode());
 			this.hashCode = prime * this.hashCode + (isActive ? 1231 : 1237);
+			this.hashCode = prime * this.hashCode + ((callingContext == null) ? 0 : System.identityHashCode(callingContext));
 		}
 		return hashCode;
 	}
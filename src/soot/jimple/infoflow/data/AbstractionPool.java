@@ -0,0 +1,70 @@
+package soot.jimple.infoflow.data;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Pool that maps equal abstractions to one canonical instance, so that the
+ * jump tables of the solvers do not keep millions of equal but distinct
+ * objects alive and most equality checks end at the identity comparison.
+ *
+ * Two abstractions are only merged if they are also equal in their
+ * abstractions from the call edges, since these are not covered by
+ * {@link Abstraction#equals(Object)}. Abstractions with paths are never
+ * merged, because their paths may differ.
+ *
+ * Abstractions must no longer be modified once they have been interned.
+ */
+public class AbstractionPool {
+
+	/**
+	 * Key for the pool that compares abstractions including their call edge
+	 * abstractions
+	 */
+	private static class InternKey {
+		private final Abstraction abs;
+
+		public InternKey(Abstraction abs) {
+			this.abs = abs;
+		}
+
+		@Override
+		public int hashCode() {
+			return abs.hashCode();
+		}
+
+		@Override
+		public boolean equals(Object obj) {
+			if (this == obj)
+				return true;
+			if (obj == null || !(obj instanceof InternKey))
+				return false;
+			return abs.equalsWithCallEdges(((InternKey) obj).abs);
+		}
+	}
+
+	private final ConcurrentMap<InternKey, Abstraction> pool =
+			new ConcurrentHashMap<InternKey, Abstraction>();
+
+	/**
+	 * Gets the canonical instance of the given abstraction. If there is none
+	 * yet, the given abstraction becomes the canonical one.
+	 * @param abs The abstraction to intern
+	 * @return The canonical instance that is equal to the given abstraction
+	 */
+	public Abstraction intern(Abstraction abs) {
+		if (abs == null || abs.getClass() != Abstraction.class)
+			return abs;
+		Abstraction canonical = pool.putIfAbsent(new InternKey(abs), abs);
+		return canonical == null ? abs : canonical;
+	}
+
+	/**
+	 * Gets the number of canonical abstractions in this pool
+	 * @return The number of canonical abstractions in this pool
+	 */
+	public int size() {
+		return pool.size();
+	}
+
+}
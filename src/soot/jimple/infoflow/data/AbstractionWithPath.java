@@ -14,44 +14,61 @@ import soot.jimple.Stmt;
  *
  */
 public class AbstractionWithPath extends Abstraction {
-	private final List<Unit> propagationPath;
+	
+	/**
+	 * The propagation path. It is shared with the abstractions this one has
+	 * been derived from and is null if the path is empty.
+	 */
+	private PropagationPath propagationPath;
 
 	public AbstractionWithPath(Value taint, Value src, Stmt srcContext,
 			boolean exceptionThrown, boolean isActive, Unit activationUnit){
 		super(taint, src, srcContext, exceptionThrown, isActive, activationUnit);
-		propagationPath = new ArrayList<Unit>();
+		propagationPath = null;
 	}
 	
 
 	protected AbstractionWithPath(Value taint, AbstractionWithPath src){
 		super(taint, src);
-		if (src == null)
-			propagationPath = new ArrayList<Unit>();
-		else
-			propagationPath = new ArrayList<Unit>(src.propagationPath);
+		propagationPath = src == null ? null : src.propagationPath;
 	}
 
 	protected AbstractionWithPath(AccessPath p, AbstractionWithPath src){
 		super(p, src);
-		if (src == null)
-			propagationPath = new ArrayList<Unit>();
-		else
-			propagationPath = new ArrayList<Unit>(src.getPropagationPath());		
+		propagationPath = src == null ? null : src.propagationPath;
 	}
 	
 	public AbstractionWithPath(AccessPath p, Value src, Stmt srcContext, boolean exceptionThrown,
 			boolean isActive, List<Unit> path){
 		super(p, src, srcContext, exceptionThrown, isActive);
-		propagationPath = new ArrayList<Unit>(path);
+		propagationPath = null;
+		for (Unit u : path)
+			propagationPath = new PropagationPath(propagationPath, u);
 	}
 
+	/**
+	 * Gets the propagation path of this abstraction. The list is built anew
+	 * on every call, so this should only be done when reporting a result.
+	 * @return The statements on the propagation path, starting at the source
+	 */
 	public List<Unit> getPropagationPath() {
+		if (propagationPath == null)
+			return new ArrayList<Unit>();
+		return propagationPath.toList();
+	}
+	
+	/**
+	 * Gets the propagation path of this abstraction without building a list
+	 * @return The propagation path of this abstraction, or null if the path
+	 * is empty
+	 */
+	public PropagationPath getPath() {
 		return this.propagationPath;
 	}
 
 	public List<String> getPropagationPathAsString(InterproceduralCFG<Unit, SootMethod> cfg) {
 		List<String> res = new ArrayList<String>();
-		for (Unit u : this.propagationPath)
+		for (Unit u : getPropagationPath())
 			res.add(cfg.getMethodOf(u) + ": " + u.toString());
 		return res;
 	}
@@ -63,7 +80,7 @@ public class AbstractionWithPath extends Abstraction {
 	 * @return This object
 	 */
 	public AbstractionWithPath addPathElement(Unit element) {
-		this.propagationPath.add(element);
+		this.propagationPath = new PropagationPath(this.propagationPath, element);
 		return this;
 	}
 
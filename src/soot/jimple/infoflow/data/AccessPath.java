@@ -1,10 +1,6 @@
 package soot.jimple.infoflow.data;
 
 import java.util.Arrays;
-import java.util.Collection;
-import java.util.Collections;
-import java.util.LinkedList;
-import java.util.List;
 
 import soot.Local;
 import soot.SootField;
@@ -15,7 +11,9 @@ import soot.jimple.infoflow.Infoflow;
 /**
  * This class represents the taint, containing a base value and a list of fields (length is bounded by Infoflow.ACCESSPATHLENGTH)
  *  
- *
+ * Access paths are immutable. clone() therefore returns the access path itself. Access paths can only be
+ * obtained from the {@link AccessPathStore}, which hands out one instance per base value and fields, so
+ * equals() is an identity check.
  */
 public class AccessPath implements Cloneable {
 	
@@ -28,58 +26,61 @@ public class AccessPath implements Cloneable {
 	 * list of fields, either they are based on a concrete @value or they indicate a static field
 	 */
 	private final SootField[] fields;
-	private int hashCode = 0;
+	private final int hashCode;
 
-	public AccessPath(Value val){
-		this(val, Collections.<SootField>emptyList());
+	AccessPath(Value val){
+		this(val, AccessPathStore.EMPTY_FIELDS);
 	}
 	
-	protected AccessPath(Value val, Collection<SootField> appendingFields){
-		assert (val == null && appendingFields != null && !appendingFields.isEmpty())
+	/**
+	 * Creates a new access path. The field array is interned, so equal field
+	 * sequences share the same array.
+	 * @param val The tainted value
+	 * @param appendingFields The fields to append to the ones of the given
+	 * value. The array is not modified.
+	 */
+	AccessPath(Value val, SootField[] appendingFields){
+		assert (val == null && appendingFields != null && appendingFields.length > 0)
 		 	|| val instanceof Local
 			|| val instanceof InstanceFieldRef
 			|| val instanceof StaticFieldRef;
 
-		List<SootField> fields = new LinkedList<SootField>();
+		SootField firstField = null;
 		if(val instanceof StaticFieldRef){
-			StaticFieldRef ref = (StaticFieldRef) val;
-			if(fields.size()< Infoflow.getAccessPathLength())
-				fields.add(ref.getField());
+			firstField = ((StaticFieldRef) val).getField();
 			value = null;
 		}
 		else if(val instanceof InstanceFieldRef){
 			InstanceFieldRef ref = (InstanceFieldRef) val;
 			value = ref.getBase();
-			if(fields.size() < Infoflow.getAccessPathLength())
-				fields.add(ref.getField());
+			firstField = ref.getField();
 		}
 		else
 			value = val;
 
-		int cnt = fields.size();
-		for (SootField field : appendingFields)
-			if (cnt < Infoflow.getAccessPathLength()) {
-				fields.add(field);
-				cnt++;
-			}
-			else
-				break;
-		this.fields = fields.toArray(new SootField[fields.size()]);
-	}
-	
-	public AccessPath(SootField staticfield){
-		this.fields = new SootField[] { staticfield };
-		value = null;
+		if (firstField == null
+				&& appendingFields.length <= Infoflow.getAccessPathLength())
+			this.fields = AccessPathStore.v().internFields(appendingFields);
+		else {
+			int maxLength = Infoflow.getAccessPathLength();
+			int length = Math.min(maxLength, appendingFields.length + (firstField == null ? 0 : 1));
+			SootField[] fields = new SootField[length];
+			int cnt = 0;
+			if (firstField != null && cnt < maxLength)
+				fields[cnt++] = firstField;
+			for (int i = 0; cnt < length; i++)
+				fields[cnt++] = appendingFields[i];
+			this.fields = AccessPathStore.v().internFields(fields);
+		}
+		this.hashCode = computeHashCode();
 	}
 	
-	public AccessPath(Value base, SootField field){
-		assert base instanceof Local;
-		
-		value = base;
-		List<SootField> fields = new LinkedList<SootField>();
-		if(fields.size() < Infoflow.getAccessPathLength())
-			fields.add(field);
-		this.fields = fields.toArray(new SootField[fields.size()]);
+	private int computeHashCode() {
+		final int prime = 31;
+		int hash = 1;
+		hash = prime * hash + ((fields == null) ? 0 : Arrays.hashCode(fields));
+		hash = prime * hash + ((value == null) ? 0 : value.hashCode());
+		return hash;
 	}
 		
 	public Value getPlainValue() {
@@ -105,37 +106,49 @@ public class AccessPath implements Cloneable {
 		return fields[0];
 	}
 	
-	protected SootField[] getFields(){
+	/**
+	 * Gets the fields of this access path. The array is interned, so access
+	 * paths with the same fields return the same array. It is shared and must
+	 * not be modified.
+	 * @return The fields of this access path
+	 */
+	public SootField[] getFields(){
 		return fields;
 	}
 	
 	@Override
 	public int hashCode() {
-		if (hashCode == 0) {
-			final int prime = 31;
-			this.hashCode = 1;
-			this.hashCode = prime * this.hashCode + ((fields == null) ? 0 : Arrays.hashCode(fields));
-			this.hashCode = prime * this.hashCode + ((value == null) ? 0 : value.hashCode());
-		}
 		return this.hashCode;
 	}
 
+	/**
+	 * Access paths are canonical, so two of them are equal only if they are
+	 * the same object
+	 */
 	@Override
 	public boolean equals(Object obj) {
-		if (super.equals(obj))
+		return this == obj;
+	}
+
+	/**
+	 * Checks whether this access path has the same base value and fields as
+	 * the given one. This is how the {@link AccessPathStore} finds the
+	 * canonical instance.
+	 * @param other The access path to compare with
+	 * @return True if both access paths denote the same value, otherwise
+	 * false
+	 */
+	boolean sameValueAndFields(AccessPath other) {
+		if (this == other)
 			return true;
-		if (obj == null || !(obj instanceof AccessPath))
-			return false;
-		AccessPath other = (AccessPath) obj;
-		if (!Arrays.equals(fields, other.fields))
+		if (this.hashCode != other.hashCode)
 			return false;
-		if (value == null) {
-			if (other.value != null)
-				return false;
-		} else if (!value.equals(other.value))
+		// Field arrays are interned, so this is usually an identity check
+		if (fields != other.fields && !Arrays.equals(fields, other.fields))
 			return false;
-		
-		return true;
+		if (value == null)
+			return other.value == null;
+		return value.equals(other.value);
 	}
 	
 	public boolean isStaticFieldRef(){
@@ -172,17 +185,18 @@ public class AccessPath implements Cloneable {
 	/**
 	 * value val gets new base, fields are preserved.
 	 * @param val
-	 * @return
+	 * @return The canonical access path with the new base
 	 */
 	public AccessPath copyWithNewValue(Value val){
-		return new AccessPath(val, Arrays.asList(this.fields));
+		return AccessPathStore.v().createAccessPath(val, this.fields);
 	}
 	
+	/**
+	 * Access paths are immutable, so there is no need to actually copy them
+	 */
 	@Override
 	public AccessPath clone(){
-		AccessPath a = new AccessPath(value, Arrays.asList(fields));
-		assert a.equals(this);
-		return a;
+		return this;
 	}
 
 }
@@ -0,0 +1,194 @@
+package soot.jimple.infoflow.data;
+
+import java.lang.ref.WeakReference;
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import soot.Scene;
+import soot.SootField;
+import soot.Value;
+
+/**
+ * Store for canonical access paths. This is the only way to obtain access
+ * paths. Access paths with the same base value and fields obtained from this
+ * store are the same object, and equal field sequences share one array, so
+ * comparing access paths is an identity check.
+ *
+ * Like Soot itself, the store is global. Its entries belong to one Scene.
+ * Infoflow binds the store to the Scene at the start of every analysis run
+ * and clears it afterwards, even if the run fails. Code that uses access
+ * paths outside of an analysis run binds the store itself.
+ */
+public class AccessPathStore {
+
+	/**
+	 * The field array of all access paths without fields
+	 */
+	static final SootField[] EMPTY_FIELDS = new SootField[0];
+
+	private static final AccessPathStore instance = new AccessPathStore();
+
+	/**
+	 * Key that compares field arrays by their contents
+	 */
+	private static class FieldsKey {
+		private final SootField[] fields;
+		private final int hashCode;
+
+		public FieldsKey(SootField[] fields) {
+			this.fields = fields;
+			this.hashCode = Arrays.hashCode(fields);
+		}
+
+		@Override
+		public int hashCode() {
+			return hashCode;
+		}
+
+		@Override
+		public boolean equals(Object obj) {
+			if (this == obj)
+				return true;
+			if (obj == null || !(obj instanceof FieldsKey))
+				return false;
+			return Arrays.equals(fields, ((FieldsKey) obj).fields);
+		}
+	}
+
+	/**
+	 * Key that compares access paths by their base values and fields
+	 */
+	private static class PathKey {
+		private final AccessPath ap;
+
+		public PathKey(AccessPath ap) {
+			this.ap = ap;
+		}
+
+		@Override
+		public int hashCode() {
+			return ap.hashCode();
+		}
+
+		@Override
+		public boolean equals(Object obj) {
+			if (this == obj)
+				return true;
+			if (obj == null || !(obj instanceof PathKey))
+				return false;
+			return ap.sameValueAndFields(((PathKey) obj).ap);
+		}
+	}
+
+	private final ConcurrentMap<FieldsKey, SootField[]> fieldArrays =
+			new ConcurrentHashMap<FieldsKey, SootField[]>();
+	private final ConcurrentMap<PathKey, AccessPath> accessPaths =
+			new ConcurrentHashMap<PathKey, AccessPath>();
+
+	/**
+	 * The Scene to which the current entries belong. The reference is weak,
+	 * so the store does not keep the Scene alive.
+	 */
+	private WeakReference<Scene> scene = new WeakReference<Scene>(null);
+
+	private AccessPathStore() {
+	}
+
+	/**
+	 * Gets the global access path store
+	 * @return The global access path store
+	 */
+	public static AccessPathStore v() {
+		return instance;
+	}
+
+	/**
+	 * Binds this store to the given Scene. If the store currently holds the
+	 * access paths of another Scene, they are dropped. The store does not
+	 * check the Scene when access paths are requested, so it must be bound
+	 * again whenever Soot is reset.
+	 * @param scene The Scene for which access paths are requested from now on
+	 */
+	public synchronized void bindToScene(Scene scene) {
+		if (this.scene.get() != scene) {
+			clear();
+			this.scene = new WeakReference<Scene>(scene);
+		}
+	}
+
+	/**
+	 * Gets the canonical array for the given sequence of fields
+	 * @param fields The fields. The array must not be modified afterwards.
+	 * @return The canonical array with the same fields
+	 */
+	SootField[] internFields(SootField[] fields) {
+		if (fields.length == 0)
+			return EMPTY_FIELDS;
+		SootField[] canonical = fieldArrays.putIfAbsent(new FieldsKey(fields), fields);
+		return canonical == null ? fields : canonical;
+	}
+
+	/**
+	 * Gets the canonical access path for the given value
+	 * @param val The tainted value
+	 * @return The canonical access path for the given value
+	 */
+	public AccessPath getAccessPath(Value val) {
+		return intern(new AccessPath(val));
+	}
+
+	/**
+	 * Gets the canonical access path for the given value with the given
+	 * fields appended
+	 * @param val The tainted value
+	 * @param appendingFields The fields to append to the ones of the given
+	 * value. The array is copied, so the caller may modify it afterwards.
+	 * @return The canonical access path
+	 */
+	public AccessPath getAccessPath(Value val, SootField[] appendingFields) {
+		return createAccessPath(val, appendingFields.clone());
+	}
+
+	/**
+	 * Gets the canonical access path for the given value with the given
+	 * fields appended without copying the fields
+	 * @param val The tainted value
+	 * @param appendingFields The fields to append to the ones of the given
+	 * value. The array must not be modified afterwards.
+	 * @return The canonical access path
+	 */
+	AccessPath createAccessPath(Value val, SootField[] appendingFields) {
+		return intern(new AccessPath(val, appendingFields));
+	}
+
+	/**
+	 * Gets the canonical instance for the base value and fields of the given
+	 * access path. This is only needed for access paths that were obtained
+	 * before the store was cleared.
+	 * @param ap The access path to intern
+	 * @return The canonical access path with the same base value and fields
+	 */
+	public AccessPath intern(AccessPath ap) {
+		AccessPath canonical = accessPaths.putIfAbsent(new PathKey(ap), ap);
+		return canonical == null ? ap : canonical;
+	}
+
+	/**
+	 * Gets the number of canonical access paths in this store
+	 * @return The number of canonical access paths
+	 */
+	public int size() {
+		return accessPaths.size();
+	}
+
+	/**
+	 * Removes all access paths and field arrays from this store. Access paths
+	 * created before remain valid, but are no longer shared with new ones.
+	 */
+	public void clear() {
+		accessPaths.clear();
+		fieldArrays.clear();
+	}
+
+}
@@ -0,0 +1,68 @@
+package soot.jimple.infoflow.data;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import soot.Unit;
+
+/**
+ * Immutable path of statements along which a taint has been propagated. Each
+ * path only points back to its predecessor, so paths that have been extended
+ * from the same path share their common prefix and extending a path takes
+ * constant time.
+ */
+public final class PropagationPath {
+
+	private final Unit unit;
+	private final PropagationPath predecessor;
+	private final int length;
+
+	/**
+	 * Creates a new path by appending a statement to an existing path
+	 * @param predecessor The path to extend, or null to start a new path
+	 * @param unit The statement to append
+	 */
+	public PropagationPath(PropagationPath predecessor, Unit unit) {
+		this.unit = unit;
+		this.predecessor = predecessor;
+		this.length = predecessor == null ? 1 : predecessor.length + 1;
+	}
+
+	/**
+	 * Gets the last statement on this path
+	 * @return The last statement on this path
+	 */
+	public Unit getUnit() {
+		return this.unit;
+	}
+
+	/**
+	 * Gets the path without its last statement
+	 * @return The path without its last statement, or null if this path only
+	 * consists of a single statement
+	 */
+	public PropagationPath getPredecessor() {
+		return this.predecessor;
+	}
+
+	/**
+	 * Gets the number of statements on this path
+	 * @return The number of statements on this path
+	 */
+	public int size() {
+		return this.length;
+	}
+
+	/**
+	 * Builds a list of all statements on this path
+	 * @return The statements on this path, starting with the first one
+	 */
+	public List<Unit> toList() {
+		Unit[] units = new Unit[length];
+		for (PropagationPath element = this; element != null; element = element.predecessor)
+			units[element.length - 1] = element.unit;
+		return new ArrayList<Unit>(Arrays.asList(units));
+	}
+
+}
@@ -0,0 +1,100 @@
+package soot.jimple.infoflow.data;
+
+import java.util.ArrayDeque;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.IdentityHashMap;
+import java.util.Set;
+
+/**
+ * Node in the graph that records from which sources a merged fact can
+ * originate. Every source has a leaf node carrying its number. Every other
+ * node belongs to one fact at one statement in one calling context and
+ * points to the nodes of the facts it was derived from. The sources of a
+ * fact are the leaves that can be reached from its node.
+ *
+ * New predecessors can be added while the analysis is running, so the set
+ * of sources is only complete once the solvers have reached their fixpoint.
+ */
+public class SourceSet {
+
+	private static final SourceSet[] NO_PREDECESSORS = new SourceSet[0];
+
+	/**
+	 * The number of the source if this is a leaf node, otherwise -1
+	 */
+	private final int sourceIndex;
+	private SourceSet[] predecessors = NO_PREDECESSORS;
+
+	/**
+	 * Creates a new node without any sources
+	 */
+	public SourceSet() {
+		this.sourceIndex = -1;
+	}
+
+	/**
+	 * Creates a new leaf node for the source with the given number
+	 * @param sourceIndex The number of the source
+	 */
+	public SourceSet(int sourceIndex) {
+		if (sourceIndex < 0)
+			throw new IllegalArgumentException("Source numbers must not be negative");
+		this.sourceIndex = sourceIndex;
+	}
+
+	/**
+	 * Records that the fact owning this node can be derived from the fact
+	 * owning the given node
+	 * @param predecessor The node of the fact from which the new fact was
+	 * derived
+	 * @return True if the predecessor is new, false if it was already known
+	 */
+	public synchronized boolean addPredecessor(SourceSet predecessor) {
+		if (predecessor == null || predecessor == this)
+			return false;
+		for (SourceSet pred : predecessors)
+			if (pred == predecessor)
+				return false;
+		SourceSet[] newPreds = new SourceSet[predecessors.length + 1];
+		System.arraycopy(predecessors, 0, newPreds, 0, predecessors.length);
+		newPreds[predecessors.length] = predecessor;
+		predecessors = newPreds;
+		return true;
+	}
+
+	private synchronized SourceSet[] getPredecessors() {
+		return predecessors;
+	}
+
+	/**
+	 * Gets the number of the source if this is a leaf node
+	 * @return The number of the source, or -1 if this is no leaf node
+	 */
+	public int getSourceIndex() {
+		return sourceIndex;
+	}
+
+	/**
+	 * Computes the numbers of all sources reachable from this node
+	 * @return A bitset in which the numbers of all sources are set
+	 */
+	public BitSet resolve() {
+		BitSet sources = new BitSet();
+		Set<SourceSet> visited = Collections.newSetFromMap(new IdentityHashMap<SourceSet, Boolean>());
+		Deque<SourceSet> worklist = new ArrayDeque<SourceSet>();
+		worklist.push(this);
+		visited.add(this);
+		while (!worklist.isEmpty()) {
+			SourceSet node = worklist.pop();
+			if (node.sourceIndex >= 0)
+				sources.set(node.sourceIndex);
+			for (SourceSet pred : node.getPredecessors())
+				if (visited.add(pred))
+					worklist.push(pred);
+		}
+		return sources;
+	}
+
+}
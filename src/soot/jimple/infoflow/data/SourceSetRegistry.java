@@ -0,0 +1,168 @@
+package soot.jimple.infoflow.data;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import soot.Unit;
+import soot.Value;
+import soot.jimple.Stmt;
+
+/**
+ * Registry for merging facts across sources. The sources are numbered, and
+ * facts that only differ in their sources are represented by a single fact
+ * per calling context and statement whose {@link SourceSet} records all of
+ * its sources. The solvers therefore propagate an access path only once per
+ * context, regardless of how many sources reach it.
+ *
+ * Facts are only merged within one calling context, i.e. for the same fact
+ * at the start of the method. A fact that enters a callee is bound to the
+ * node of the caller's fact at the call site (see
+ * {@link Abstraction#deriveCalleeEntry()}), so a callee that is called with
+ * facts from different sources is analyzed once for each of them and its
+ * results only flow back to the caller they belong to.
+ *
+ * The registry is shared by all solvers working on the same analysis and is
+ * safe to use from multiple threads.
+ */
+public class SourceSetRegistry {
+
+	/**
+	 * Key identifying a fact at a statement in a calling context, regardless
+	 * of its sources
+	 */
+	private static class FactKey {
+		private final Abstraction contextFact;
+		private final Unit unit;
+		private final Abstraction fact;
+
+		public FactKey(Abstraction contextFact, Unit unit, Abstraction fact) {
+			this.contextFact = contextFact;
+			this.unit = unit;
+			this.fact = fact;
+		}
+
+		@Override
+		public int hashCode() {
+			return 31 * (31 * contextFact.hashCode() + unit.hashCode()) + fact.hashCode();
+		}
+
+		@Override
+		public boolean equals(Object obj) {
+			if (this == obj)
+				return true;
+			if (obj == null || !(obj instanceof FactKey))
+				return false;
+			FactKey other = (FactKey) obj;
+			return unit.equals(other.unit) && fact.equals(other.fact)
+					&& contextFact.equals(other.contextFact);
+		}
+	}
+
+	private final ConcurrentMap<FactKey, SourceSet> nodes =
+			new ConcurrentHashMap<FactKey, SourceSet>();
+
+	/**
+	 * The leaf nodes of the sources. New sources are only numbered while
+	 * holding the lock on this registry, so that the numbers match the
+	 * indices in the lists below.
+	 */
+	private final ConcurrentMap<Stmt, SourceSet> sourceNodes =
+			new ConcurrentHashMap<Stmt, SourceSet>();
+	private final List<Value> sources = new ArrayList<Value>();
+	private final List<Stmt> sourceContexts = new ArrayList<Stmt>();
+
+	/**
+	 * Gets the leaf node for the given source. The source is numbered when it
+	 * is seen for the first time.
+	 * @param source The source value
+	 * @param sourceContext The statement containing the source
+	 * @return The leaf node for the given source
+	 */
+	public SourceSet getSourceNode(Value source, Stmt sourceContext) {
+		SourceSet node = sourceNodes.get(sourceContext);
+		if (node != null)
+			return node;
+		synchronized (this) {
+			node = sourceNodes.get(sourceContext);
+			if (node == null) {
+				node = new SourceSet(sources.size());
+				sources.add(source);
+				sourceContexts.add(sourceContext);
+				sourceNodes.put(sourceContext, node);
+			}
+			return node;
+		}
+	}
+
+	/**
+	 * Gets the source value with the given number
+	 * @param index The number of the source
+	 * @return The source value
+	 */
+	public synchronized Value getSource(int index) {
+		return sources.get(index);
+	}
+
+	/**
+	 * Gets the statement containing the source with the given number
+	 * @param index The number of the source
+	 * @return The statement containing the source
+	 */
+	public synchronized Stmt getSourceContext(int index) {
+		return sourceContexts.get(index);
+	}
+
+	/**
+	 * Gets the number of sources seen so far
+	 * @return The number of sources
+	 */
+	public synchronized int getSourceCount() {
+		return sources.size();
+	}
+
+	/**
+	 * Registers a fact that is propagated to the given statement. All facts
+	 * that are equal at the same statement in the same calling context share
+	 * one node, to which the node of the given fact is added as a
+	 * predecessor.
+	 * @param contextFact The fact at the start of the method, i.e. the
+	 * source of the path edge along which the fact is propagated
+	 * @param target The statement to which the fact is propagated
+	 * @param fact The fact to propagate
+	 * @return The fact carrying the shared node for the given statement and
+	 * the calling context of the given start fact. This is the given fact if
+	 * it already carries that node.
+	 */
+	public Abstraction register(Abstraction contextFact, Unit target, Abstraction fact) {
+		SourceSet predecessor = fact.getSourceSet();
+		if (predecessor == null)
+			return fact;
+
+		// Facts returned from a callee still belong to the callee's context
+		fact = fact.deriveWithCallingContext(contextFact.getCallingContext());
+
+		FactKey key = new FactKey(contextFact, target, fact);
+		SourceSet node = nodes.get(key);
+		if (node == null) {
+			SourceSet newNode = new SourceSet();
+			node = nodes.putIfAbsent(key, newNode);
+			if (node == null)
+				node = newNode;
+		}
+		if (node == predecessor)
+			return fact;
+		node.addPredecessor(predecessor);
+		return fact.deriveWithSourceSet(node);
+	}
+
+	/**
+	 * Gets the number of facts for which a node has been registered
+	 * @return The number of registered facts
+	 */
+	public int size() {
+		return nodes.size();
+	}
+
+}
@@ -0,0 +1,188 @@
+package soot.jimple.infoflow.handlers;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import soot.jimple.infoflow.InfoflowResults.SinkInfo;
+import soot.jimple.infoflow.InfoflowResults.SourceInfo;
+
+/**
+ * Passes new results on to a set of handlers on a separate thread, so that
+ * slow handlers do not hold up the solvers. Results are buffered in a queue
+ * of fixed size. If the handlers cannot keep up and the queue is full, new
+ * results are not passed on to them, but they are still contained in the
+ * results given to the {@link ResultsAvailableHandler}s at the end of the
+ * analysis. Results that arrive after the dispatcher has been shut down, or
+ * that are still queued when the shutdown times out, are not passed on
+ * either. All of these are counted as dropped.
+ */
+public class AsyncResultDispatcher implements ResultFoundHandler {
+
+	private final Logger logger = LoggerFactory.getLogger(getClass());
+
+	/**
+	 * A result waiting to be passed on to the handlers
+	 */
+	private static class PendingResult {
+		private final SinkInfo sink;
+		private final SourceInfo source;
+
+		public PendingResult(SinkInfo sink, SourceInfo source) {
+			this.sink = sink;
+			this.source = source;
+		}
+	}
+
+	/**
+	 * Marker that tells the dispatcher thread to stop
+	 */
+	private static final PendingResult STOP = new PendingResult(null, null);
+
+	private final List<ResultFoundHandler> handlers;
+	private final BlockingQueue<PendingResult> queue;
+	private final Thread thread;
+	private final AtomicLong droppedResults = new AtomicLong();
+
+	/**
+	 * Threads reporting results hold the read lock while they check whether
+	 * the dispatcher has been stopped and queue their result. Setting the
+	 * flag requires the write lock, so no result can be queued behind the
+	 * stop marker.
+	 */
+	private final ReadWriteLock stopLock = new ReentrantReadWriteLock();
+	private boolean stopped = false;
+
+	/**
+	 * Set when the shutdown has timed out. The dispatcher thread then stops
+	 * passing on results and leaves the rest of the queue to be dropped.
+	 */
+	private volatile boolean abandoned = false;
+
+	/**
+	 * Creates a new instance of the {@link AsyncResultDispatcher} class and
+	 * starts its thread
+	 * @param handlers The handlers to which to pass the results
+	 * @param capacity The maximum number of results waiting to be passed on
+	 */
+	public AsyncResultDispatcher(Collection<ResultFoundHandler> handlers, int capacity) {
+		this.handlers = new CopyOnWriteArrayList<ResultFoundHandler>(handlers);
+		this.queue = new ArrayBlockingQueue<PendingResult>(Math.max(1, capacity));
+		this.thread = new Thread("Infoflow result dispatcher") {
+
+			@Override
+			public void run() {
+				dispatchLoop();
+			}
+
+		};
+		this.thread.setDaemon(true);
+		this.thread.start();
+	}
+
+	@Override
+	public void onResultFound(SinkInfo sink, SourceInfo source) {
+		boolean queued = false;
+		stopLock.readLock().lock();
+		try {
+			queued = !stopped && queue.offer(new PendingResult(sink, source));
+		}
+		finally {
+			stopLock.readLock().unlock();
+		}
+		if (!queued)
+			droppedResults.incrementAndGet();
+	}
+
+	private void dispatchLoop() {
+		while (!abandoned) {
+			PendingResult result;
+			try {
+				result = queue.take();
+			}
+			catch (InterruptedException ex) {
+				return;
+			}
+			if (result == STOP)
+				return;
+			for (ResultFoundHandler handler : handlers)
+				try {
+					handler.onResultFound(result.sink, result.source);
+				}
+				catch (RuntimeException ex) {
+					logger.error("Result handler failed", ex);
+				}
+		}
+	}
+
+	/**
+	 * Stops accepting new results and waits until all queued results have
+	 * been passed on to the handlers
+	 * @param timeout The maximum time to wait in milliseconds
+	 * @return True if all queued results have been passed on, false if the
+	 * timeout elapsed before
+	 * @throws InterruptedException Thrown if the current thread is
+	 * interrupted while waiting
+	 */
+	public boolean shutdown(long timeout) throws InterruptedException {
+		stopLock.writeLock().lock();
+		try {
+			stopped = true;
+		}
+		finally {
+			stopLock.writeLock().unlock();
+		}
+
+		long deadline = System.currentTimeMillis() + timeout;
+		boolean completed = true;
+		while (!queue.offer(STOP, Math.max(1, deadline - System.currentTimeMillis()), TimeUnit.MILLISECONDS))
+			if (System.currentTimeMillis() >= deadline) {
+				completed = false;
+				break;
+			}
+		if (completed) {
+			thread.join(Math.max(1, deadline - System.currentTimeMillis()));
+			completed = !thread.isAlive();
+		}
+		if (!completed) {
+			abandoned = true;
+			thread.interrupt();
+			dropQueuedResults();
+		}
+
+		if (droppedResults.get() > 0)
+			logger.warn("{} results were not passed on to the result handlers because they could not keep up",
+					droppedResults.get());
+		return completed;
+	}
+
+	/**
+	 * Removes all results from the queue and counts them as dropped
+	 */
+	private void dropQueuedResults() {
+		PendingResult result;
+		while ((result = queue.poll()) != null)
+			if (result != STOP)
+				droppedResults.incrementAndGet();
+	}
+
+	/**
+	 * Gets the number of results that have not been passed on to the
+	 * handlers because the queue was full, because they arrived after the
+	 * shutdown or because the shutdown timed out before they were passed on
+	 * @return The number of dropped results
+	 */
+	public long getDroppedResultCount() {
+		return droppedResults.get();
+	}
+
+}
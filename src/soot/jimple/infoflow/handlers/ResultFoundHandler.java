@@ -0,0 +1,20 @@
+package soot.jimple.infoflow.handlers;
+
+import soot.jimple.infoflow.InfoflowResults.SinkInfo;
+import soot.jimple.infoflow.InfoflowResults.SourceInfo;
+
+/**
+ * Handler that is called for every new information flow while the analysis
+ * is still running
+ */
+public interface ResultFoundHandler {
+
+	/**
+	 * Callback that is invoked when a new connection between a source and a
+	 * sink has been found
+	 * @param sink The sink that has been reached
+	 * @param source The source from which the sink has been reached
+	 */
+	public void onResultFound(SinkInfo sink, SourceInfo source);
+
+}
@@ -0,0 +1,112 @@
+package soot.jimple.infoflow.heros;
+
+import heros.solver.CountingThreadPoolExecutor;
+
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Base class for the executors of the IFDS solvers that can be cancelled
+ * while there is still work in the queue.
+ *
+ * Every task is counted from the moment it is submitted until it has
+ * finished. Once the executor has been aborted through {@link #shutdownNow()},
+ * queued tasks are dropped, new tasks are silently discarded and everyone
+ * waiting in {@link #awaitCompletion()} is released, even though the dropped
+ * tasks never finish.
+ */
+public abstract class CancellableExecutor extends CountingThreadPoolExecutor {
+
+	private final AtomicLong numRunningTasks = new AtomicLong(0);
+	private final Object completionLock = new Object();
+	private volatile boolean aborted = false;
+
+	public CancellableExecutor(int corePoolSize, int maximumPoolSize, long keepAliveTime,
+			TimeUnit unit, BlockingQueue<Runnable> workQueue) {
+		super(corePoolSize, maximumPoolSize, keepAliveTime, unit, workQueue);
+	}
+
+	/**
+	 * Records that a new task has been submitted
+	 */
+	protected void taskStarted() {
+		numRunningTasks.incrementAndGet();
+	}
+
+	/**
+	 * Records that a task has finished and wakes up all threads waiting for
+	 * completion if this was the last one.
+	 */
+	protected void taskFinished() {
+		if (numRunningTasks.decrementAndGet() == 0)
+			synchronized (completionLock) {
+				completionLock.notifyAll();
+			}
+	}
+
+	/**
+	 * Aborts this executor. Queued tasks are dropped, new ones are discarded
+	 * and all threads waiting for completion are released.
+	 */
+	@Override
+	public List<Runnable> shutdownNow() {
+		// Tasks that are dropped never finish, so we must release everyone
+		// who is waiting for them, but only once the workers are actually
+		// shut down
+		aborted = true;
+		List<Runnable> dropped = shutdownWorkers();
+		synchronized (completionLock) {
+			completionLock.notifyAll();
+		}
+		return dropped;
+	}
+
+	/**
+	 * Stops all worker threads and drops the tasks that are still queued
+	 * @return The tasks that have been dropped
+	 */
+	protected List<Runnable> shutdownWorkers() {
+		return super.shutdownNow();
+	}
+
+	/**
+	 * Gets whether this executor has been aborted, i.e. whether queued tasks
+	 * have been dropped
+	 * @return True if this executor has been aborted, otherwise false
+	 */
+	public boolean isAborted() {
+		return aborted;
+	}
+
+	/**
+	 * Gets the number of tasks that have been submitted, but not yet finished
+	 * @return The number of outstanding tasks
+	 */
+	public long getNumRunningTasks() {
+		return numRunningTasks.get();
+	}
+
+	@Override
+	public void awaitCompletion() throws InterruptedException {
+		synchronized (completionLock) {
+			while (numRunningTasks.get() > 0 && !aborted)
+				completionLock.wait();
+		}
+	}
+
+	@Override
+	public void awaitCompletion(long timeout, TimeUnit unit) throws InterruptedException {
+		long deadline = System.nanoTime() + unit.toNanos(timeout);
+		synchronized (completionLock) {
+			while (numRunningTasks.get() > 0 && !aborted) {
+				long remaining = deadline - System.nanoTime();
+				if (remaining <= 0)
+					return;
+				TimeUnit.NANOSECONDS.timedWait(completionLock, remaining);
+			}
+		}
+	}
+
+}
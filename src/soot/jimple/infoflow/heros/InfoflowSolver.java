@@ -1,14 +1,22 @@
 package soot.jimple.infoflow.heros;
 
+import heros.EdgeFunction;
 import heros.IFDSTabulationProblem;
 import heros.InterproceduralCFG;
 import heros.edgefunc.EdgeIdentity;
 import heros.solver.CountingThreadPoolExecutor;
 import heros.solver.IFDSSolver;
 import heros.solver.PathEdge;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
 import soot.SootMethod;
 import soot.Unit;
 import soot.jimple.infoflow.data.Abstraction;
+import soot.jimple.infoflow.data.AbstractionPool;
+import soot.jimple.infoflow.data.SourceSetRegistry;
 import soot.jimple.toolkits.ide.JimpleIFDSSolver;
 /**
  * We are subclassing the JimpleIFDSSolver because we need the same executor for both the forward and the backward analysis
@@ -17,6 +25,69 @@ import soot.jimple.toolkits.ide.JimpleIFDSSolver;
  */
 public class InfoflowSolver extends JimpleIFDSSolver<Abstraction, InterproceduralCFG<Unit, SootMethod>> {
 
+	/**
+	 * The source fact and target statement of a path edge
+	 */
+	private static class EdgeSource {
+		private final Abstraction factAtSource;
+		private final Unit target;
+		private final int hashCode;
+
+		public EdgeSource(Abstraction factAtSource, Unit target) {
+			this.factAtSource = factAtSource;
+			this.target = target;
+			this.hashCode = 31 * factAtSource.hashCode() + target.hashCode();
+		}
+
+		@Override
+		public int hashCode() {
+			return hashCode;
+		}
+
+		@Override
+		public boolean equals(Object obj) {
+			if (this == obj)
+				return true;
+			if (obj == null || !(obj instanceof EdgeSource))
+				return false;
+			EdgeSource other = (EdgeSource) obj;
+			return target.equals(other.target) && factAtSource.equals(other.factAtSource);
+		}
+	}
+
+	/**
+	 * The facts at the target of all edges this solver has scheduled, by
+	 * source fact and target statement. Both the edges the solver propagates
+	 * itself and injected edges are added here, so every edge is scheduled
+	 * exactly once without locking the jump functions.
+	 */
+	private final ConcurrentMap<EdgeSource, ConcurrentMap<Abstraction, Boolean>> knownEdges =
+			new ConcurrentHashMap<EdgeSource, ConcurrentMap<Abstraction, Boolean>>();
+
+	/**
+	 * The budget shared by all solvers working on the same analysis, or null
+	 * if the analysis is unlimited
+	 */
+	private SolverBudget budget = null;
+
+	/**
+	 * The call graph distance of each method to the nearest sink, or null if
+	 * edges shall not be prioritized
+	 */
+	private Map<SootMethod, Integer> sinkDistances = null;
+
+	/**
+	 * The pool of canonical abstractions shared by all solvers working on the
+	 * same analysis, or null if abstractions shall not be interned
+	 */
+	private AbstractionPool abstractionPool = null;
+
+	/**
+	 * The registry through which facts are merged across sources, or null if
+	 * every source has its own facts
+	 */
+	private SourceSetRegistry sourceSets = null;
+
 	public InfoflowSolver(IFDSTabulationProblem<Unit, Abstraction, SootMethod, InterproceduralCFG<Unit, SootMethod>> problem, boolean dumpResults, CountingThreadPoolExecutor executor) {
 		super(problem, dumpResults);
 		this.executor = executor;
@@ -27,16 +98,139 @@ public class InfoflowSolver extends JimpleIFDSSolver<Abstraction, Interprocedura
 		return executor;
 	}
 
+	@Override
+	protected void scheduleEdgeProcessing(PathEdge<Unit, Abstraction> edge) {
+		// If the analysis has been terminated, there is no point in
+		// scheduling any further work
+		if (executor.isShutdown())
+			return;
+		if (budget != null && !budget.edgeProcessed()) {
+			terminate();
+			return;
+		}
+		// Edges in methods close to a sink are processed first, so the
+		// first flow is found as early as possible
+		if (sinkDistances != null && executor instanceof PriorityExecutor) {
+			Integer distance = sinkDistances.get(icfg.getMethodOf(edge.getTarget()));
+			((PriorityExecutor) executor).setPriority(distance == null
+					? PriorityExecutor.DEFAULT_PRIORITY : distance);
+		}
+		super.scheduleEdgeProcessing(edge);
+	}
+
+	@Override
+	protected void propagate(Abstraction sourceVal, Unit target, Abstraction targetVal,
+			EdgeFunction<IFDSSolver.BinaryDomain> f, Unit relatedCallSite, boolean isUnbalancedReturn) {
+		// The flow functions are done with the new fact, so we can replace
+		// it with its canonical instance before it enters the jump functions.
+		// The sources must be recorded before, since the solver drops facts
+		// it already knows.
+		if (sourceSets != null)
+			targetVal = sourceSets.register(sourceVal, target, targetVal);
+		if (abstractionPool != null)
+			targetVal = abstractionPool.intern(targetVal);
+		// In IFDS, all edge functions are the identity, so the solver only
+		// does something for edges it does not know yet
+		if (!addEdge(sourceVal, target, targetVal))
+			return;
+		super.propagate(sourceVal, target, targetVal, f, relatedCallSite, isUnbalancedReturn);
+	}
+
+	/**
+	 * Records the edge with the given source fact, target statement and
+	 * target fact
+	 * @param factAtSource The fact at the start of the method
+	 * @param target The target statement of the edge
+	 * @param factAtTarget The fact at the target statement
+	 * @return True if the edge is new, false if it has already been recorded
+	 */
+	private boolean addEdge(Abstraction factAtSource, Unit target, Abstraction factAtTarget) {
+		EdgeSource key = new EdgeSource(factAtSource, target);
+		ConcurrentMap<Abstraction, Boolean> facts = knownEdges.get(key);
+		if (facts == null) {
+			ConcurrentMap<Abstraction, Boolean> newFacts = new ConcurrentHashMap<Abstraction, Boolean>();
+			facts = knownEdges.putIfAbsent(key, newFacts);
+			if (facts == null)
+				facts = newFacts;
+		}
+		return facts.putIfAbsent(factAtTarget, Boolean.TRUE) == null;
+	}
+
+	/**
+	 * Sets the pool in which the facts of this solver are interned
+	 * @param abstractionPool The pool to use. Solvers that exchange edges
+	 * should share the same pool.
+	 */
+	public void setAbstractionPool(AbstractionPool abstractionPool) {
+		this.abstractionPool = abstractionPool;
+	}
+
+	/**
+	 * Sets the registry through which facts are merged across sources
+	 * @param sourceSets The registry to use, or null if every source shall
+	 * have its own facts. Solvers that exchange edges should share the same
+	 * registry.
+	 */
+	public void setSourceSetRegistry(SourceSetRegistry sourceSets) {
+		this.sourceSets = sourceSets;
+	}
+
+	/**
+	 * Sets the call graph distances from the methods to the nearest sink.
+	 * If the executor is a {@link PriorityExecutor}, edges in methods closer
+	 * to a sink are processed first.
+	 * @param sinkDistances The distance of each method to the nearest sink
+	 * method. Methods without a path to a sink are not contained.
+	 */
+	public void setSinkDistances(Map<SootMethod, Integer> sinkDistances) {
+		this.sinkDistances = sinkDistances;
+	}
+
+	/**
+	 * Sets the budget that limits the resources this solver may use. When
+	 * the budget is exhausted, the solver terminates.
+	 * @param budget The budget to use. Solvers sharing an executor should
+	 * share the same budget.
+	 */
+	public void setBudget(SolverBudget budget) {
+		this.budget = budget;
+	}
+
+	/**
+	 * Terminates this solver as quickly as possible. Edges still waiting in
+	 * the queue are dropped and no new ones are accepted. Since the executor
+	 * is shared, this also stops all other solvers that use it.
+	 */
+	public void terminate() {
+		executor.shutdownNow();
+	}
+
+	/**
+	 * Injects a new edge into this solver. The edge is scheduled for
+	 * processing exactly once, regardless of how many threads try to inject
+	 * it at the same time.
+	 * @param edge The edge to inject
+	 * @return True if the edge was new and has been scheduled, false if it
+	 * was already known to the solver
+	 */
 	public boolean processEdge(PathEdge<Unit, Abstraction> edge){
+		if (sourceSets != null)
+			edge = new PathEdge<Unit, Abstraction>(edge.factAtSource(), edge.getTarget(),
+					sourceSets.register(edge.factAtSource(), edge.getTarget(), edge.factAtTarget()));
+		if (abstractionPool != null)
+			edge = new PathEdge<Unit, Abstraction>(edge.factAtSource(), edge.getTarget(),
+					abstractionPool.intern(edge.factAtTarget()));
+
 		// We are generating a fact out of thin air here. If we have an
 		// edge <d1,n,d2>, there need not necessarily be a jump function
-		// to <n,d2>.
-		if (!jumpFn.forwardLookup(edge.factAtSource(), edge.getTarget()).containsKey(edge.factAtTarget())) {
-			jumpFn.addFunction(edge.factAtSource(), edge.getTarget(), edge.factAtTarget(),
-					EdgeIdentity.<IFDSSolver.BinaryDomain>v());
-			scheduleEdgeProcessing(edge);
-			return true;
-		}
-		return false;
+		// to <n,d2>. The solver itself may propagate the same edge at the
+		// same time, so only the thread that records the edge first adds
+		// the jump function and schedules it.
+		if (!addEdge(edge.factAtSource(), edge.getTarget(), edge.factAtTarget()))
+			return false;
+		jumpFn.addFunction(edge.factAtSource(), edge.getTarget(), edge.factAtTarget(),
+				EdgeIdentity.<IFDSSolver.BinaryDomain>v());
+		scheduleEdgeProcessing(edge);
+		return true;
 	}
 }
@@ -0,0 +1,83 @@
+package soot.jimple.infoflow.heros;
+
+import java.util.concurrent.PriorityBlockingQueue;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Executor for the IFDS solvers that runs the task with the lowest priority
+ * value first. Tasks with the same priority are run in FIFO order.
+ *
+ * Heros submits its tasks through {@link #execute(Runnable)}, which has no
+ * room for a priority. A solver therefore calls {@link #setPriority(int)}
+ * right before scheduling a task, and the priority applies to all tasks
+ * the current thread submits from then on.
+ */
+public class PriorityExecutor extends SharedQueueExecutor {
+
+	/**
+	 * The priority for tasks from threads that never set one
+	 */
+	public static final int DEFAULT_PRIORITY = Integer.MAX_VALUE;
+
+	private final ThreadLocal<Integer> nextPriority = new ThreadLocal<Integer>() {
+
+		@Override
+		protected Integer initialValue() {
+			return DEFAULT_PRIORITY;
+		}
+
+	};
+	private final AtomicLong sequence = new AtomicLong(0);
+
+	/**
+	 * Wrapper that gives a task its place in the priority queue
+	 */
+	private static class PrioritizedTask implements Runnable, Comparable<PrioritizedTask> {
+		private final Runnable command;
+		private final int priority;
+		private final long sequence;
+
+		public PrioritizedTask(Runnable command, int priority, long sequence) {
+			this.command = command;
+			this.priority = priority;
+			this.sequence = sequence;
+		}
+
+		@Override
+		public void run() {
+			command.run();
+		}
+
+		@Override
+		public int compareTo(PrioritizedTask other) {
+			if (this.priority != other.priority)
+				return this.priority < other.priority ? -1 : 1;
+			if (this.sequence != other.sequence)
+				return this.sequence < other.sequence ? -1 : 1;
+			return 0;
+		}
+	}
+
+	/**
+	 * Creates a new instance of the {@link PriorityExecutor} class
+	 * @param numThreads The number of worker threads to use
+	 */
+	public PriorityExecutor(int numThreads) {
+		super(numThreads, new PriorityBlockingQueue<Runnable>());
+	}
+
+	/**
+	 * Sets the priority for all tasks the current thread submits from now on
+	 * @param priority The priority. Lower values are run first.
+	 */
+	public void setPriority(int priority) {
+		nextPriority.set(priority);
+	}
+
+	@Override
+	public void execute(Runnable command) {
+		super.execute(new PrioritizedTask(command, nextPriority.get(),
+				sequence.getAndIncrement()));
+	}
+
+}
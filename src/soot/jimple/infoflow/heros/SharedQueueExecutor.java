@@ -0,0 +1,60 @@
+package soot.jimple.infoflow.heros;
+
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Executor for the IFDS solvers in which all worker threads take their tasks
+ * from one shared FIFO queue. In contrast to a plain CountingThreadPoolExecutor,
+ * it can be cancelled while there are still tasks in the queue.
+ */
+public class SharedQueueExecutor extends CancellableExecutor {
+
+	/**
+	 * Creates a new instance of the {@link SharedQueueExecutor} class
+	 * @param numThreads The number of worker threads to use
+	 */
+	public SharedQueueExecutor(int numThreads) {
+		// A ThreadPoolExecutor only starts threads beyond its core size when
+		// its queue is full, which never happens for an unbounded queue. We
+		// therefore need all threads to be core threads.
+		this(numThreads, new LinkedBlockingQueue<Runnable>());
+	}
+
+	/**
+	 * Creates a new instance of the {@link SharedQueueExecutor} class that
+	 * uses the given queue
+	 * @param numThreads The number of worker threads to use
+	 * @param workQueue The queue from which the worker threads take their
+	 * tasks. It must not be bounded.
+	 */
+	protected SharedQueueExecutor(int numThreads, BlockingQueue<Runnable> workQueue) {
+		super(Math.max(1, numThreads), Math.max(1, numThreads), 30, TimeUnit.SECONDS,
+				workQueue);
+	}
+
+	@Override
+	public void execute(Runnable command) {
+		if (isAborted())
+			return;
+
+		taskStarted();
+		try {
+			super.execute(command);
+		}
+		catch (RejectedExecutionException ex) {
+			taskFinished();
+			if (!isAborted())
+				throw ex;
+		}
+	}
+
+	@Override
+	protected void afterExecute(Runnable r, Throwable t) {
+		super.afterExecute(r, t);
+		taskFinished();
+	}
+
+}
@@ -0,0 +1,115 @@
+package soot.jimple.infoflow.heros;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Limits on the resources the forward and the backward solver may use
+ * together. The solvers report every edge they schedule. Once one of the
+ * limits has been exceeded, the budget is exhausted and the solvers are
+ * expected to terminate. All limits, including the time limit, are only
+ * checked when an edge is scheduled. A single flow function that takes a
+ * long time can therefore overrun the time limit.
+ */
+public class SolverBudget {
+
+	/**
+	 * The resources that can be limited
+	 */
+	public enum BudgetType {
+		/**
+		 * The wall-clock time since the analysis has been started
+		 */
+		Time,
+
+		/**
+		 * The number of edges processed by all solvers together
+		 */
+		Edges,
+
+		/**
+		 * The amount of heap memory in use
+		 */
+		Memory
+	}
+
+	/**
+	 * Querying the heap usage is more expensive than reading the clock, so we
+	 * only do it every so many edges
+	 */
+	private static final int MEMORY_CHECK_INTERVAL = 1024;
+
+	private final boolean timeLimited;
+	private final long deadline;
+	private final long maxEdges;
+	private final long maxMemory;
+
+	private final AtomicLong processedEdges = new AtomicLong(0);
+	private volatile BudgetType exhausted = null;
+
+	/**
+	 * Creates a new budget. The clock starts running immediately.
+	 * @param maxTime The maximum wall-clock time in milliseconds, or a value
+	 * smaller than one for no limit
+	 * @param maxEdges The maximum number of edges, or a value smaller than one
+	 * for no limit
+	 * @param maxMemory The maximum heap usage in bytes, or a value smaller than
+	 * one for no limit
+	 */
+	public SolverBudget(long maxTime, long maxEdges, long maxMemory) {
+		// System.nanoTime() may be negative, so neither the deadline nor
+		// its sign can tell whether there is a time limit
+		this.timeLimited = maxTime > 0;
+		this.deadline = timeLimited ? System.nanoTime() + maxTime * 1000000L : 0;
+		this.maxEdges = maxEdges;
+		this.maxMemory = maxMemory;
+	}
+
+	/**
+	 * Records that a new edge is about to be processed and checks whether the
+	 * budget still allows for it
+	 * @return True if the edge may be processed, false if the budget is
+	 * exhausted
+	 */
+	public boolean edgeProcessed() {
+		if (exhausted != null)
+			return false;
+
+		long edges = processedEdges.incrementAndGet();
+		if (maxEdges > 0 && edges > maxEdges)
+			exhausted = BudgetType.Edges;
+		else if (timeLimited && System.nanoTime() - deadline > 0)
+			exhausted = BudgetType.Time;
+		else if (maxMemory > 0 && edges % MEMORY_CHECK_INTERVAL == 0) {
+			Runtime runtime = Runtime.getRuntime();
+			if (runtime.totalMemory() - runtime.freeMemory() > maxMemory)
+				exhausted = BudgetType.Memory;
+		}
+		return exhausted == null;
+	}
+
+	/**
+	 * Gets whether one of the limits has been exceeded
+	 * @return True if the budget is exhausted, otherwise false
+	 */
+	public boolean isExhausted() {
+		return exhausted != null;
+	}
+
+	/**
+	 * Gets the limit that has been exceeded
+	 * @return The limit that has been exceeded first, or null if the budget
+	 * is not exhausted
+	 */
+	public BudgetType getExhaustedBudget() {
+		return exhausted;
+	}
+
+	/**
+	 * Gets the number of edges that have been reported so far
+	 * @return The number of edges reported so far
+	 */
+	public long getProcessedEdges() {
+		return processedEdges.get();
+	}
+
+}
@@ -0,0 +1,148 @@
+package soot.jimple.infoflow.heros;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Executor for the IFDS solvers that distributes the work over per-thread
+ * deques and lets idle threads steal from busy ones. Requires Java 7, so
+ * the build leaves it out on older versions.
+ *
+ * Heros expects a CountingThreadPoolExecutor, so this class extends one,
+ * but all tasks are actually run by an internal {@link ForkJoinPool}. The
+ * inherited thread pool never receives a task and thus never starts a thread.
+ *
+ * The forward and the backward solver inject edges into each other. This
+ * executor therefore counts every task from the moment it is submitted until
+ * it has finished. A task that schedules new work does so before it
+ * completes, so the counter can only reach zero once neither solver has
+ * anything left to do.
+ *
+ * Whether this executor is actually faster than the shared queue on a
+ * machine with many cores has not been measured yet. The ExecutorBenchmark
+ * in the test sources compares both on a synthetic workload.
+ */
+public class WorkStealingExecutor extends CancellableExecutor {
+
+	private final ForkJoinPool pool;
+	private volatile Throwable exception = null;
+
+	/**
+	 * Task that runs a single runnable on the fork/join pool and keeps track
+	 * of the number of outstanding tasks.
+	 */
+	private class RunnableTask extends RecursiveAction {
+
+		private static final long serialVersionUID = -3404617785016046437L;
+		private final Runnable command;
+
+		public RunnableTask(Runnable command) {
+			this.command = command;
+		}
+
+		@Override
+		protected void compute() {
+			try {
+				command.run();
+			}
+			catch (Throwable t) {
+				// Once we have been aborted, the remaining tasks only fail
+				// because they cannot schedule new work anymore. Keep the
+				// original cause.
+				if (!isAborted()) {
+					exception = t;
+					shutdownNow();
+				}
+			}
+			finally {
+				taskFinished();
+			}
+		}
+
+	}
+
+	/**
+	 * Creates a new instance of the {@link WorkStealingExecutor} class
+	 * @param numThreads The number of worker threads to use
+	 */
+	public WorkStealingExecutor(int numThreads) {
+		super(1, 1, 30, TimeUnit.SECONDS, new LinkedBlockingQueue<Runnable>());
+		// Async mode processes the local tasks of each worker in FIFO order,
+		// which is what the solver's event-style tasks need.
+		this.pool = new ForkJoinPool(Math.max(1, numThreads),
+				ForkJoinPool.defaultForkJoinWorkerThreadFactory, null, true);
+	}
+
+	@Override
+	public void execute(Runnable command) {
+		if (isAborted())
+			return;
+		if (pool.isShutdown())
+			throw new RejectedExecutionException("Executor has been shut down");
+
+		taskStarted();
+		RunnableTask task = new RunnableTask(command);
+		try {
+			// Tasks spawned by one of our own workers go onto that worker's
+			// deque, all others are submitted to the pool from the outside
+			Thread t = Thread.currentThread();
+			if (t instanceof ForkJoinWorkerThread
+					&& ((ForkJoinWorkerThread) t).getPool() == pool)
+				task.fork();
+			else
+				pool.execute(task);
+		}
+		catch (RejectedExecutionException ex) {
+			taskFinished();
+			if (!isAborted())
+				throw ex;
+		}
+	}
+
+	@Override
+	public Throwable getException() {
+		return exception;
+	}
+
+	@Override
+	public void shutdown() {
+		pool.shutdown();
+		super.shutdown();
+	}
+
+	@Override
+	protected List<Runnable> shutdownWorkers() {
+		// The tasks in the deques are fork/join tasks, not the original
+		// runnables, so we cannot hand them back
+		pool.shutdownNow();
+		super.shutdownWorkers();
+		return Collections.emptyList();
+	}
+
+	@Override
+	public boolean isShutdown() {
+		return pool.isShutdown();
+	}
+
+	@Override
+	public boolean isTerminating() {
+		return pool.isTerminating();
+	}
+
+	@Override
+	public boolean isTerminated() {
+		return pool.isTerminated() && super.isTerminated();
+	}
+
+	@Override
+	public boolean awaitTermination(long timeout, TimeUnit unit) throws InterruptedException {
+		return pool.awaitTermination(timeout, unit) && super.awaitTermination(timeout, unit);
+	}
+
+}
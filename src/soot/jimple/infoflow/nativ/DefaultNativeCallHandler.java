@@ -34,7 +34,7 @@ public class DefaultNativeCallHandler extends NativeCallHandler {
 		if(call.getInvokeExpr().getMethod().toString().contains("arraycopy")){
 			if(params.get(0).equals(source.getAccessPath().getPlainValue())){
 				Abstraction abs = source.deriveNewAbstraction(params.get(2), call);
-				if (pathTracking == PathTrackingMethod.ForwardTracking)
+				if (pathTracking != PathTrackingMethod.NoTracking)
 					((AbstractionWithPath) abs).addPathElement(call);
 				set.add(abs);
 			}
@@ -44,7 +44,7 @@ public class DefaultNativeCallHandler extends NativeCallHandler {
 				Value argValue = params.get(i);
 				if (DataTypeHandler.isFieldRefOrArrayRef(argValue) && !(argValue instanceof Constant)) {
 					Abstraction abs = source.deriveNewAbstraction(argValue, call);
-					if (pathTracking == PathTrackingMethod.ForwardTracking)
+					if (pathTracking != PathTrackingMethod.NoTracking)
 						((AbstractionWithPath) abs).addPathElement(call);
 				}
 			}	
@@ -53,7 +53,7 @@ public class DefaultNativeCallHandler extends NativeCallHandler {
 		if(call instanceof DefinitionStmt){
 			DefinitionStmt dStmt = (DefinitionStmt) call;
 			Abstraction abs = source.deriveNewAbstraction(dStmt.getLeftOp(), call);
-			if (pathTracking == PathTrackingMethod.ForwardTracking)
+			if (pathTracking != PathTrackingMethod.NoTracking)
 				((AbstractionWithPath) abs).addPathElement(call);
 		}
 		
@@ -0,0 +1,84 @@
+package soot.jimple.infoflow.source;
+
+import heros.InterproceduralCFG;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import soot.SootMethod;
+import soot.Unit;
+import soot.jimple.Stmt;
+
+/**
+ * A {@link ISourceSinkManager} that asks another manager only once per
+ * statement whether it is a source or a sink and then remembers the answer.
+ * The scan for sources and sinks before the analysis fills the cache, so the
+ * flow functions usually find every statement in it.
+ *
+ * The cache assumes that the answers only depend on the statement, i.e. that
+ * the same control flow graph is passed in for the whole analysis.
+ */
+public class CachingSourceSinkManager implements ISourceSinkManager {
+
+	private static final int FLAG_SOURCE = 1;
+	private static final int FLAG_SINK = 2;
+
+	private final ISourceSinkManager sourceSinkManager;
+
+	/**
+	 * The classification of every statement checked so far as a combination
+	 * of the FLAG_ constants
+	 */
+	private final ConcurrentMap<Stmt, Integer> classification =
+			new ConcurrentHashMap<Stmt, Integer>();
+
+	/**
+	 * Creates a new instance of the {@link CachingSourceSinkManager} class
+	 * @param sourceSinkManager The manager that decides which statements are
+	 * sources and sinks
+	 */
+	public CachingSourceSinkManager(ISourceSinkManager sourceSinkManager) {
+		this.sourceSinkManager = sourceSinkManager;
+	}
+
+	/**
+	 * Gets the classification of the given statement, asking the underlying
+	 * manager if the statement has not been checked before
+	 * @param sCallSite The statement to check
+	 * @param cfg The interprocedural control flow graph
+	 * @return The classification of the statement as a combination of the
+	 * FLAG_ constants
+	 */
+	private int getClassification(Stmt sCallSite, InterproceduralCFG<Unit, SootMethod> cfg) {
+		Integer flags = classification.get(sCallSite);
+		if (flags == null) {
+			int newFlags = 0;
+			if (sourceSinkManager.isSource(sCallSite, cfg))
+				newFlags |= FLAG_SOURCE;
+			if (sourceSinkManager.isSink(sCallSite, cfg))
+				newFlags |= FLAG_SINK;
+			flags = newFlags;
+			classification.put(sCallSite, flags);
+		}
+		return flags;
+	}
+
+	@Override
+	public boolean isSource(Stmt sCallSite, InterproceduralCFG<Unit, SootMethod> cfg) {
+		return (getClassification(sCallSite, cfg) & FLAG_SOURCE) != 0;
+	}
+
+	@Override
+	public boolean isSink(Stmt sCallSite, InterproceduralCFG<Unit, SootMethod> cfg) {
+		return (getClassification(sCallSite, cfg) & FLAG_SINK) != 0;
+	}
+
+	/**
+	 * Gets the number of statements whose classification is cached
+	 * @return The number of cached statements
+	 */
+	public int size() {
+		return classification.size();
+	}
+
+}
@@ -2,7 +2,10 @@ package soot.jimple.infoflow.source;
 
 import heros.InterproceduralCFG;
 
+import java.util.Collections;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
 
 import soot.SootMethod;
 import soot.Unit;
@@ -10,19 +13,35 @@ import soot.jimple.IdentityStmt;
 import soot.jimple.ParameterRef;
 import soot.jimple.ReturnStmt;
 import soot.jimple.Stmt;
+import soot.jimple.infoflow.util.SceneCache;
 
 /**
- * A {@link ISourceSinkManager} working on lists of source and sink methods
+ * A {@link ISourceSinkManager} working on lists of source and sink methods.
+ * The role of each method is looked up once and then cached, so repeated
+ * checks for the same method do not build its signature again.
  * 
  * @author Steven Arzt
  */
 public class DefaultSourceSinkManager extends MethodBasedSourceSinkManager {
 
-	private List<String> sources;
-	private List<String> sinks;
+	private static final int ROLE_SOURCE = 1;
+	private static final int ROLE_SINK = 2;
+	private static final int ROLE_PARAMETER_TAINT = 4;
+	private static final int ROLE_RETURN_TAINT = 8;
+
+	private Set<String> sources;
+	private Set<String> sinks;
 	
-	private List<String> parameterTaintMethods;
-	private List<String> returnTaintMethods;
+	private Set<String> parameterTaintMethods;
+	private Set<String> returnTaintMethods;
+
+	/**
+	 * The roles of all methods checked so far as a combination of the ROLE_
+	 * flags. The cache is dropped when Soot is reset, so a manager can be
+	 * reused across several analysis runs.
+	 */
+	private final SceneCache<SootMethod, Integer> methodRoles =
+			new SceneCache<SootMethod, Integer>();
 	
 	/**
 	 * Creates a new instance of the {@link DefaultSourceSinkManager} class
@@ -30,10 +49,7 @@ public class DefaultSourceSinkManager extends MethodBasedSourceSinkManager {
 	 * @param sinks The list of methods to be treated as sins
 	 */
 	public DefaultSourceSinkManager(List<String> sources, List<String> sinks) {
-		this.sources = sources;
-		this.sinks = sinks;
-		this.parameterTaintMethods = null;
-		this.returnTaintMethods = null;
+		this(sources, sinks, null, null);
 	}
 
 	/**
@@ -50,10 +66,46 @@ public class DefaultSourceSinkManager extends MethodBasedSourceSinkManager {
 			List<String> sinks,
 			List<String> parameterTaintMethods,
 			List<String> returnTaintMethods) {
-		this.sources = sources;
-		this.sinks = sinks;
-		this.parameterTaintMethods = parameterTaintMethods;
-		this.returnTaintMethods = returnTaintMethods;
+		this.sources = toSet(sources);
+		this.sinks = toSet(sinks);
+		this.parameterTaintMethods = toSet(parameterTaintMethods);
+		this.returnTaintMethods = toSet(returnTaintMethods);
+	}
+
+	/**
+	 * Copies the given list of method signatures into a hash set
+	 * @param signatures The list of method signatures, may be null
+	 * @return A set containing the given signatures
+	 */
+	private static Set<String> toSet(List<String> signatures) {
+		if (signatures == null)
+			return Collections.emptySet();
+		return new HashSet<String>(signatures);
+	}
+
+	/**
+	 * Gets the roles of the given method. The method's signature is only
+	 * computed the first time the method is checked.
+	 * @param method The method to check
+	 * @return The roles of the method as a combination of the ROLE_ flags
+	 */
+	private int getRoles(SootMethod method) {
+		Integer roles = methodRoles.get(method);
+		if (roles == null) {
+			String signature = method.getSignature();
+			int newRoles = 0;
+			if (sources.contains(signature))
+				newRoles |= ROLE_SOURCE;
+			if (sinks.contains(signature))
+				newRoles |= ROLE_SINK;
+			if (parameterTaintMethods.contains(signature))
+				newRoles |= ROLE_PARAMETER_TAINT;
+			if (returnTaintMethods.contains(signature))
+				newRoles |= ROLE_RETURN_TAINT;
+			roles = newRoles;
+			methodRoles.putIfAbsent(method, roles);
+		}
+		return roles;
 	}
 
 	/**
@@ -61,7 +113,8 @@ public class DefaultSourceSinkManager extends MethodBasedSourceSinkManager {
 	 * @param sources The list of methods to be treated as sources
 	 */
 	public void setSources(List<String> sources){
-		this.sources = sources;
+		this.sources = toSet(sources);
+		this.methodRoles.clear();
 	}
 	
 	/**
@@ -69,17 +122,18 @@ public class DefaultSourceSinkManager extends MethodBasedSourceSinkManager {
 	 * @param sources The list of methods to be treated as sinks
 	 */
 	public void setSinks(List<String> sinks){
-		this.sinks = sinks;
+		this.sinks = toSet(sinks);
+		this.methodRoles.clear();
 	}
 	
 	@Override
 	public boolean isSourceMethod(SootMethod sMethod) {
-		return sources.contains(sMethod.toString());
+		return (getRoles(sMethod) & ROLE_SOURCE) != 0;
 	}
 
 	@Override
 	public boolean isSinkMethod(SootMethod sMethod) {
-		return sinks.contains(sMethod.toString());
+		return (getRoles(sMethod) & ROLE_SINK) != 0;
 	}
 	
 	@Override
@@ -90,8 +144,7 @@ public class DefaultSourceSinkManager extends MethodBasedSourceSinkManager {
 		if (sCallSite instanceof IdentityStmt) {
 			IdentityStmt is = (IdentityStmt) sCallSite;
 			if (is.getRightOp() instanceof ParameterRef)
-				if (this.parameterTaintMethods != null && this.parameterTaintMethods.contains
-						(cfg.getMethodOf(sCallSite).getSignature()))
+				if ((getRoles(cfg.getMethodOf(sCallSite)) & ROLE_PARAMETER_TAINT) != 0)
 					return true;
 		}
 		
@@ -104,8 +157,7 @@ public class DefaultSourceSinkManager extends MethodBasedSourceSinkManager {
 			return true;
 
 		if (sCallSite instanceof ReturnStmt)
-			if (this.returnTaintMethods != null && this.returnTaintMethods.contains
-					(cfg.getMethodOf(sCallSite).getSignature()))
+			if ((getRoles(cfg.getMethodOf(sCallSite)) & ROLE_RETURN_TAINT) != 0)
 				return true;
 	
 		return false;
@@ -118,7 +170,8 @@ public class DefaultSourceSinkManager extends MethodBasedSourceSinkManager {
 	 * be regarded as taint sources
 	 */
 	public void setParameterTaintMethods(List<String> parameterTaintMethods) {
-		this.parameterTaintMethods = parameterTaintMethods;
+		this.parameterTaintMethods = toSet(parameterTaintMethods);
+		this.methodRoles.clear();
 	}
 	
 	/**
@@ -128,7 +181,8 @@ public class DefaultSourceSinkManager extends MethodBasedSourceSinkManager {
 	 * shall be regarded as taint sinks
 	 */
 	public void setReturnTaintMethods(List<String> returnTaintMethods) {
-		this.returnTaintMethods = returnTaintMethods;
+		this.returnTaintMethods = toSet(returnTaintMethods);
+		this.methodRoles.clear();
 	}
 
 }
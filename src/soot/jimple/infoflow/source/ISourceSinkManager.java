@@ -5,7 +5,8 @@ import soot.SootMethod;
 import soot.Unit;
 import soot.jimple.Stmt;
 /**
- * the SourceSinkManager can tell if a statement contains a source or a sink
+ * the SourceSinkManager can tell if a statement contains a source or a sink.
+ * Implementations must be thread-safe, since the analysis queries them from several threads at once.
  */
 public interface ISourceSinkManager {
 
@@ -0,0 +1,247 @@
+package soot.jimple.infoflow.source;
+
+import java.lang.ref.WeakReference;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.regex.Pattern;
+
+import soot.Scene;
+import soot.SootClass;
+import soot.SootMethod;
+import soot.jimple.infoflow.util.SceneCache;
+
+/**
+ * A {@link ISourceSinkManager} that matches methods against rules which may
+ * contain wildcards or refer to a whole class hierarchy. A rule has the form
+ * of a Soot method signature, <code>&lt;class: subsignature&gt;</code>,
+ * with the following extensions:
+ * <ul>
+ * <li>The class may be given as <code>+a.b.C</code> to match the class
+ * <code>a.b.C</code> and all of its subclasses and implementors</li>
+ * <li>The class may be given as <code>a.b.*</code> to match all classes in
+ * the package <code>a.b</code> and its subpackages, or as <code>*</code> to
+ * match all classes</li>
+ * <li>The subsignature may contain <code>*</code> as a wildcard for any
+ * sequence of characters, e.g. <code>* publish(*)</code></li>
+ * </ul>
+ *
+ * The rules are compiled against the classes in the Scene when a method is
+ * checked for the first time. After that, the roles of every method are
+ * found with a single lookup. Methods that are added to the Scene later are
+ * matched when they are checked for the first time. When Soot is reset, the
+ * rules are compiled again against the new Scene, so the same manager can
+ * be used for several analysis runs.
+ */
+public class RuleBasedSourceSinkManager extends MethodBasedSourceSinkManager {
+
+	private static final int ROLE_SOURCE = 1;
+	private static final int ROLE_SINK = 2;
+
+	/**
+	 * A rule for methods of a class, a package or a class hierarchy
+	 */
+	private static class Rule {
+		private final String subSignature;
+		private final Pattern pattern;
+		private final int role;
+
+		public Rule(String subSignature, int role) {
+			if (subSignature.indexOf('*') >= 0) {
+				this.subSignature = null;
+				this.pattern = globToPattern(subSignature);
+			}
+			else {
+				this.subSignature = subSignature;
+				this.pattern = null;
+			}
+			this.role = role;
+		}
+
+		public boolean matches(String subSig) {
+			if (pattern != null)
+				return pattern.matcher(subSig).matches();
+			return subSignature.equals(subSig);
+		}
+	}
+
+	private final Map<String, List<Rule>> classRules = new HashMap<String, List<Rule>>();
+	private final Map<String, List<Rule>> packageRules = new HashMap<String, List<Rule>>();
+	private final Map<String, List<Rule>> hierarchyRules = new HashMap<String, List<Rule>>();
+
+	/**
+	 * The roles of all methods as a combination of the ROLE_ flags
+	 */
+	private final SceneCache<SootMethod, Integer> methodRoles =
+			new SceneCache<SootMethod, Integer>();
+	private final SceneCache<SootClass, Set<String>> supertypes =
+			new SceneCache<SootClass, Set<String>>();
+
+	/**
+	 * The Scene against which the rules have been compiled
+	 */
+	private volatile WeakReference<Scene> compiledScene = new WeakReference<Scene>(null);
+
+	/**
+	 * Creates a new instance of the {@link RuleBasedSourceSinkManager} class
+	 * @param sources The rules for the methods to be treated as sources
+	 * @param sinks The rules for the methods to be treated as sinks
+	 */
+	public RuleBasedSourceSinkManager(List<String> sources, List<String> sinks) {
+		for (String rule : sources)
+			addRule(rule, ROLE_SOURCE);
+		for (String rule : sinks)
+			addRule(rule, ROLE_SINK);
+	}
+
+	/**
+	 * Parses the given rule and adds it to the respective rule map
+	 * @param rule The rule to add
+	 * @param role The role of the methods matching the rule
+	 */
+	private void addRule(String rule, int role) {
+		rule = rule.trim();
+		int colonPos = rule.indexOf(": ");
+		if (!rule.startsWith("<") || !rule.endsWith(">") || colonPos < 0)
+			throw new IllegalArgumentException("Invalid source/sink rule: " + rule);
+		String className = rule.substring(1, colonPos).trim();
+		Rule r = new Rule(rule.substring(colonPos + 2, rule.length() - 1).trim(), role);
+
+		if (className.startsWith("+"))
+			addToMap(hierarchyRules, className.substring(1), r);
+		else if (className.equals("*"))
+			addToMap(packageRules, "", r);
+		else if (className.endsWith(".*"))
+			addToMap(packageRules, className.substring(0, className.length() - 2), r);
+		else
+			addToMap(classRules, className, r);
+	}
+
+	private static void addToMap(Map<String, List<Rule>> map, String key, Rule rule) {
+		List<Rule> rules = map.get(key);
+		if (rules == null) {
+			rules = new ArrayList<Rule>();
+			map.put(key, rules);
+		}
+		rules.add(rule);
+	}
+
+	/**
+	 * Converts a pattern with <code>*</code> wildcards into a regular
+	 * expression
+	 * @param glob The pattern to convert
+	 * @return The regular expression matching the same strings
+	 */
+	private static Pattern globToPattern(String glob) {
+		StringBuilder sb = new StringBuilder();
+		int start = 0;
+		for (int pos = glob.indexOf('*'); pos >= 0; pos = glob.indexOf('*', start)) {
+			if (pos > start)
+				sb.append(Pattern.quote(glob.substring(start, pos)));
+			sb.append(".*");
+			start = pos + 1;
+		}
+		if (start < glob.length())
+			sb.append(Pattern.quote(glob.substring(start)));
+		return Pattern.compile(sb.toString());
+	}
+
+	/**
+	 * Matches all methods of all classes in the given Scene against the rules
+	 * @param scene The Scene against which to compile the rules
+	 */
+	private synchronized void compile(Scene scene) {
+		if (compiledScene.get() == scene)
+			return;
+		for (SootClass sc : new ArrayList<SootClass>(scene.getClasses()))
+			for (SootMethod sm : new ArrayList<SootMethod>(sc.getMethods()))
+				methodRoles.putIfAbsent(sm, computeRoles(sm));
+		compiledScene = new WeakReference<Scene>(scene);
+	}
+
+	/**
+	 * Gets the roles of the given method
+	 * @param method The method to check
+	 * @return The roles of the method as a combination of the ROLE_ flags
+	 */
+	private int getRoles(SootMethod method) {
+		Scene scene = Scene.v();
+		if (compiledScene.get() != scene)
+			compile(scene);
+		Integer roles = methodRoles.get(method);
+		if (roles == null) {
+			roles = computeRoles(method);
+			methodRoles.putIfAbsent(method, roles);
+		}
+		return roles;
+	}
+
+	/**
+	 * Matches the given method against all rules that apply to its class
+	 * @param method The method to check
+	 * @return The roles of the method as a combination of the ROLE_ flags
+	 */
+	private int computeRoles(SootMethod method) {
+		SootClass declaringClass = method.getDeclaringClass();
+		String className = declaringClass.getName();
+		String subSig = method.getSubSignature();
+
+		int roles = matchRules(classRules.get(className), subSig);
+		if (!packageRules.isEmpty()) {
+			roles |= matchRules(packageRules.get(""), subSig);
+			for (int pos = className.lastIndexOf('.'); pos > 0; pos = className.lastIndexOf('.', pos - 1))
+				roles |= matchRules(packageRules.get(className.substring(0, pos)), subSig);
+		}
+		if (!hierarchyRules.isEmpty())
+			for (String supertype : getSupertypes(declaringClass))
+				roles |= matchRules(hierarchyRules.get(supertype), subSig);
+		return roles;
+	}
+
+	private static int matchRules(List<Rule> rules, String subSig) {
+		if (rules == null)
+			return 0;
+		int roles = 0;
+		for (Rule rule : rules)
+			if (rule.matches(subSig))
+				roles |= rule.role;
+		return roles;
+	}
+
+	/**
+	 * Gets the names of the given class and of all of its superclasses and
+	 * interfaces
+	 * @param sc The class for which to get the supertypes
+	 * @return The names of all supertypes of the given class, including the
+	 * class itself
+	 */
+	private Set<String> getSupertypes(SootClass sc) {
+		Set<String> types = supertypes.get(sc);
+		if (types == null) {
+			Set<String> newTypes = new HashSet<String>();
+			newTypes.add(sc.getName());
+			if (sc.hasSuperclass())
+				newTypes.addAll(getSupertypes(sc.getSuperclass()));
+			for (SootClass intf : sc.getInterfaces())
+				newTypes.addAll(getSupertypes(intf));
+			types = Collections.unmodifiableSet(newTypes);
+			supertypes.putIfAbsent(sc, types);
+		}
+		return types;
+	}
+
+	@Override
+	public boolean isSourceMethod(SootMethod method) {
+		return (getRoles(method) & ROLE_SOURCE) != 0;
+	}
+
+	@Override
+	public boolean isSinkMethod(SootMethod method) {
+		return (getRoles(method) & ROLE_SINK) != 0;
+	}
+
+}
@@ -0,0 +1,172 @@
+package soot.jimple.infoflow.source;
+
+import heros.InterproceduralCFG;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import soot.SootMethod;
+import soot.Unit;
+import soot.jimple.Stmt;
+
+/**
+ * Scans the bodies of a set of methods for sources and sinks. The methods
+ * are scanned in parallel, but the results are merged in the order of the
+ * methods, so they are the same as for a scan on a single thread.
+ *
+ * The source/sink manager is queried from multiple threads at once, so
+ * implementations of {@link ISourceSinkManager} used with this scanner must
+ * be thread-safe.
+ */
+public class SourceSinkScanner {
+
+	/**
+	 * The number of methods a single task scans. Most methods are small, so
+	 * one task per method would cost more than the scan itself.
+	 */
+	private static final int METHODS_PER_TASK = 64;
+
+	private final ISourceSinkManager sourceSinkManager;
+	private final InterproceduralCFG<Unit, SootMethod> icfg;
+	private final int numThreads;
+
+	private final List<Unit> sources = new ArrayList<Unit>();
+	private final List<Unit> sinks = new ArrayList<Unit>();
+	private final Set<SootMethod> sinkMethods = new LinkedHashSet<SootMethod>();
+
+	/**
+	 * The sources and sinks found in a single method
+	 */
+	private static class MethodResult {
+		private final List<Unit> sources = new ArrayList<Unit>();
+		private final List<Unit> sinks = new ArrayList<Unit>();
+	}
+
+	/**
+	 * Creates a new instance of the {@link SourceSinkScanner} class
+	 * @param sourceSinkManager The manager that decides which statements are
+	 * sources and sinks
+	 * @param icfg The interprocedural control flow graph
+	 * @param numThreads The number of threads to use for scanning
+	 */
+	public SourceSinkScanner(ISourceSinkManager sourceSinkManager,
+			InterproceduralCFG<Unit, SootMethod> icfg, int numThreads) {
+		this.sourceSinkManager = sourceSinkManager;
+		this.icfg = icfg;
+		this.numThreads = Math.max(1, numThreads);
+	}
+
+	/**
+	 * Scans the given methods for sources and sinks. Methods without an
+	 * active body are ignored.
+	 * @param methods The methods to scan
+	 */
+	public void scan(final List<SootMethod> methods) {
+		final MethodResult[] results = new MethodResult[methods.size()];
+		if (numThreads == 1 || methods.size() <= METHODS_PER_TASK)
+			scanRange(methods, results, 0, methods.size());
+		else {
+			List<Callable<Void>> tasks = new ArrayList<Callable<Void>>();
+			for (int i = 0; i < methods.size(); i += METHODS_PER_TASK) {
+				final int start = i;
+				final int end = Math.min(methods.size(), i + METHODS_PER_TASK);
+				tasks.add(new Callable<Void>() {
+
+					@Override
+					public Void call() {
+						scanRange(methods, results, start, end);
+						return null;
+					}
+
+				});
+			}
+
+			ExecutorService executor = Executors.newFixedThreadPool(numThreads);
+			try {
+				for (Future<Void> future : executor.invokeAll(tasks))
+					future.get();
+			}
+			catch (InterruptedException ex) {
+				Thread.currentThread().interrupt();
+				throw new RuntimeException("Source/sink scan interrupted", ex);
+			}
+			catch (ExecutionException ex) {
+				throw new RuntimeException("Source/sink scan failed", ex.getCause());
+			}
+			finally {
+				executor.shutdownNow();
+			}
+		}
+
+		// Merge the results in the original order of the methods
+		for (int i = 0; i < results.length; i++) {
+			MethodResult result = results[i];
+			if (result == null)
+				continue;
+			sources.addAll(result.sources);
+			sinks.addAll(result.sinks);
+			if (!result.sinks.isEmpty())
+				sinkMethods.add(methods.get(i));
+		}
+	}
+
+	/**
+	 * Scans a range of methods for sources and sinks
+	 * @param methods The list of all methods to scan
+	 * @param results The array in which to store the results
+	 * @param start The index of the first method to scan
+	 * @param end The index after the last method to scan
+	 */
+	private void scanRange(List<SootMethod> methods, MethodResult[] results, int start, int end) {
+		for (int i = start; i < end; i++) {
+			SootMethod m = methods.get(i);
+			if (!m.hasActiveBody())
+				continue;
+
+			MethodResult result = new MethodResult();
+			for (Unit u : m.getActiveBody().getUnits()) {
+				Stmt s = (Stmt) u;
+				if (sourceSinkManager.isSource(s, icfg))
+					result.sources.add(u);
+				if (sourceSinkManager.isSink(s, icfg))
+					result.sinks.add(u);
+			}
+			results[i] = result;
+		}
+	}
+
+	/**
+	 * Gets the source statements found so far, in the order of the scanned
+	 * methods and of the statements in each method
+	 * @return The source statements
+	 */
+	public List<Unit> getSources() {
+		return Collections.unmodifiableList(sources);
+	}
+
+	/**
+	 * Gets the sink statements found so far, in the order of the scanned
+	 * methods and of the statements in each method
+	 * @return The sink statements
+	 */
+	public List<Unit> getSinks() {
+		return Collections.unmodifiableList(sinks);
+	}
+
+	/**
+	 * Gets the methods that contain at least one sink
+	 * @return The methods containing sinks
+	 */
+	public Set<SootMethod> getSinkMethods() {
+		return Collections.unmodifiableSet(sinkMethods);
+	}
+
+}
@@ -0,0 +1,349 @@
+package soot.jimple.infoflow.taintWrappers;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import soot.Local;
+import soot.SootField;
+import soot.SootMethod;
+import soot.Value;
+import soot.jimple.AssignStmt;
+import soot.jimple.InstanceInvokeExpr;
+import soot.jimple.InvokeExpr;
+import soot.jimple.Stmt;
+import soot.jimple.infoflow.data.AccessPath;
+import soot.jimple.infoflow.data.AccessPathStore;
+
+/**
+ * Taint wrapper that remembers the answers of another taint wrapper. The
+ * answers are stored independently of the call statement: the taints are
+ * recorded relative to the base object, the parameters and the return value
+ * of the call, and are then applied to every other call of the same method
+ * in which the same position is tainted with the same fields.
+ *
+ * This requires that the answers of the wrapped taint wrapper only depend on
+ * the callee, on the tainted position and fields, and on whether the return
+ * value is assigned. Calls for which this cannot be expressed, e.g. because
+ * the tainted value is passed twice, are always forwarded to the wrapped
+ * taint wrapper.
+ *
+ * The cache holds a bounded number of entries and evicts the least recently
+ * used ones first.
+ */
+public class CachingTaintWrapper implements ITaintPropagationWrapper {
+
+	/*
+	 * Positions of values in a call statement. Parameters are numbered from
+	 * zero.
+	 */
+	private static final int POS_NONE = -1;
+	private static final int POS_BASE = -2;
+	private static final int POS_RETURN = -3;
+	private static final int POS_STATIC = -4;
+	private static final int POS_AMBIGUOUS = -5;
+	private static final int POS_TAINTED = -6;
+
+	private static final int NUM_SEGMENTS = 16;
+
+	/**
+	 * The wrapper's decision for a callee and a tainted position. The fields
+	 * are the interned array of the tainted access path, so they are
+	 * compared by identity.
+	 */
+	private static class CacheKey {
+		private final SootMethod callee;
+		private final int position;
+		private final SootField[] fields;
+		private final boolean hasReturn;
+		private final int hashCode;
+
+		public CacheKey(SootMethod callee, int position, SootField[] fields, boolean hasReturn) {
+			this.callee = callee;
+			this.position = position;
+			this.fields = fields;
+			this.hasReturn = hasReturn;
+			int hash = callee.hashCode();
+			hash = 31 * hash + position;
+			hash = 31 * hash + System.identityHashCode(fields);
+			hash = 31 * hash + (hasReturn ? 1231 : 1237);
+			this.hashCode = hash;
+		}
+
+		@Override
+		public int hashCode() {
+			return hashCode;
+		}
+
+		@Override
+		public boolean equals(Object obj) {
+			if (this == obj)
+				return true;
+			if (obj == null || !(obj instanceof CacheKey))
+				return false;
+			CacheKey other = (CacheKey) obj;
+			return hashCode == other.hashCode
+					&& position == other.position
+					&& hasReturn == other.hasReturn
+					&& fields == other.fields
+					&& callee.equals(other.callee);
+		}
+	}
+
+	/**
+	 * A taint produced by the wrapper, relative to the call statement. The
+	 * access path is the one produced for the call for which the taint was
+	 * recorded. Only its fields are used for other calls.
+	 */
+	private static class TaintTemplate {
+		private final int position;
+		private final AccessPath accessPath;
+
+		public TaintTemplate(int position, AccessPath accessPath) {
+			this.position = position;
+			this.accessPath = accessPath;
+		}
+	}
+
+	/**
+	 * The cached result of getTaintsForMethod. A null list stands for a null
+	 * result.
+	 */
+	private static class CachedTaints {
+		private final List<TaintTemplate> templates;
+
+		public CachedTaints(List<TaintTemplate> templates) {
+			this.templates = templates;
+		}
+	}
+
+	/**
+	 * Map that evicts its least recently used entry when it is full
+	 */
+	private static class LRUMap<K, V> extends LinkedHashMap<K, V> {
+		private static final long serialVersionUID = 1L;
+		private final int maxSize;
+
+		public LRUMap(int maxSize) {
+			super(16, 0.75f, true);
+			this.maxSize = maxSize;
+		}
+
+		@Override
+		protected boolean removeEldestEntry(Map.Entry<K, V> eldest) {
+			return size() > maxSize;
+		}
+	}
+
+	private final ITaintPropagationWrapper wrapper;
+
+	private final LRUMap<CacheKey, CachedTaints>[] taintCache;
+	private final LRUMap<CacheKey, Boolean>[] exclusiveCache;
+
+	/**
+	 * Creates a new instance of the {@link CachingTaintWrapper} class
+	 * @param wrapper The taint wrapper whose answers shall be cached
+	 * @param maxEntries The maximum number of answers to keep for each of the
+	 * two methods of the taint wrapper
+	 */
+	@SuppressWarnings("unchecked")
+	public CachingTaintWrapper(ITaintPropagationWrapper wrapper, int maxEntries) {
+		this.wrapper = wrapper;
+		this.taintCache = new LRUMap[NUM_SEGMENTS];
+		this.exclusiveCache = new LRUMap[NUM_SEGMENTS];
+		int segmentSize = Math.max(1, maxEntries / NUM_SEGMENTS);
+		for (int i = 0; i < NUM_SEGMENTS; i++) {
+			this.taintCache[i] = new LRUMap<CacheKey, CachedTaints>(segmentSize);
+			this.exclusiveCache[i] = new LRUMap<CacheKey, Boolean>(segmentSize);
+		}
+	}
+
+	/**
+	 * Gets the position of the given value in the given call statement
+	 * @param stmt The call statement
+	 * @param value The value to look for
+	 * @return The position of the value, POS_NONE if it does not occur in the
+	 * call and POS_AMBIGUOUS if it occurs more than once
+	 */
+	private static int getPosition(Stmt stmt, Value value) {
+		int position = POS_NONE;
+		InvokeExpr iexpr = stmt.getInvokeExpr();
+		if (iexpr instanceof InstanceInvokeExpr
+				&& ((InstanceInvokeExpr) iexpr).getBase().equals(value))
+			position = POS_BASE;
+		for (int i = 0; i < iexpr.getArgCount(); i++)
+			if (iexpr.getArg(i).equals(value)) {
+				if (position != POS_NONE)
+					return POS_AMBIGUOUS;
+				position = i;
+			}
+		if (stmt instanceof AssignStmt && ((AssignStmt) stmt).getLeftOp().equals(value)) {
+			if (position != POS_NONE)
+				return POS_AMBIGUOUS;
+			position = POS_RETURN;
+		}
+		return position;
+	}
+
+	/**
+	 * Gets the value at the given position of the given call statement
+	 * @param stmt The call statement
+	 * @param position The position of the value
+	 * @return The value at the given position
+	 */
+	private static Value getValueAt(Stmt stmt, int position) {
+		if (position == POS_BASE)
+			return ((InstanceInvokeExpr) stmt.getInvokeExpr()).getBase();
+		if (position == POS_RETURN)
+			return ((AssignStmt) stmt).getLeftOp();
+		return stmt.getInvokeExpr().getArg(position);
+	}
+
+	/**
+	 * Creates the cache key for the given call and tainted access path
+	 * @param stmt The call statement
+	 * @param taintedPath The tainted access path
+	 * @return The cache key, or null if the answer cannot be cached
+	 */
+	private static CacheKey getKey(Stmt stmt, AccessPath taintedPath) {
+		if (!stmt.containsInvokeExpr())
+			return null;
+		// Taints on fields of the returned value cannot be expressed
+		// relative to the call
+		if (stmt instanceof AssignStmt && !(((AssignStmt) stmt).getLeftOp() instanceof Local))
+			return null;
+
+		int position = POS_STATIC;
+		if (!taintedPath.isStaticFieldRef()) {
+			position = getPosition(stmt, taintedPath.getPlainValue());
+			if (position == POS_AMBIGUOUS)
+				return null;
+		}
+		return new CacheKey(stmt.getInvokeExpr().getMethod(), position, taintedPath.getFields(),
+				stmt instanceof AssignStmt);
+	}
+
+	private int getSegment(CacheKey key) {
+		return (key.hashCode & 0x7fffffff) % NUM_SEGMENTS;
+	}
+
+	@Override
+	public Set<AccessPath> getTaintsForMethod(Stmt stmt, AccessPath taintedPath) {
+		CacheKey key = getKey(stmt, taintedPath);
+		if (key == null)
+			return wrapper.getTaintsForMethod(stmt, taintedPath);
+
+		LRUMap<CacheKey, CachedTaints> segment = taintCache[getSegment(key)];
+		CachedTaints cached;
+		synchronized (segment) {
+			cached = segment.get(key);
+		}
+		if (cached != null && canApplyTemplates(stmt, cached.templates))
+			return applyTemplates(stmt, taintedPath, cached.templates);
+
+		Set<AccessPath> taints = wrapper.getTaintsForMethod(stmt, taintedPath);
+		List<TaintTemplate> templates = createTemplates(stmt, taintedPath, taints);
+		if (templates != null || taints == null)
+			synchronized (segment) {
+				segment.put(key, new CachedTaints(templates));
+			}
+		return taints;
+	}
+
+	/**
+	 * Expresses the given taints relative to the given call statement
+	 * @param stmt The call statement
+	 * @param taintedPath The tainted access path
+	 * @param taints The taints produced by the wrapped taint wrapper
+	 * @return The taints relative to the call, or null if there are no
+	 * taints or they cannot be expressed relative to the call
+	 */
+	private static List<TaintTemplate> createTemplates(Stmt stmt, AccessPath taintedPath,
+			Set<AccessPath> taints) {
+		if (taints == null)
+			return null;
+		List<TaintTemplate> templates = new ArrayList<TaintTemplate>(taints.size());
+		for (AccessPath ap : taints) {
+			if (ap.equals(taintedPath))
+				templates.add(new TaintTemplate(POS_TAINTED, null));
+			else if (ap.isStaticFieldRef())
+				templates.add(new TaintTemplate(POS_STATIC, ap));
+			else {
+				int position = getPosition(stmt, ap.getPlainValue());
+				if (position == POS_NONE || position == POS_AMBIGUOUS)
+					return null;
+				templates.add(new TaintTemplate(position, ap));
+			}
+		}
+		return templates;
+	}
+
+	/**
+	 * Checks whether the given taints can be applied to the given call
+	 * statement, i.e. whether all values they refer to are locals
+	 * @param stmt The call statement
+	 * @param templates The taints relative to the call
+	 * @return True if the taints can be applied to the call, otherwise false
+	 */
+	private static boolean canApplyTemplates(Stmt stmt, List<TaintTemplate> templates) {
+		if (templates == null)
+			return true;
+		for (TaintTemplate template : templates)
+			if (template.position != POS_TAINTED && template.position != POS_STATIC
+					&& !(getValueAt(stmt, template.position) instanceof Local))
+				return false;
+		return true;
+	}
+
+	/**
+	 * Applies cached taints to the given call statement
+	 * @param stmt The call statement
+	 * @param taintedPath The tainted access path
+	 * @param templates The taints relative to the call, or null if the
+	 * wrapped taint wrapper returned null
+	 * @return The taints for the given call statement
+	 */
+	private static Set<AccessPath> applyTemplates(Stmt stmt, AccessPath taintedPath,
+			List<TaintTemplate> templates) {
+		if (templates == null)
+			return null;
+		if (templates.isEmpty())
+			return Collections.emptySet();
+		Set<AccessPath> taints = new HashSet<AccessPath>(templates.size());
+		for (TaintTemplate template : templates) {
+			if (template.position == POS_TAINTED)
+				taints.add(taintedPath);
+			else if (template.position == POS_STATIC)
+				taints.add(AccessPathStore.v().intern(template.accessPath));
+			else
+				taints.add(template.accessPath.copyWithNewValue(getValueAt(stmt, template.position)));
+		}
+		return taints;
+	}
+
+	@Override
+	public boolean isExclusive(Stmt stmt, AccessPath taintedPath) {
+		CacheKey key = getKey(stmt, taintedPath);
+		if (key == null)
+			return wrapper.isExclusive(stmt, taintedPath);
+
+		LRUMap<CacheKey, Boolean> segment = exclusiveCache[getSegment(key)];
+		Boolean cached;
+		synchronized (segment) {
+			cached = segment.get(key);
+		}
+		if (cached != null)
+			return cached;
+
+		boolean exclusive = wrapper.isExclusive(stmt, taintedPath);
+		synchronized (segment) {
+			segment.put(key, exclusive);
+		}
+		return exclusive;
+	}
+
+}
@@ -23,6 +23,8 @@ import soot.jimple.InstanceInvokeExpr;
 import soot.jimple.StaticInvokeExpr;
 import soot.jimple.Stmt;
 import soot.jimple.infoflow.data.AccessPath;
+import soot.jimple.infoflow.data.AccessPathStore;
+import soot.jimple.infoflow.util.SceneCache;
 import soot.jimple.infoflow.util.SootMethodRepresentationParser;
 import soot.jimple.internal.JAssignStmt;
 
@@ -36,13 +38,27 @@ import soot.jimple.internal.JAssignStmt;
  * @author Christian Fritz, Steven Arzt
  *
  */
-public class EasyTaintWrapper implements ITaintPropagationWrapper {
+public class EasyTaintWrapper implements IFilteringTaintWrapper {
     private final Logger logger = LoggerFactory.getLogger(getClass());
 	private final Map<String, List<String>> classList;
 	private final Map<String, List<String>> excludeList;
 	private final Map<String, List<String>> killList;
 	private final Set<String> includeList;
 
+	/**
+	 * The subsignatures of all wrapped methods of a class, including those
+	 * registered for its superclasses and interfaces. The cache is dropped
+	 * when Soot is reset, so the wrapper can be used for several runs.
+	 */
+	private final SceneCache<SootClass, Set<String>> classMethods =
+			new SceneCache<SootClass, Set<String>>();
+
+	/**
+	 * Whether a class matches one of the prefixes in the include list
+	 */
+	private final SceneCache<SootClass, Boolean> supportedClasses =
+			new SceneCache<SootClass, Boolean>();
+
 	public EasyTaintWrapper(HashMap<String, List<String>> classList){
 		this.classList = classList;
 		this.excludeList = new HashMap<String, List<String>>();
@@ -67,6 +83,31 @@ public class EasyTaintWrapper implements ITaintPropagationWrapper {
 		this.includeList = new HashSet<String>();
 	}
 
+	public EasyTaintWrapper(HashMap<String, List<String>> classList,
+			HashMap<String, List<String>> excludeList,
+			HashMap<String, List<String>> killList,
+			Set<String> includeList) {
+		this.classList = classList;
+		this.excludeList = excludeList;
+		this.killList = killList;
+		this.includeList = includeList;
+	}
+
+	/**
+	 * Creates a taint wrapper on read-only rule tables, such as the ones
+	 * backed by a compiled taint wrapper file
+	 * @see EasyTaintWrapperFile
+	 */
+	EasyTaintWrapper(Map<String, List<String>> classList,
+			Map<String, List<String>> excludeList,
+			Map<String, List<String>> killList,
+			Set<String> includeList) {
+		this.classList = classList;
+		this.excludeList = excludeList;
+		this.killList = killList;
+		this.includeList = includeList;
+	}
+
     public EasyTaintWrapper(String f) throws IOException{
         this(new File(f));
     }
@@ -104,6 +145,43 @@ public class EasyTaintWrapper implements ITaintPropagationWrapper {
 		}
 	}
 	
+	/**
+	 * Gets the wrapped methods, grouped by class
+	 * @return A read-only map from class names to the subsignatures of the
+	 * wrapped methods in the respective class
+	 */
+	public Map<String, List<String>> getClassList() {
+		return Collections.unmodifiableMap(this.classList);
+	}
+	
+	/**
+	 * Gets the methods whose return values are not tainted even if their
+	 * base object is tainted, grouped by class
+	 * @return A read-only map from class names to the subsignatures of the
+	 * excluded methods in the respective class
+	 */
+	public Map<String, List<String>> getExcludeList() {
+		return Collections.unmodifiableMap(this.excludeList);
+	}
+	
+	/**
+	 * Gets the methods that remove the taint from their base object, grouped
+	 * by class
+	 * @return A read-only map from class names to the subsignatures of the
+	 * killing methods in the respective class
+	 */
+	public Map<String, List<String>> getKillList() {
+		return Collections.unmodifiableMap(this.killList);
+	}
+	
+	/**
+	 * Gets the prefixes of the names of the classes supported by this wrapper
+	 * @return The read-only set of prefixes of the supported class names
+	 */
+	public Set<String> getIncludeList() {
+		return Collections.unmodifiableSet(this.includeList);
+	}
+	
 	@Override
 	public Set<AccessPath> getTaintsForMethod(Stmt stmt, AccessPath taintedPath) {
 		if (!stmt.containsInvokeExpr())
@@ -112,20 +190,14 @@ public class EasyTaintWrapper implements ITaintPropagationWrapper {
 		Set<AccessPath> taints = new HashSet<AccessPath>();
 
 		SootMethod method = stmt.getInvokeExpr().getMethod();
-		List<String> methodList = getMethodsForClass(method.getDeclaringClass());
+		Set<String> methodList = getMethodsForClass(method.getDeclaringClass());
 		
 		// If the callee is a phantom class or has no body, we pass on the taint
 		if (method.isPhantom() || !method.hasActiveBody())
 			taints.add(taintedPath);
 
 		// If this is not one of the supported classes, we skip it
-		boolean isSupported = false;
-		for (String supportedClass : this.includeList)
-			if (method.getDeclaringClass().getName().startsWith(supportedClass)) {
-				isSupported = true;
-				break;
-			}
-		if (!isSupported)
+		if (!isSupportedClass(method.getDeclaringClass()))
 			return Collections.emptySet();
 
 		// For the moment, we don't implement static taints on wrappers. Pass it on
@@ -150,7 +222,7 @@ public class EasyTaintWrapper implements ITaintPropagationWrapper {
 					List<String> excludedMethods = this.excludeList.get(assign.getInvokeExpr().getMethod().getDeclaringClass().getName());
 					if (excludedMethods == null || !excludedMethods.contains
 							(assign.getInvokeExpr().getMethod().getSubSignature()))
-						taints.add(new AccessPath(assign.getLeftOp()));
+						taints.add(AccessPathStore.v().getAccessPath(assign.getLeftOp()));
 				}
 
 				// If the base object is tainted, we pass this taint on
@@ -164,16 +236,16 @@ public class EasyTaintWrapper implements ITaintPropagationWrapper {
 				if(methodList.contains(method.getSubSignature())) {
 					// If we call a method on an instance, this instance is assumed to be tainted
 					if(stmt.getInvokeExprBox().getValue() instanceof InstanceInvokeExpr) {
-						taints.add(new AccessPath(((InstanceInvokeExpr) stmt.getInvokeExprBox().getValue()).getBase()));
+						taints.add(AccessPathStore.v().getAccessPath(((InstanceInvokeExpr) stmt.getInvokeExprBox().getValue()).getBase()));
 						
 						// If make sure to also taint the left side of an assignment
 						// if the object just got tainted 
 						if(stmt instanceof JAssignStmt)
-							taints.add(new AccessPath(((JAssignStmt)stmt).getLeftOp()));
+							taints.add(AccessPathStore.v().getAccessPath(((JAssignStmt)stmt).getLeftOp()));
 					}
 					else if (stmt.getInvokeExprBox().getValue() instanceof StaticInvokeExpr)
 						if (stmt instanceof JAssignStmt)
-							taints.add(new AccessPath(((JAssignStmt)stmt).getLeftOp()));
+							taints.add(AccessPathStore.v().getAccessPath(((JAssignStmt)stmt).getLeftOp()));
 				}
 					
 				// The parameter as such stays tainted
@@ -183,8 +255,45 @@ public class EasyTaintWrapper implements ITaintPropagationWrapper {
 		return taints;
 	}
 	
-	private List<String> getMethodsForClass(SootClass c){
-		List<String> methodList = new LinkedList<String>();
+	/**
+	 * Checks whether the name of the given class starts with one of the
+	 * prefixes in the include list. The prefixes are only checked the first
+	 * time a class is seen.
+	 * @param c The class to check
+	 * @return True if the class is supported by this wrapper, otherwise false
+	 */
+	private boolean isSupportedClass(SootClass c) {
+		Boolean supported = supportedClasses.get(c);
+		if (supported == null) {
+			supported = false;
+			String className = c.getName();
+			for (String supportedClass : this.includeList)
+				if (className.startsWith(supportedClass)) {
+					supported = true;
+					break;
+				}
+			supportedClasses.putIfAbsent(c, supported);
+		}
+		return supported;
+	}
+	
+	/**
+	 * Gets the subsignatures of all wrapped methods of the given class. The
+	 * set is computed once per class and then taken from the cache.
+	 * @param c The class for which to get the wrapped methods
+	 * @return The subsignatures of all wrapped methods of the given class
+	 */
+	private Set<String> getMethodsForClass(SootClass c){
+		Set<String> methods = classMethods.get(c);
+		if (methods == null) {
+			methods = computeMethodsForClass(c);
+			classMethods.putIfAbsent(c, methods);
+		}
+		return methods;
+	}
+	
+	private Set<String> computeMethodsForClass(SootClass c){
+		Set<String> methodList = new HashSet<String>();
 		if(classList.containsKey(c.getName())){
 			methodList.addAll(classList.get(c.getName()));
 		}
@@ -204,9 +313,17 @@ public class EasyTaintWrapper implements ITaintPropagationWrapper {
 		for (SootClass ifc : c.getInterfaces())
 			methodList.addAll(getMethodsForClass(ifc));
 		
+		if (methodList.isEmpty())
+			return Collections.emptySet();
 		return methodList;
 	}
 
+	@Override
+	public boolean supportsCallee(SootMethod callee) {
+		SootClass c = callee.getDeclaringClass();
+		return isSupportedClass(c) || !getMethodsForClass(c).isEmpty();
+	}
+
 	@Override
 	public boolean isExclusive(Stmt stmt, AccessPath taintedPath) {
 		SootMethod method = stmt.getInvokeExpr().getMethod();
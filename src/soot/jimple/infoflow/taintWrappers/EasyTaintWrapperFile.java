@@ -0,0 +1,476 @@
+package soot.jimple.infoflow.taintWrappers;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.AbstractList;
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.NoSuchElementException;
+import java.util.RandomAccess;
+import java.util.Set;
+import java.util.SortedMap;
+import java.util.SortedSet;
+import java.util.TreeMap;
+import java.util.TreeSet;
+
+/**
+ * Compiles the text rules of the {@link EasyTaintWrapper} into a binary
+ * file, and creates taint wrappers that answer their queries directly from
+ * such a file. The file is mapped read-only into memory and is never copied
+ * into the heap, so loading it takes almost no time and all JVMs on a host
+ * share the same pages through the page cache. Files that are truncated or
+ * otherwise corrupt are rejected with an IOException.
+ *
+ * The file starts with a header holding the offsets of the tables of
+ * wrapped, excluded and killing methods and of the list of supported class
+ * name prefixes. It is followed by a pool in which every class name and
+ * subsignature is stored once as a sequence of UTF-16 characters. Each table
+ * consists of fixed-size entries sorted by class name, and every entry
+ * points to the sorted subsignatures of its methods, so that all lookups are
+ * binary searches on the mapped buffer. All references into the pool are
+ * absolute offsets.
+ */
+public class EasyTaintWrapperFile {
+
+	private static final int MAGIC = 0x45545746; // "ETWF"
+	private static final int VERSION = 2;
+	private static final int HEADER_SIZE = 24;
+	private static final int TABLE_ENTRY_SIZE = 12;
+
+	private EasyTaintWrapperFile() {
+	}
+
+	/**
+	 * Compiles the given text rules into a binary file
+	 * @param textFile The file containing the rules in the text format of the
+	 * {@link EasyTaintWrapper}
+	 * @param binaryFile The file to write
+	 * @throws IOException Thrown if one of the files cannot be accessed
+	 */
+	public static void compile(File textFile, File binaryFile) throws IOException {
+		compile(new EasyTaintWrapper(textFile), binaryFile);
+	}
+
+	/**
+	 * Writes the rules of the given taint wrapper into a binary file
+	 * @param wrapper The taint wrapper whose rules to write
+	 * @param binaryFile The file to write
+	 * @throws IOException Thrown if the file cannot be written
+	 */
+	public static void compile(EasyTaintWrapper wrapper, File binaryFile) throws IOException {
+		SortedMap<String, SortedSet<String>> classList = sortTable(wrapper.getClassList());
+		SortedMap<String, SortedSet<String>> excludeList = sortTable(wrapper.getExcludeList());
+		SortedMap<String, SortedSet<String>> killList = sortTable(wrapper.getKillList());
+		SortedSet<String> includeList = new TreeSet<String>(wrapper.getIncludeList());
+
+		// Collect all strings, so that each is only stored once, and compute
+		// where they and the tables will be placed
+		SortedSet<String> strings = new TreeSet<String>(includeList);
+		addStrings(strings, classList);
+		addStrings(strings, excludeList);
+		addStrings(strings, killList);
+		Map<String, Integer> offsets = new TreeMap<String, Integer>();
+		int offset = HEADER_SIZE;
+		for (String s : strings) {
+			offsets.put(s, offset);
+			offset += 4 + 2 * s.length();
+		}
+		int classListOffset = offset;
+		int excludeListOffset = classListOffset + getTableSize(classList);
+		int killListOffset = excludeListOffset + getTableSize(excludeList);
+		int includeListOffset = killListOffset + getTableSize(killList);
+
+		DataOutputStream out = new DataOutputStream(new BufferedOutputStream
+				(new FileOutputStream(binaryFile)));
+		try {
+			out.writeInt(MAGIC);
+			out.writeInt(VERSION);
+			out.writeInt(classListOffset);
+			out.writeInt(excludeListOffset);
+			out.writeInt(killListOffset);
+			out.writeInt(includeListOffset);
+			for (String s : strings) {
+				out.writeInt(s.length());
+				out.writeChars(s);
+			}
+			writeTable(out, offsets, classList, classListOffset);
+			writeTable(out, offsets, excludeList, excludeListOffset);
+			writeTable(out, offsets, killList, killListOffset);
+			out.writeInt(includeList.size());
+			for (String prefix : includeList)
+				out.writeInt(offsets.get(prefix));
+		}
+		finally {
+			out.close();
+		}
+	}
+
+	private static SortedMap<String, SortedSet<String>> sortTable(Map<String, List<String>> table) {
+		SortedMap<String, SortedSet<String>> sorted = new TreeMap<String, SortedSet<String>>();
+		for (Entry<String, List<String>> entry : table.entrySet())
+			sorted.put(entry.getKey(), new TreeSet<String>(entry.getValue()));
+		return sorted;
+	}
+
+	private static void addStrings(Set<String> strings, Map<String, SortedSet<String>> table) {
+		for (Entry<String, SortedSet<String>> entry : table.entrySet()) {
+			strings.add(entry.getKey());
+			strings.addAll(entry.getValue());
+		}
+	}
+
+	private static int getTableSize(Map<String, SortedSet<String>> table) {
+		int size = 4 + TABLE_ENTRY_SIZE * table.size();
+		for (SortedSet<String> methods : table.values())
+			size += 4 * methods.size();
+		return size;
+	}
+
+	private static void writeTable(DataOutputStream out, Map<String, Integer> offsets,
+			Map<String, SortedSet<String>> table, int tableOffset) throws IOException {
+		out.writeInt(table.size());
+		int methodsOffset = tableOffset + 4 + TABLE_ENTRY_SIZE * table.size();
+		for (Entry<String, SortedSet<String>> entry : table.entrySet()) {
+			out.writeInt(offsets.get(entry.getKey()));
+			out.writeInt(entry.getValue().size());
+			out.writeInt(methodsOffset);
+			methodsOffset += 4 * entry.getValue().size();
+		}
+		for (SortedSet<String> methods : table.values())
+			for (String method : methods)
+				out.writeInt(offsets.get(method));
+	}
+
+	/**
+	 * Creates a taint wrapper that answers its queries from a compiled binary
+	 * file. The file is mapped into memory and must not be modified while the
+	 * taint wrapper is in use.
+	 * @param binaryFile The file created by compile()
+	 * @return The taint wrapper with the rules from the given file
+	 * @throws IOException Thrown if the file cannot be read or is no valid
+	 * compiled taint wrapper file
+	 */
+	public static EasyTaintWrapper load(File binaryFile) throws IOException {
+		ByteBuffer buffer;
+		RandomAccessFile file = new RandomAccessFile(binaryFile, "r");
+		try {
+			long length = file.length();
+			if (length < HEADER_SIZE || length > Integer.MAX_VALUE)
+				throw new IOException("Not a compiled taint wrapper file: " + binaryFile);
+			// The mapping stays valid after the channel has been closed
+			buffer = file.getChannel().map(FileChannel.MapMode.READ_ONLY, 0, length);
+		}
+		finally {
+			file.close();
+		}
+
+		if (buffer.getInt(0) != MAGIC)
+			throw new IOException("Not a compiled taint wrapper file: " + binaryFile);
+		int version = buffer.getInt(4);
+		if (version != VERSION)
+			throw new IOException("Unsupported taint wrapper file version " + version);
+
+		// Every reference is checked once here, so that the lookups need no
+		// bounds checks of their own
+		RuleTable classList = new RuleTable(buffer, buffer.getInt(8));
+		RuleTable excludeList = new RuleTable(buffer, buffer.getInt(12));
+		RuleTable killList = new RuleTable(buffer, buffer.getInt(16));
+		StringList includeList = new StringList(buffer, buffer.getInt(20) + 4,
+				checkCount(buffer, buffer.getInt(20), 4));
+		if (includeList.end() != buffer.limit())
+			throw new IOException("Unexpected data after the end of the taint wrapper file");
+		return new EasyTaintWrapper(classList, excludeList, killList,
+				new StringSet(includeList));
+	}
+
+	/**
+	 * Checks that a counted sequence of fixed-size elements lies within the
+	 * buffer
+	 * @param buffer The buffer containing the sequence
+	 * @param offset The offset of the count preceding the sequence
+	 * @param elementSize The size of each element in bytes
+	 * @return The number of elements in the sequence
+	 * @throws IOException Thrown if the sequence does not fit into the buffer
+	 */
+	private static int checkCount(ByteBuffer buffer, int offset, int elementSize)
+			throws IOException {
+		if (offset < HEADER_SIZE || (long) offset + 4 > buffer.limit())
+			throw new IOException("Invalid table offset " + offset);
+		int count = buffer.getInt(offset);
+		if (count < 0 || offset + 4 + (long) count * elementSize > buffer.limit())
+			throw new IOException("Invalid entry count " + count);
+		return count;
+	}
+
+	/**
+	 * Checks that the string at the given offset lies within the buffer
+	 * @param buffer The buffer containing the string
+	 * @param offset The offset of the string
+	 * @throws IOException Thrown if the string does not fit into the buffer
+	 */
+	private static void checkString(ByteBuffer buffer, int offset) throws IOException {
+		if (offset < HEADER_SIZE || (long) offset + 4 > buffer.limit())
+			throw new IOException("Invalid string offset " + offset);
+		int length = buffer.getInt(offset);
+		if (length < 0 || offset + 4 + 2L * length > buffer.limit())
+			throw new IOException("Invalid string length " + length);
+	}
+
+	/**
+	 * Reads a string from the pool
+	 * @param buffer The buffer containing the string
+	 * @param offset The offset of the string
+	 * @return The string at the given offset
+	 */
+	private static String readString(ByteBuffer buffer, int offset) {
+		char[] chars = new char[buffer.getInt(offset)];
+		for (int i = 0; i < chars.length; i++)
+			chars[i] = buffer.getChar(offset + 4 + 2 * i);
+		return new String(chars);
+	}
+
+	/**
+	 * Compares a string with a string from the pool without reading the
+	 * latter into the heap. The order is the one of String.compareTo().
+	 * @param s The string to compare
+	 * @param buffer The buffer containing the pooled string
+	 * @param offset The offset of the pooled string
+	 * @return A negative number, zero or a positive number if the given string
+	 * is less than, equal to or greater than the pooled string
+	 */
+	private static int compare(String s, ByteBuffer buffer, int offset) {
+		int length = buffer.getInt(offset);
+		int commonLength = Math.min(s.length(), length);
+		for (int i = 0; i < commonLength; i++) {
+			int diff = s.charAt(i) - buffer.getChar(offset + 4 + 2 * i);
+			if (diff != 0)
+				return diff;
+		}
+		return s.length() - length;
+	}
+
+	/**
+	 * A sorted list of strings from the pool, stored as an array of offsets
+	 * in the buffer
+	 */
+	private static class StringList extends AbstractList<String> implements RandomAccess {
+		private final ByteBuffer buffer;
+		private final int offset;
+		private final int size;
+
+		public StringList(ByteBuffer buffer, int offset, int size) throws IOException {
+			this.buffer = buffer;
+			this.offset = offset;
+			this.size = size;
+			for (int i = 0; i < size; i++)
+				checkString(buffer, stringOffset(i));
+		}
+
+		private int stringOffset(int index) {
+			return buffer.getInt(offset + 4 * index);
+		}
+
+		public int end() {
+			return offset + 4 * size;
+		}
+
+		@Override
+		public String get(int index) {
+			if (index < 0 || index >= size)
+				throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+			return readString(buffer, stringOffset(index));
+		}
+
+		@Override
+		public int size() {
+			return size;
+		}
+
+		@Override
+		public int indexOf(Object o) {
+			if (!(o instanceof String))
+				return -1;
+			String s = (String) o;
+			int low = 0;
+			int high = size - 1;
+			while (low <= high) {
+				int mid = (low + high) >>> 1;
+				int cmp = compare(s, buffer, stringOffset(mid));
+				if (cmp > 0)
+					low = mid + 1;
+				else if (cmp < 0)
+					high = mid - 1;
+				else
+					return mid;
+			}
+			return -1;
+		}
+
+		@Override
+		public int lastIndexOf(Object o) {
+			return indexOf(o);
+		}
+
+		@Override
+		public boolean contains(Object o) {
+			return indexOf(o) >= 0;
+		}
+	}
+
+	/**
+	 * A read-only set view of a sorted list of pooled strings
+	 */
+	private static class StringSet extends AbstractSet<String> {
+		private final StringList strings;
+
+		public StringSet(StringList strings) {
+			this.strings = strings;
+		}
+
+		@Override
+		public Iterator<String> iterator() {
+			return strings.iterator();
+		}
+
+		@Override
+		public int size() {
+			return strings.size();
+		}
+
+		@Override
+		public boolean contains(Object o) {
+			return strings.contains(o);
+		}
+	}
+
+	/**
+	 * A read-only map from class names to the subsignatures of their methods
+	 * that is backed by a table in the buffer
+	 */
+	private static class RuleTable extends AbstractMap<String, List<String>> {
+		private final ByteBuffer buffer;
+		private final int offset;
+		private final int size;
+
+		public RuleTable(ByteBuffer buffer, int offset) throws IOException {
+			this.buffer = buffer;
+			this.offset = offset;
+			this.size = checkCount(buffer, offset, TABLE_ENTRY_SIZE);
+			for (int i = 0; i < size; i++) {
+				checkString(buffer, classOffset(i));
+				getMethods(i);
+			}
+		}
+
+		private int entryOffset(int index) {
+			return offset + 4 + TABLE_ENTRY_SIZE * index;
+		}
+
+		private int classOffset(int index) {
+			return buffer.getInt(entryOffset(index));
+		}
+
+		private StringList getMethods(int index) throws IOException {
+			int methodCount = buffer.getInt(entryOffset(index) + 4);
+			int methodsOffset = buffer.getInt(entryOffset(index) + 8);
+			if (methodCount < 0 || methodsOffset < HEADER_SIZE
+					|| methodsOffset + 4L * methodCount > buffer.limit())
+				throw new IOException("Invalid method list at offset " + methodsOffset);
+			return new StringList(buffer, methodsOffset, methodCount);
+		}
+
+		private List<String> methodsAt(int index) {
+			try {
+				return getMethods(index);
+			}
+			catch (IOException ex) {
+				// All entries have been checked when the table was created
+				throw new IllegalStateException(ex);
+			}
+		}
+
+		private int indexOf(Object key) {
+			if (!(key instanceof String))
+				return -1;
+			String className = (String) key;
+			int low = 0;
+			int high = size - 1;
+			while (low <= high) {
+				int mid = (low + high) >>> 1;
+				int cmp = compare(className, buffer, classOffset(mid));
+				if (cmp > 0)
+					low = mid + 1;
+				else if (cmp < 0)
+					high = mid - 1;
+				else
+					return mid;
+			}
+			return -1;
+		}
+
+		@Override
+		public List<String> get(Object key) {
+			int index = indexOf(key);
+			return index < 0 ? null : methodsAt(index);
+		}
+
+		@Override
+		public boolean containsKey(Object key) {
+			return indexOf(key) >= 0;
+		}
+
+		@Override
+		public int size() {
+			return size;
+		}
+
+		@Override
+		public Set<Entry<String, List<String>>> entrySet() {
+			return new AbstractSet<Entry<String, List<String>>>() {
+
+				@Override
+				public Iterator<Entry<String, List<String>>> iterator() {
+					return new Iterator<Entry<String, List<String>>>() {
+						private int index = 0;
+
+						@Override
+						public boolean hasNext() {
+							return index < size;
+						}
+
+						@Override
+						public Entry<String, List<String>> next() {
+							if (index >= size)
+								throw new NoSuchElementException();
+							Entry<String, List<String>> entry = new SimpleImmutableEntry<String, List<String>>
+									(readString(buffer, classOffset(index)), methodsAt(index));
+							index++;
+							return entry;
+						}
+
+						@Override
+						public void remove() {
+							throw new UnsupportedOperationException();
+						}
+					};
+				}
+
+				@Override
+				public int size() {
+					return size;
+				}
+			};
+		}
+	}
+
+}
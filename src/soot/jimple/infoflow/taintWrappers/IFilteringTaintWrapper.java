@@ -0,0 +1,23 @@
+package soot.jimple.infoflow.taintWrappers;
+
+import soot.SootMethod;
+
+/**
+ * A taint wrapper that can tell in advance for which callees it may produce
+ * taints. Composite wrappers use this to skip members that cannot apply to
+ * a call.
+ */
+public interface IFilteringTaintWrapper extends ITaintPropagationWrapper {
+
+	/**
+	 * Checks whether this taint wrapper may produce taints for calls to the
+	 * given method or may be exclusive for them. If this method returns
+	 * false, getTaintsForMethod() must return an empty set or null and
+	 * isExclusive() must return false for all calls to the method.
+	 * @param callee The called method
+	 * @return True if this taint wrapper may apply to calls to the given
+	 * method, otherwise false
+	 */
+	public boolean supportsCallee(SootMethod callee);
+
+}
@@ -20,7 +20,7 @@ public interface ITaintPropagationWrapper {
 	 * @param stmt The invocation statement which to check for black-box taint propagation
 	 * @param taintedPath The tainted field or value to propagate 
 	 * @return The list of tainted values after the invocation statement referenced in {@link Stmt}
-	 * has been executed
+	 * has been executed. The set may be shared with the wrapper and must not be modified.
 	 */
 	public Set<AccessPath> getTaintsForMethod(Stmt stmt, AccessPath taintedPath);
 
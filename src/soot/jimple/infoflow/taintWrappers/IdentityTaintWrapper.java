@@ -7,6 +7,7 @@ import soot.Value;
 import soot.jimple.InstanceInvokeExpr;
 import soot.jimple.Stmt;
 import soot.jimple.infoflow.data.AccessPath;
+import soot.jimple.infoflow.data.AccessPathStore;
 import soot.jimple.internal.JAssignStmt;
 
 /**
@@ -33,14 +34,14 @@ public class IdentityTaintWrapper implements ITaintPropagationWrapper {
 			// If the base object is tainted, the return value is always tainted
 			if (taintedPath.getPlainValue().equals(iiExpr.getBase()))
 				if (stmt instanceof JAssignStmt)
-					return Collections.singleton(new AccessPath(((JAssignStmt)stmt).getLeftOp()));
+					return Collections.singleton(AccessPathStore.v().getAccessPath(((JAssignStmt)stmt).getLeftOp()));
 		}
 			
 		// If one of the parameters is tainted, the return value is tainted, too
 		for (Value param : stmt.getInvokeExpr().getArgs())
 			if (taintedPath.getPlainValue().equals(param))
 				if (stmt instanceof JAssignStmt)
-					return Collections.singleton(new AccessPath(((JAssignStmt)stmt).getLeftOp()));
+					return Collections.singleton(AccessPathStore.v().getAccessPath(((JAssignStmt)stmt).getLeftOp()));
 		
 		return Collections.emptySet();
 	}
@@ -6,6 +6,7 @@ import java.util.Set;
 import soot.jimple.InstanceInvokeExpr;
 import soot.jimple.Stmt;
 import soot.jimple.infoflow.data.AccessPath;
+import soot.jimple.infoflow.data.AccessPathStore;
 import soot.jimple.internal.JAssignStmt;
 
 /**
@@ -18,7 +19,7 @@ public class ListExampleWrapper implements ITaintPropagationWrapper {
 		// method add + added element is tainted -> whole list is tainted
 		if(stmt.getInvokeExpr().getMethod().getSubSignature().equals("boolean add(java.lang.Object)"))
 			if (taintedPath.getPlainValue().equals(stmt.getInvokeExpr().getArg(0)))
-				return Collections.singleton(new AccessPath(((InstanceInvokeExpr) stmt.getInvokeExprBox().getValue()).getBase()));
+				return Collections.singleton(AccessPathStore.v().getAccessPath(((InstanceInvokeExpr) stmt.getInvokeExprBox().getValue()).getBase()));
 
 		// method get + whole list is tainted -> returned element is tainted
 		if(stmt.getInvokeExpr().getMethod().getSubSignature().equals("java.lang.Object get(int)"))
@@ -26,7 +27,7 @@ public class ListExampleWrapper implements ITaintPropagationWrapper {
 				InstanceInvokeExpr iiExpr = (InstanceInvokeExpr) stmt.getInvokeExpr();
 				if (taintedPath.getPlainValue().equals(iiExpr.getBase()))
 					if(stmt instanceof JAssignStmt)
-						return Collections.singleton(new AccessPath(((JAssignStmt)stmt).getLeftOp()));
+						return Collections.singleton(AccessPathStore.v().getAccessPath(((JAssignStmt)stmt).getLeftOp()));
 			}
 
 		// For the moment, we don't implement static taints on wrappers. Pass it on
@@ -0,0 +1,149 @@
+package soot.jimple.infoflow.taintWrappers;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+
+/**
+ * Summary of the data flows through a single library method. A flow leads
+ * from one position of the call to another one, where a position is the base
+ * object, one of the parameters, or the return value. Summaries do not
+ * distinguish between the fields of an object: if any part of the source
+ * position is tainted, the whole target position becomes tainted.
+ */
+public class MethodSummary {
+
+	/**
+	 * The position of the base object on which the method is called
+	 */
+	public static final int BASE = -1;
+	/**
+	 * The position of the return value of the method
+	 */
+	public static final int RETURN = -2;
+
+	private final Map<Integer, Set<Integer>> flows = new TreeMap<Integer, Set<Integer>>();
+
+	/**
+	 * Adds a flow to this summary
+	 * @param from The position from which data flows, either BASE or the
+	 * index of a parameter
+	 * @param to The position to which the data flows, either BASE, RETURN or
+	 * the index of a parameter
+	 * @return True if the flow was new, false if it was already contained in
+	 * this summary
+	 */
+	public boolean addFlow(int from, int to) {
+		if (from < BASE)
+			throw new IllegalArgumentException("Invalid source position: " + from);
+		if (to < RETURN)
+			throw new IllegalArgumentException("Invalid target position: " + to);
+		if (from == to)
+			return false;
+
+		Set<Integer> targets = flows.get(from);
+		if (targets == null) {
+			targets = new TreeSet<Integer>();
+			flows.put(from, targets);
+		}
+		return targets.add(to);
+	}
+
+	/**
+	 * Gets the positions to which data flows from the given position
+	 * @param from The position from which data flows, either BASE or the
+	 * index of a parameter
+	 * @return The positions to which data from the given position flows
+	 */
+	public Set<Integer> getTargets(int from) {
+		Set<Integer> targets = flows.get(from);
+		if (targets == null)
+			return Collections.emptySet();
+		return Collections.unmodifiableSet(targets);
+	}
+
+	/**
+	 * Gets all positions from which data flows somewhere else
+	 * @return The positions from which data flows
+	 */
+	public Set<Integer> getSources() {
+		return Collections.unmodifiableSet(flows.keySet());
+	}
+
+	/**
+	 * Checks whether this summary contains no flows at all
+	 * @return True if no data flows through the method, otherwise false
+	 */
+	public boolean isEmpty() {
+		return flows.isEmpty();
+	}
+
+	/**
+	 * Gets the textual representation of the given position
+	 * @param position The position, either BASE, RETURN or the index of a
+	 * parameter
+	 * @return The textual representation of the position
+	 */
+	public static String positionToString(int position) {
+		if (position == BASE)
+			return "BASE";
+		if (position == RETURN)
+			return "RETURN";
+		return "P" + position;
+	}
+
+	/**
+	 * Parses the textual representation of a position
+	 * @param position The textual representation as created by
+	 * positionToString()
+	 * @return The position, either BASE, RETURN or the index of a parameter
+	 */
+	public static int parsePosition(String position) {
+		if (position.equals("BASE"))
+			return BASE;
+		if (position.equals("RETURN"))
+			return RETURN;
+		if (position.length() > 1 && position.charAt(0) == 'P')
+			try {
+				int idx = Integer.parseInt(position.substring(1));
+				if (idx >= 0)
+					return idx;
+			}
+			catch (NumberFormatException ex) {
+				// Reported below
+			}
+		throw new IllegalArgumentException("Invalid position: " + position);
+	}
+
+	@Override
+	public int hashCode() {
+		return flows.hashCode();
+	}
+
+	@Override
+	public boolean equals(Object obj) {
+		if (this == obj)
+			return true;
+		if (obj == null || !(obj instanceof MethodSummary))
+			return false;
+		return flows.equals(((MethodSummary) obj).flows);
+	}
+
+	@Override
+	public String toString() {
+		StringBuilder sb = new StringBuilder();
+		for (Entry<Integer, Set<Integer>> entry : flows.entrySet())
+			for (Integer to : entry.getValue()) {
+				if (sb.length() > 0)
+					sb.append(", ");
+				sb.append(positionToString(entry.getKey()));
+				sb.append(" -> ");
+				sb.append(positionToString(to));
+			}
+		return sb.toString();
+	}
+
+}
@@ -0,0 +1,237 @@
+package soot.jimple.infoflow.taintWrappers;
+
+import heros.InterproceduralCFG;
+import heros.solver.CountingThreadPoolExecutor;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import soot.ArrayType;
+import soot.Body;
+import soot.Local;
+import soot.Scene;
+import soot.SceneTransformer;
+import soot.SootMethod;
+import soot.Unit;
+import soot.Value;
+import soot.jimple.IdentityStmt;
+import soot.jimple.ParameterRef;
+import soot.jimple.ReturnStmt;
+import soot.jimple.Stmt;
+import soot.jimple.ThisRef;
+import soot.jimple.infoflow.BackwardsInfoflowProblem;
+import soot.jimple.infoflow.InfoflowProblem;
+import soot.jimple.infoflow.data.Abstraction;
+import soot.jimple.infoflow.data.AccessPath;
+import soot.jimple.infoflow.heros.InfoflowSolver;
+import soot.jimple.infoflow.heros.SharedQueueExecutor;
+import soot.jimple.infoflow.source.ISourceSinkManager;
+import soot.jimple.toolkits.ide.icfg.JimpleBasedBiDiICFG;
+
+/**
+ * Generates {@link MethodSummary} objects for library methods by running the
+ * taint analysis on each method on its own. The base object and all
+ * parameters of the method are taken as sources. When the analysis has
+ * finished, the taints that reach the exit statements of the method tell
+ * where the data of each source has gone: into the return value, or into a
+ * field of the base object or of a parameter.
+ *
+ * The generator is a scene transformer, so it can be registered as a
+ * preprocessor with Infoflow.setPreProcessors(). It then runs on the call
+ * graph Soot has built for the entry points of the analysis, which should
+ * contain the library methods to summarize. The summaries can be written to
+ * a file and replayed by the {@link SummaryTaintWrapper}.
+ */
+public class SummaryGenerator extends SceneTransformer {
+
+	private final Logger logger = LoggerFactory.getLogger(getClass());
+
+	private final List<String> methodSignatures;
+	private final File outputFile;
+
+	private ITaintPropagationWrapper taintWrapper = null;
+	private int numThreads = -1;
+
+	private final Map<String, MethodSummary> summaries = new LinkedHashMap<String, MethodSummary>();
+
+	/**
+	 * Source/sink manager that takes the identity statements of the base
+	 * object and the parameters of a single method as sources
+	 */
+	private static class ParameterSourceManager implements ISourceSinkManager {
+
+		private final SootMethod method;
+
+		public ParameterSourceManager(SootMethod method) {
+			this.method = method;
+		}
+
+		@Override
+		public boolean isSource(Stmt sCallSite, InterproceduralCFG<Unit, SootMethod> cfg) {
+			if (!(sCallSite instanceof IdentityStmt))
+				return false;
+			Value rightOp = ((IdentityStmt) sCallSite).getRightOp();
+			if (!(rightOp instanceof ThisRef || rightOp instanceof ParameterRef))
+				return false;
+			return cfg.getMethodOf(sCallSite) == method;
+		}
+
+		@Override
+		public boolean isSink(Stmt sCallSite, InterproceduralCFG<Unit, SootMethod> cfg) {
+			return false;
+		}
+
+	}
+
+	/**
+	 * Creates a new instance of the {@link SummaryGenerator} class
+	 * @param methodSignatures The signatures of the methods to summarize
+	 * @param outputFile The file to which to write the summaries, or null if
+	 * the summaries shall only be kept in memory
+	 */
+	public SummaryGenerator(List<String> methodSignatures, File outputFile) {
+		this.methodSignatures = methodSignatures;
+		this.outputFile = outputFile;
+	}
+
+	/**
+	 * Sets the taint wrapper to use for calls inside the summarized methods,
+	 * e.g. for native or phantom callees
+	 * @param wrapper The taint wrapper to use, or null for none
+	 */
+	public void setTaintWrapper(ITaintPropagationWrapper wrapper) {
+		this.taintWrapper = wrapper;
+	}
+
+	/**
+	 * Sets the number of threads to use for analyzing a single method
+	 * @param numThreads The number of threads, or a value smaller than one
+	 * for the default of the solver
+	 */
+	public void setNumThreads(int numThreads) {
+		this.numThreads = numThreads;
+	}
+
+	@Override
+	protected void internalTransform(String phaseName, @SuppressWarnings("rawtypes") Map options) {
+		InterproceduralCFG<Unit, SootMethod> icfg = new JimpleBasedBiDiICFG();
+		for (String sig : methodSignatures) {
+			if (!Scene.v().containsMethod(sig)) {
+				logger.warn("Method {} not found, no summary created", sig);
+				continue;
+			}
+			SootMethod m = Scene.v().getMethod(sig);
+			MethodSummary summary = summarize(m, icfg);
+			if (summary != null) {
+				summaries.put(sig, summary);
+				logger.debug("Summary for {}: {}", sig, summary);
+			}
+		}
+		logger.info("Created {} method summaries", summaries.size());
+
+		if (outputFile != null)
+			try {
+				SummaryTaintWrapper.writeSummaries(summaries, outputFile);
+			}
+			catch (IOException ex) {
+				logger.error("Could not write summary file {}", outputFile, ex);
+			}
+	}
+
+	/**
+	 * Computes the summary of a single method
+	 * @param m The method to summarize
+	 * @param icfg The interprocedural control flow graph. It must contain
+	 * the method and its callees.
+	 * @return The summary of the method, or null if the method has no body
+	 */
+	public MethodSummary summarize(SootMethod m, InterproceduralCFG<Unit, SootMethod> icfg) {
+		if (!m.isConcrete())
+			return null;
+		Body body = m.retrieveActiveBody();
+
+		InfoflowProblem forwardProblem = new InfoflowProblem(icfg, new ParameterSourceManager(m));
+		forwardProblem.setTaintWrapper(taintWrapper);
+		forwardProblem.initialSeeds().put(body.getUnits().getFirst(),
+				Collections.singleton(forwardProblem.zeroValue()));
+
+		int threadCount = numThreads > 0 ? numThreads : forwardProblem.numThreads();
+		CountingThreadPoolExecutor executor = new SharedQueueExecutor(threadCount);
+		InfoflowSolver forwardSolver = new InfoflowSolver(forwardProblem, false, executor);
+		BackwardsInfoflowProblem backProblem = new BackwardsInfoflowProblem();
+		InfoflowSolver backSolver = new InfoflowSolver(backProblem, false, executor);
+		forwardProblem.setBackwardSolver(backSolver);
+		backProblem.setForwardSolver(forwardSolver);
+		backProblem.setTaintWrapper(taintWrapper);
+
+		forwardSolver.solve();
+
+		// The taints at the exit statements tell where the data of the
+		// parameters has gone
+		MethodSummary summary = new MethodSummary();
+		Local thisLocal = m.isStatic() ? null : body.getThisLocal();
+		for (Unit u : body.getUnits()) {
+			if (!icfg.isExitStmt(u))
+				continue;
+			Value retVal = u instanceof ReturnStmt ? ((ReturnStmt) u).getOp() : null;
+			for (Abstraction abs : forwardSolver.ifdsResultsAt(u)) {
+				if (!abs.isAbstractionActive())
+					continue;
+				int from = getSourcePosition(abs.getSource());
+				if (from < MethodSummary.BASE)
+					continue;
+
+				AccessPath ap = abs.getAccessPath();
+				Value val = ap.getPlainValue();
+				if (val == null)
+					continue;
+
+				// The return value counts as a whole, everything else only
+				// if the data has been written into the heap, i.e. into a
+				// field or into the contents of an array
+				if (val.equals(retVal))
+					summary.addFlow(from, MethodSummary.RETURN);
+				if (!ap.isInstanceFieldRef() && !(val.getType() instanceof ArrayType))
+					continue;
+				if (val.equals(thisLocal))
+					summary.addFlow(from, MethodSummary.BASE);
+				for (int i = 0; i < m.getParameterCount(); i++)
+					if (val.equals(body.getParameterLocal(i)))
+						summary.addFlow(from, i);
+			}
+		}
+		return summary;
+	}
+
+	/**
+	 * Gets the position in the summary that corresponds to the source value
+	 * of a taint
+	 * @param source The source value of the taint
+	 * @return The position of the source, or a value smaller than
+	 * MethodSummary.BASE if the taint does not come from the base object or
+	 * a parameter
+	 */
+	private int getSourcePosition(Value source) {
+		if (source instanceof ThisRef)
+			return MethodSummary.BASE;
+		if (source instanceof ParameterRef)
+			return ((ParameterRef) source).getIndex();
+		return Integer.MIN_VALUE;
+	}
+
+	/**
+	 * Gets the summaries created so far
+	 * @return A mapping from method signatures to method summaries
+	 */
+	public Map<String, MethodSummary> getSummaries() {
+		return Collections.unmodifiableMap(summaries);
+	}
+
+}
@@ -0,0 +1,258 @@
+package soot.jimple.infoflow.taintWrappers;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileReader;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Set;
+
+import soot.Local;
+import soot.SootMethod;
+import soot.Value;
+import soot.jimple.AssignStmt;
+import soot.jimple.InstanceInvokeExpr;
+import soot.jimple.InvokeExpr;
+import soot.jimple.Stmt;
+import soot.jimple.infoflow.data.AccessPath;
+import soot.jimple.infoflow.data.AccessPathStore;
+import soot.jimple.infoflow.util.SceneCache;
+
+/**
+ * Taint wrapper that replays the method summaries created by the
+ * {@link SummaryGenerator}. Calls to summarized methods are not analyzed.
+ * Instead, a tainted base object or parameter taints all positions to which
+ * the summary says its data flows. The tainted value itself stays tainted.
+ * Taints that are neither the base object nor a parameter of the call, in
+ * particular taints on static fields, are not covered by the summaries. For
+ * them, the wrapper is not exclusive and the callee is analyzed as usual.
+ *
+ * The summary file contains one line per flow. Each line consists of the
+ * signature of the method, the source position and the target position,
+ * separated by tabs. Positions are BASE, RETURN, or P followed by the index
+ * of a parameter. A line with only a signature records a method through
+ * which no data flows. Lines starting with a hash are comments.
+ */
+public class SummaryTaintWrapper implements IFilteringTaintWrapper {
+
+	private static final MethodSummary NO_SUMMARY = new MethodSummary();
+
+	private final Map<String, MethodSummary> summaries;
+
+	/**
+	 * The summaries of the methods seen so far, or NO_SUMMARY for methods
+	 * without a summary. The cache is dropped when Soot is reset.
+	 */
+	private final SceneCache<SootMethod, MethodSummary> methodSummaries =
+			new SceneCache<SootMethod, MethodSummary>();
+
+	/**
+	 * Creates a new instance of the {@link SummaryTaintWrapper} class
+	 * @param summaries A mapping from method signatures to method summaries
+	 */
+	public SummaryTaintWrapper(Map<String, MethodSummary> summaries) {
+		this.summaries = new HashMap<String, MethodSummary>(summaries);
+	}
+
+	/**
+	 * Creates a new instance of the {@link SummaryTaintWrapper} class and
+	 * loads the summaries from the given file
+	 * @param f The file from which to load the summaries
+	 * @throws IOException Thrown if the file cannot be read or is malformed
+	 */
+	public SummaryTaintWrapper(File f) throws IOException {
+		this(readSummaries(f));
+	}
+
+	/**
+	 * Reads method summaries from the given file
+	 * @param f The file from which to read the summaries
+	 * @return A mapping from method signatures to method summaries
+	 * @throws IOException Thrown if the file cannot be read or is malformed
+	 */
+	public static Map<String, MethodSummary> readSummaries(File f) throws IOException {
+		Map<String, MethodSummary> summaries = new HashMap<String, MethodSummary>();
+		BufferedReader reader = null;
+		try {
+			reader = new BufferedReader(new FileReader(f));
+			String line;
+			int lineNum = 0;
+			while ((line = reader.readLine()) != null) {
+				lineNum++;
+				if (line.trim().isEmpty() || line.startsWith("#"))
+					continue;
+
+				String[] parts = line.split("\t");
+				if (parts.length != 1 && parts.length != 3)
+					throw new IOException("Malformed summary in line " + lineNum + ": " + line);
+
+				MethodSummary summary = summaries.get(parts[0]);
+				if (summary == null) {
+					summary = new MethodSummary();
+					summaries.put(parts[0], summary);
+				}
+				if (parts.length == 3)
+					try {
+						summary.addFlow(MethodSummary.parsePosition(parts[1]),
+								MethodSummary.parsePosition(parts[2]));
+					}
+					catch (IllegalArgumentException ex) {
+						throw new IOException("Malformed summary in line " + lineNum + ": " + line, ex);
+					}
+			}
+		}
+		finally {
+			if (reader != null)
+				reader.close();
+		}
+		return summaries;
+	}
+
+	/**
+	 * Writes method summaries to the given file
+	 * @param summaries A mapping from method signatures to method summaries
+	 * @param f The file to write
+	 * @throws IOException Thrown if the file cannot be written
+	 */
+	public static void writeSummaries(Map<String, MethodSummary> summaries, File f) throws IOException {
+		BufferedWriter writer = null;
+		try {
+			writer = new BufferedWriter(new FileWriter(f));
+			for (Entry<String, MethodSummary> entry : summaries.entrySet()) {
+				MethodSummary summary = entry.getValue();
+				if (summary.isEmpty()) {
+					writer.write(entry.getKey());
+					writer.newLine();
+					continue;
+				}
+				for (Integer from : summary.getSources())
+					for (Integer to : summary.getTargets(from)) {
+						writer.write(entry.getKey());
+						writer.write('\t');
+						writer.write(MethodSummary.positionToString(from));
+						writer.write('\t');
+						writer.write(MethodSummary.positionToString(to));
+						writer.newLine();
+					}
+			}
+			writer.flush();
+		}
+		finally {
+			if (writer != null)
+				writer.close();
+		}
+	}
+
+	/**
+	 * Gets the summary of the given method
+	 * @param method The method for which to get the summary
+	 * @return The summary of the given method, or null if there is none
+	 */
+	public MethodSummary getSummary(SootMethod method) {
+		MethodSummary summary = methodSummaries.get(method);
+		if (summary == null) {
+			summary = summaries.get(method.getSignature());
+			if (summary == null)
+				summary = NO_SUMMARY;
+			methodSummaries.putIfAbsent(method, summary);
+		}
+		return summary == NO_SUMMARY ? null : summary;
+	}
+
+	@Override
+	public Set<AccessPath> getTaintsForMethod(Stmt stmt, AccessPath taintedPath) {
+		if (!stmt.containsInvokeExpr())
+			return Collections.emptySet();
+		MethodSummary summary = getSummary(stmt.getInvokeExpr().getMethod());
+		if (summary == null)
+			return Collections.emptySet();
+
+		InvokeExpr iexpr = stmt.getInvokeExpr();
+		Value tainted = taintedPath.getPlainValue();
+		if (!isCallPosition(iexpr, tainted))
+			return Collections.emptySet();
+
+		Set<AccessPath> taints = new HashSet<AccessPath>();
+		if (iexpr instanceof InstanceInvokeExpr
+				&& ((InstanceInvokeExpr) iexpr).getBase().equals(tainted))
+			addTargetTaints(stmt, summary.getTargets(MethodSummary.BASE), taints);
+		for (int i = 0; i < iexpr.getArgCount(); i++)
+			if (iexpr.getArg(i).equals(tainted))
+				addTargetTaints(stmt, summary.getTargets(i), taints);
+
+		// The tainted value as such stays tainted
+		taints.add(taintedPath);
+		return taints;
+	}
+
+	/**
+	 * Adds taints for the given target positions of a call
+	 * @param stmt The call statement
+	 * @param targets The positions to taint
+	 * @param taints The set to which to add the new taints
+	 */
+	private void addTargetTaints(Stmt stmt, Set<Integer> targets, Set<AccessPath> taints) {
+		InvokeExpr iexpr = stmt.getInvokeExpr();
+		for (int to : targets) {
+			Value val = null;
+			if (to == MethodSummary.BASE) {
+				if (iexpr instanceof InstanceInvokeExpr)
+					val = ((InstanceInvokeExpr) iexpr).getBase();
+			}
+			else if (to == MethodSummary.RETURN) {
+				if (stmt instanceof AssignStmt)
+					val = ((AssignStmt) stmt).getLeftOp();
+			}
+			else if (to < iexpr.getArgCount())
+				val = iexpr.getArg(to);
+
+			// Constants cannot be tainted
+			if (val instanceof Local)
+				taints.add(AccessPathStore.v().getAccessPath(val));
+		}
+	}
+
+	/**
+	 * Checks whether the given value is the base object or one of the
+	 * arguments of the given call
+	 * @param iexpr The call to check
+	 * @param tainted The tainted value, or null for a static field
+	 * @return True if the value is the base object or an argument of the
+	 * call, otherwise false
+	 */
+	private boolean isCallPosition(InvokeExpr iexpr, Value tainted) {
+		if (tainted == null)
+			return false;
+		if (iexpr instanceof InstanceInvokeExpr
+				&& ((InstanceInvokeExpr) iexpr).getBase().equals(tainted))
+			return true;
+		return iexpr.getArgs().contains(tainted);
+	}
+
+	@Override
+	public boolean isExclusive(Stmt stmt, AccessPath taintedPath) {
+		return stmt.containsInvokeExpr()
+				&& getSummary(stmt.getInvokeExpr().getMethod()) != null
+				&& isCallPosition(stmt.getInvokeExpr(), taintedPath.getPlainValue());
+	}
+
+	@Override
+	public boolean supportsCallee(SootMethod callee) {
+		return getSummary(callee) != null;
+	}
+
+	/**
+	 * Gets the number of methods for which this taint wrapper has summaries
+	 * @return The number of summarized methods
+	 */
+	public int getSummaryCount() {
+		return summaries.size();
+	}
+
+}
@@ -1,43 +1,217 @@
 package soot.jimple.infoflow.taintWrappers;
 
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
 
+import soot.SootMethod;
 import soot.jimple.Stmt;
 import soot.jimple.infoflow.data.AccessPath;
+import soot.jimple.infoflow.util.SceneCache;
 
 /**
  * Set of taint wrappers. It supports taint wrapping for a class if at least one
  * of the contained wrappers supports it. The resulting taints are the union of
  * all taints produced by the contained wrappers.
  * 
+ * The wrappers are queried in the order of their costs, cheapest first, and
+ * in the order in which they were added if their costs are equal. Wrappers
+ * implementing {@link IFilteringTaintWrapper} are skipped for callees they
+ * do not support. If statistics are enabled, the set counts for every
+ * wrapper how often it was queried, how often it produced taints or was
+ * exclusive, and how much time it took. Statistics are disabled by default,
+ * since reading the clock around every query costs more than many of the
+ * queries themselves.
+ * 
  * @author Steven Arzt
  */
 public class TaintWrapperSet implements ITaintPropagationWrapper {
 
-	private Set<ITaintPropagationWrapper> wrappers = new HashSet<ITaintPropagationWrapper>();
-	
+	/**
+	 * A wrapper in the set together with its cost and its statistics
+	 */
+	private static class Member {
+		private final ITaintPropagationWrapper wrapper;
+		private final int cost;
+		private final AtomicLong calls = new AtomicLong();
+		private final AtomicLong hits = new AtomicLong();
+		private final AtomicLong time = new AtomicLong();
+
+		public Member(ITaintPropagationWrapper wrapper, int cost) {
+			this.wrapper = wrapper;
+			this.cost = cost;
+		}
+
+		public void record(long startTime, boolean hit) {
+			time.addAndGet(System.nanoTime() - startTime);
+			calls.incrementAndGet();
+			if (hit)
+				hits.incrementAndGet();
+		}
+	}
+
+	private static final Member[] NO_MEMBERS = new Member[0];
+
+	private volatile Member[] members = NO_MEMBERS;
+	private volatile boolean collectStatistics = false;
+
+	/**
+	 * The members that may apply to calls of a callee
+	 */
+	private final SceneCache<SootMethod, Member[]> calleeMembers =
+			new SceneCache<SootMethod, Member[]>();
+
 	/**
 	 * Adds the given wrapper to the chain of wrappers.
 	 * @param wrapper The wrapper to add to the chain.
 	 */
 	public void addWrapper(ITaintPropagationWrapper wrapper) {
-		this.wrappers.add(wrapper);
+		addWrapper(wrapper, 0);
+	}
+
+	/**
+	 * Adds the given wrapper to the chain of wrappers. Wrappers with lower
+	 * costs are queried first.
+	 * @param wrapper The wrapper to add to the chain.
+	 * @param cost The relative cost of querying the wrapper
+	 */
+	public synchronized void addWrapper(ITaintPropagationWrapper wrapper, int cost) {
+		if (getMember(wrapper) != null)
+			return;
+		List<Member> newMembers = new ArrayList<Member>(members.length + 1);
+		Collections.addAll(newMembers, members);
+		int pos = newMembers.size();
+		while (pos > 0 && newMembers.get(pos - 1).cost > cost)
+			pos--;
+		newMembers.add(pos, new Member(wrapper, cost));
+		this.members = newMembers.toArray(new Member[newMembers.size()]);
+		this.calleeMembers.clear();
 	}
 
+	/**
+	 * Sets whether this set shall collect statistics about its wrappers
+	 * @param collectStatistics True if the calls, hits and time of every
+	 * wrapper shall be recorded, otherwise false
+	 */
+	public void setCollectStatistics(boolean collectStatistics) {
+		this.collectStatistics = collectStatistics;
+	}
+
+	/**
+	 * Gets the wrappers that may apply to calls to the given method
+	 * @param stmt The call statement
+	 * @return The wrappers to query for the given call, in order
+	 */
+	private Member[] getMembers(Stmt stmt) {
+		if (!stmt.containsInvokeExpr())
+			return members;
+		SootMethod callee = stmt.getInvokeExpr().getMethod();
+		Member[] applicable = calleeMembers.get(callee);
+		if (applicable == null) {
+			List<Member> memberList = new ArrayList<Member>();
+			for (Member m : members)
+				if (!(m.wrapper instanceof IFilteringTaintWrapper)
+						|| ((IFilteringTaintWrapper) m.wrapper).supportsCallee(callee))
+					memberList.add(m);
+			applicable = memberList.toArray(new Member[memberList.size()]);
+			calleeMembers.putIfAbsent(callee, applicable);
+		}
+		return applicable;
+	}
+
+	/**
+	 * Gets the union of the taints produced by all wrappers. If only one
+	 * wrapper produces taints, its set is returned as it is, so the result
+	 * must not be modified.
+	 */
 	@Override
 	public Set<AccessPath> getTaintsForMethod(Stmt stmt, AccessPath taintedPath) {
-		Set<AccessPath> resList = new HashSet<AccessPath>();
-		for (ITaintPropagationWrapper w : this.wrappers)
-			resList.addAll(w.getTaintsForMethod(stmt, taintedPath));
-		return new HashSet<AccessPath>(resList);
+		boolean statistics = collectStatistics;
+		Set<AccessPath> firstResult = null;
+		Set<AccessPath> resList = null;
+		for (Member m : getMembers(stmt)) {
+			long startTime = statistics ? System.nanoTime() : 0;
+			Set<AccessPath> taints = m.wrapper.getTaintsForMethod(stmt, taintedPath);
+			boolean hit = taints != null && !taints.isEmpty();
+			if (statistics)
+				m.record(startTime, hit);
+			if (!hit)
+				continue;
+
+			// We only need a new set if more than one wrapper produces taints
+			if (firstResult == null)
+				firstResult = taints;
+			else {
+				if (resList == null)
+					resList = new HashSet<AccessPath>(firstResult);
+				resList.addAll(taints);
+			}
+		}
+		if (resList != null)
+			return resList;
+		if (firstResult != null)
+			return firstResult;
+		return Collections.emptySet();
 	}
 
 	@Override
 	public boolean isExclusive(Stmt stmt, AccessPath taintedPath) {
-		for (ITaintPropagationWrapper w : this.wrappers)
-			if (w.isExclusive(stmt, taintedPath))
+		boolean statistics = collectStatistics;
+		for (Member m : getMembers(stmt)) {
+			long startTime = statistics ? System.nanoTime() : 0;
+			boolean exclusive = m.wrapper.isExclusive(stmt, taintedPath);
+			if (statistics)
+				m.record(startTime, exclusive);
+			if (exclusive)
 				return true;
+		}
 		return false;
 	}
+
+	private Member getMember(ITaintPropagationWrapper wrapper) {
+		for (Member m : members)
+			if (m.wrapper == wrapper)
+				return m;
+		return null;
+	}
+
+	/**
+	 * Gets how often the given wrapper has been queried while statistics
+	 * were enabled
+	 * @param wrapper The wrapper
+	 * @return The number of queries, or -1 if the wrapper is not contained
+	 * in this set
+	 */
+	public long getCallCount(ITaintPropagationWrapper wrapper) {
+		Member m = getMember(wrapper);
+		return m == null ? -1 : m.calls.get();
+	}
+
+	/**
+	 * Gets how often the given wrapper has produced taints or has been
+	 * exclusive while statistics were enabled
+	 * @param wrapper The wrapper
+	 * @return The number of hits, or -1 if the wrapper is not contained in
+	 * this set
+	 */
+	public long getHitCount(ITaintPropagationWrapper wrapper) {
+		Member m = getMember(wrapper);
+		return m == null ? -1 : m.hits.get();
+	}
+
+	/**
+	 * Gets the total time the given wrapper has spent answering queries while
+	 * statistics were enabled
+	 * @param wrapper The wrapper
+	 * @return The time in nanoseconds, or -1 if the wrapper is not contained
+	 * in this set
+	 */
+	public long getTime(ITaintPropagationWrapper wrapper) {
+		Member m = getMember(wrapper);
+		return m == null ? -1 : m.time.get();
+	}
+
 }
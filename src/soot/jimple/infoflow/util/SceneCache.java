@@ -0,0 +1,85 @@
+package soot.jimple.infoflow.util;
+
+import java.lang.ref.WeakReference;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import soot.Scene;
+
+/**
+ * Concurrent cache for data computed from Soot objects such as methods or
+ * classes. These objects belong to one Scene, which is replaced whenever
+ * Soot is reset, e.g. at the start of every analysis run. When the cache is
+ * used with a new Scene, it drops all of its entries. Objects that are used
+ * across several runs therefore neither keep old Scenes alive through their
+ * caches nor fill them with entries that can never match again.
+ *
+ * @param <K> The type of the keys
+ * @param <V> The type of the cached values
+ */
+public class SceneCache<K, V> {
+
+	private final ConcurrentMap<K, V> entries = new ConcurrentHashMap<K, V>();
+
+	/**
+	 * The Scene to which the current entries belong. The reference is weak,
+	 * so the cache itself does not keep the Scene alive.
+	 */
+	private volatile WeakReference<Scene> scene = new WeakReference<Scene>(null);
+
+	/**
+	 * Drops all entries if the current Scene is not the one to which they
+	 * belong
+	 */
+	private void checkScene() {
+		Scene current = Scene.v();
+		if (scene.get() == current)
+			return;
+		synchronized (this) {
+			if (scene.get() != current) {
+				entries.clear();
+				scene = new WeakReference<Scene>(current);
+			}
+		}
+	}
+
+	/**
+	 * Gets the value cached for the given key
+	 * @param key The key to look up
+	 * @return The cached value, or null if there is none for the current
+	 * Scene
+	 */
+	public V get(K key) {
+		checkScene();
+		return entries.get(key);
+	}
+
+	/**
+	 * Caches the given value unless there already is one for the given key
+	 * @param key The key for which to cache the value
+	 * @param value The value to cache
+	 * @return The value that was already cached for the given key, or null
+	 * if the given value has been added
+	 */
+	public V putIfAbsent(K key, V value) {
+		checkScene();
+		return entries.putIfAbsent(key, value);
+	}
+
+	/**
+	 * Removes all entries from this cache
+	 */
+	public void clear() {
+		entries.clear();
+	}
+
+	/**
+	 * Gets the number of entries in this cache
+	 * @return The number of entries
+	 */
+	public int size() {
+		checkScene();
+		return entries.size();
+	}
+
+}
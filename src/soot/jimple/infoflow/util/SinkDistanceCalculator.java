@@ -0,0 +1,63 @@
+package soot.jimple.infoflow.util;
+
+import java.util.ArrayDeque;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Queue;
+
+import soot.SootMethod;
+import soot.jimple.toolkits.callgraph.CallGraph;
+import soot.jimple.toolkits.callgraph.Edge;
+
+/**
+ * SinkDistanceCalculator computes how many call graph edges lie between a
+ * method and the nearest method that contains a sink
+ */
+public class SinkDistanceCalculator {
+
+	/**
+	 * Computes the distance of every method to the nearest method containing
+	 * a sink. Taints can flow into callees as well as back into callers, so
+	 * call edges are followed in both directions.
+	 * @param callGraph The call graph to traverse
+	 * @param sinkMethods The methods that contain at least one sink
+	 * @return A map from each method from which a sink method can be reached
+	 * to its distance. Sink methods have a distance of zero, methods that are
+	 * not connected to any sink method are not contained in the map.
+	 */
+	public static Map<SootMethod, Integer> computeDistances(CallGraph callGraph,
+			Collection<SootMethod> sinkMethods) {
+		Map<SootMethod, Integer> distances = new HashMap<SootMethod, Integer>();
+		Queue<SootMethod> worklist = new ArrayDeque<SootMethod>();
+		for (SootMethod sm : sinkMethods)
+			if (!distances.containsKey(sm)) {
+				distances.put(sm, 0);
+				worklist.add(sm);
+			}
+
+		// Breadth-first search from all sink methods at once, so every method
+		// is reached first through its shortest path
+		while (!worklist.isEmpty()) {
+			SootMethod sm = worklist.poll();
+			int newDistance = distances.get(sm) + 1;
+			for (Iterator<Edge> edgeIt = callGraph.edgesInto(sm); edgeIt.hasNext(); ) {
+				SootMethod caller = edgeIt.next().src();
+				if (caller != null && !distances.containsKey(caller)) {
+					distances.put(caller, newDistance);
+					worklist.add(caller);
+				}
+			}
+			for (Iterator<Edge> edgeIt = callGraph.edgesOutOf(sm); edgeIt.hasNext(); ) {
+				SootMethod callee = edgeIt.next().tgt();
+				if (callee != null && !distances.containsKey(callee)) {
+					distances.put(callee, newDistance);
+					worklist.add(callee);
+				}
+			}
+		}
+		return distances;
+	}
+
+}
@@ -0,0 +1,156 @@
+package soot.jimple.infoflow.util;
+
+import java.util.ArrayDeque;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.Queue;
+import java.util.Set;
+
+import soot.MethodOrMethodContext;
+import soot.SootMethod;
+import soot.Unit;
+import soot.jimple.ArrayRef;
+import soot.jimple.DefinitionStmt;
+import soot.jimple.FieldRef;
+import soot.jimple.Stmt;
+import soot.jimple.ThrowStmt;
+import soot.jimple.toolkits.callgraph.CallGraph;
+import soot.jimple.toolkits.callgraph.Edge;
+import soot.jimple.toolkits.callgraph.ReachableMethods;
+
+/**
+ * SinkReachabilityAnalysis finds the methods in which a taint can neither
+ * reach a sink nor change the state of the caller. Such methods need not be
+ * analyzed when a tainted value is passed to them.
+ *
+ * A method can change the caller's state if it (or any method it calls)
+ * writes to a field or an array, throws an exception, or calls a method
+ * whose body is not available, since a taint wrapper or native call handler
+ * may taint arbitrary objects in that case. Return values are not covered
+ * here; calls whose result is used must always be analyzed.
+ */
+public class SinkReachabilityAnalysis {
+
+	private final Set<SootMethod> sinkReaching = new HashSet<SootMethod>();
+	private final Set<SootMethod> sideEffecting = new HashSet<SootMethod>();
+	private final Set<SootMethod> irrelevant = new HashSet<SootMethod>();
+
+	/**
+	 * Creates a new instance of the {@link SinkReachabilityAnalysis} class
+	 * and runs the analysis
+	 * @param callGraph The call graph of the program
+	 * @param reachableMethods The methods that are reachable from the entry
+	 * points
+	 * @param sinkMethods The methods that contain at least one sink
+	 */
+	public SinkReachabilityAnalysis(CallGraph callGraph, ReachableMethods reachableMethods,
+			Collection<SootMethod> sinkMethods) {
+		// Every caller of a method that can reach a sink can reach it, too
+		propagateToCallers(callGraph, sinkMethods, sinkReaching);
+
+		// Find the methods that directly change state outside their own
+		// locals and propagate this property to their callers
+		Set<SootMethod> methods = new HashSet<SootMethod>();
+		Set<SootMethod> directEffects = new HashSet<SootMethod>();
+		for (Iterator<MethodOrMethodContext> iter = reachableMethods.listener(); iter.hasNext(); ) {
+			SootMethod m = iter.next().method();
+			if (!m.hasActiveBody())
+				continue;
+			methods.add(m);
+			if (hasDirectSideEffects(callGraph, m))
+				directEffects.add(m);
+		}
+		propagateToCallers(callGraph, directEffects, sideEffecting);
+
+		for (SootMethod m : methods)
+			if (!sinkReaching.contains(m) && !sideEffecting.contains(m))
+				irrelevant.add(m);
+	}
+
+	/**
+	 * Adds the given methods and all of their transitive callers to the
+	 * given set
+	 * @param callGraph The call graph to traverse
+	 * @param start The methods to start from
+	 * @param result The set to which to add the methods
+	 */
+	private void propagateToCallers(CallGraph callGraph, Collection<SootMethod> start,
+			Set<SootMethod> result) {
+		Queue<SootMethod> worklist = new ArrayDeque<SootMethod>();
+		for (SootMethod sm : start)
+			if (result.add(sm))
+				worklist.add(sm);
+		while (!worklist.isEmpty()) {
+			SootMethod sm = worklist.poll();
+			for (Iterator<Edge> edgeIt = callGraph.edgesInto(sm); edgeIt.hasNext(); ) {
+				SootMethod caller = edgeIt.next().src();
+				if (caller != null && result.add(caller))
+					worklist.add(caller);
+			}
+		}
+	}
+
+	/**
+	 * Checks whether the given method itself may change any state that is
+	 * visible to its callers
+	 * @param callGraph The call graph of the program
+	 * @param m The method to check
+	 * @return True if the method may change state visible to its callers,
+	 * otherwise false
+	 */
+	private boolean hasDirectSideEffects(CallGraph callGraph, SootMethod m) {
+		for (Unit u : m.getActiveBody().getUnits()) {
+			Stmt s = (Stmt) u;
+			if (s instanceof ThrowStmt)
+				return true;
+			if (s instanceof DefinitionStmt) {
+				DefinitionStmt def = (DefinitionStmt) s;
+				if (def.getLeftOp() instanceof FieldRef || def.getLeftOp() instanceof ArrayRef)
+					return true;
+			}
+			if (s.containsInvokeExpr()) {
+				Iterator<Edge> edgeIt = callGraph.edgesOutOf(u);
+				if (!edgeIt.hasNext())
+					return true;
+				while (edgeIt.hasNext()) {
+					SootMethod callee = edgeIt.next().tgt();
+					if (callee == null || callee.isNative() || !callee.hasActiveBody())
+						return true;
+				}
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Checks whether the given method can reach a sink, either directly or
+	 * through one of its callees
+	 * @param m The method to check
+	 * @return True if the method can reach a sink, otherwise false
+	 */
+	public boolean canReachSink(SootMethod m) {
+		return sinkReaching.contains(m);
+	}
+
+	/**
+	 * Checks whether a taint passed into the given method can neither reach a
+	 * sink nor change the state of any caller
+	 * @param m The method to check
+	 * @return True if the method is known to be irrelevant for taints passed
+	 * into it, false if it might be relevant
+	 */
+	public boolean isIrrelevant(SootMethod m) {
+		return irrelevant.contains(m);
+	}
+
+	/**
+	 * Gets the number of methods that are irrelevant for taints passed into
+	 * them
+	 * @return The number of irrelevant methods
+	 */
+	public int getIrrelevantMethodCount() {
+		return irrelevant.size();
+	}
+
+}
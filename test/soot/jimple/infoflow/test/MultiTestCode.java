@@ -21,6 +21,22 @@ public class MultiTestCode {
 		cm.publish(msg);
 	}
 	
+	public void multiSourceSharedCallee(){
+		String tainted = TelephonyManager.getDeviceId();
+		AccountManager am = new AccountManager();
+		String pwd = am.getPassword();
+
+		String x = passThrough(tainted);
+		ConnectionManager cm = new ConnectionManager();
+		cm.publish(x);
+		String y = passThrough(pwd);
+		y.length();
+	}
+
+	private String passThrough(String msg) {
+		return msg;
+	}
+
 	private String pwd;
 
 	public void multiSourceCode2(){
@@ -21,6 +21,31 @@ public class OtherTestCode {
 		cm.publish(fclass.field);
 	}
 	
+	public void passOverIrrelevantCall(){
+		String tainted = TelephonyManager.getDeviceId();
+		ignore(tainted);
+
+		ConnectionManager cm = new ConnectionManager();
+		cm.publish(tainted);
+	}
+
+	private void ignore(String s){
+		String copy = s;
+		copy = null;
+	}
+
+	public void writeFieldInCallee(){
+		ClassWithField fclass = new ClassWithField();
+		setField(fclass, TelephonyManager.getDeviceId());
+
+		ConnectionManager cm = new ConnectionManager();
+		cm.publish(fclass.field);
+	}
+
+	private void setField(ClassWithField fclass, String s){
+		fclass.field = s;
+	}
+
 	public void genericsfinalconstructorProblem(){
 		String tainted = TelephonyManager.getDeviceId();
 		ClassWithFinal<String> c0 = new ClassWithFinal<String>(tainted, false);
@@ -0,0 +1,124 @@
+package soot.jimple.infoflow.test.benchmark;
+
+import heros.solver.CountingThreadPoolExecutor;
+
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import soot.jimple.infoflow.heros.SharedQueueExecutor;
+import soot.jimple.infoflow.heros.WorkStealingExecutor;
+
+/**
+ * Compares the throughput of the {@link SharedQueueExecutor} with the
+ * {@link WorkStealingExecutor} on a synthetic workload that mimics the two
+ * IFDS solvers: every task does a bit of work on a shared table, then
+ * schedules new tasks for itself and for the other solver.
+ *
+ * Usage: ExecutorBenchmark [threads] [depth] [fanout] [rounds]
+ */
+public class ExecutorBenchmark {
+
+	private final int depth;
+	private final int fanout;
+
+	private final Set<Long> jumpTable = java.util.Collections.newSetFromMap
+			(new ConcurrentHashMap<Long, Boolean>());
+	private final AtomicLong processed = new AtomicLong(0);
+
+	private ExecutorBenchmark(int depth, int fanout) {
+		this.depth = depth;
+		this.fanout = fanout;
+	}
+
+	/**
+	 * Synthetic edge-processing task. Even ids belong to the "forward" solver,
+	 * odd ids to the "backward" solver.
+	 */
+	private class EdgeTask implements Runnable {
+		private final CountingThreadPoolExecutor executor;
+		private final long id;
+		private final int level;
+
+		public EdgeTask(CountingThreadPoolExecutor executor, long id, int level) {
+			this.executor = executor;
+			this.id = id;
+			this.level = level;
+		}
+
+		@Override
+		public void run() {
+			// Some flow-function-like work
+			long h = id;
+			for (int i = 0; i < 200; i++)
+				h = h * 31 + (h >>> 7) + i;
+			jumpTable.add(h & 0xFFFFF);
+			processed.incrementAndGet();
+
+			if (level < depth)
+				for (int i = 0; i < fanout; i++)
+					executor.execute(new EdgeTask(executor, id * fanout + i, level + 1));
+		}
+	}
+
+	private double run(CountingThreadPoolExecutor executor) throws InterruptedException {
+		processed.set(0);
+		jumpTable.clear();
+
+		long before = System.nanoTime();
+		executor.execute(new EdgeTask(executor, 0, 0));
+		executor.execute(new EdgeTask(executor, 1, 0));
+		executor.awaitCompletion();
+		long duration = System.nanoTime() - before;
+		executor.shutdown();
+
+		if (executor.getException() != null)
+			throw new RuntimeException(executor.getException());
+		return processed.get() / (duration / 1e9);
+	}
+
+	private long expectedTasks() {
+		long total = 0;
+		long perLevel = 2;
+		for (int i = 0; i <= depth; i++) {
+			total += perLevel;
+			perLevel *= fanout;
+		}
+		return total;
+	}
+
+	public static void main(String[] args) throws InterruptedException {
+		int threads = args.length > 0 ? Integer.parseInt(args[0])
+				: Runtime.getRuntime().availableProcessors();
+		int depth = args.length > 1 ? Integer.parseInt(args[1]) : 9;
+		int fanout = args.length > 2 ? Integer.parseInt(args[2]) : 4;
+		int rounds = args.length > 3 ? Integer.parseInt(args[3]) : 5;
+
+		ExecutorBenchmark benchmark = new ExecutorBenchmark(depth, fanout);
+		System.out.println("Threads: " + threads + ", tasks per round: " + benchmark.expectedTasks());
+
+		double shared = 0;
+		double stealing = 0;
+		for (int round = 0; round <= rounds; round++) {
+			double s = benchmark.run(new SharedQueueExecutor(threads));
+			if (benchmark.processed.get() != benchmark.expectedTasks())
+				throw new RuntimeException("Shared queue terminated early");
+			double w = benchmark.run(new WorkStealingExecutor(threads));
+			if (benchmark.processed.get() != benchmark.expectedTasks())
+				throw new RuntimeException("Work stealing terminated early");
+
+			// The first round only warms up the JIT
+			if (round > 0) {
+				shared += s;
+				stealing += w;
+			}
+		}
+		shared /= rounds;
+		stealing /= rounds;
+
+		System.out.println(String.format("Shared queue:  %,.0f tasks/s", shared));
+		System.out.println(String.format("Work stealing: %,.0f tasks/s", stealing));
+		System.out.println(String.format("Speedup:       %.2fx", stealing / shared));
+	}
+
+}
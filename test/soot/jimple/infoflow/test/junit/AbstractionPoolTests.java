@@ -0,0 +1,48 @@
+package soot.jimple.infoflow.test.junit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+
+import org.junit.Test;
+
+import soot.Local;
+import soot.NullType;
+import soot.jimple.infoflow.data.Abstraction;
+import soot.jimple.infoflow.data.AbstractionPool;
+import soot.jimple.internal.JimpleLocal;
+/**
+ * checks that the abstraction pool only merges abstractions that are equal including their call edge abstractions
+ */
+public class AbstractionPoolTests {
+
+	@Test
+	public void internTest() {
+		Local local = new JimpleLocal("a", NullType.v());
+		Abstraction abs1 = new Abstraction(local, null, null, false, true, null);
+		Abstraction abs2 = new Abstraction(local, null, null, false, true, null);
+		AbstractionPool pool = new AbstractionPool();
+		assertSame(abs1, pool.intern(abs1));
+		assertSame(abs1, pool.intern(abs2));
+		assertEquals(1, pool.size());
+	}
+
+	@Test
+	public void callEdgeTest() {
+		Local local = new JimpleLocal("a", NullType.v());
+		Local other = new JimpleLocal("b", NullType.v());
+		Abstraction abs1 = new Abstraction(local, null, null, false, true, null);
+		abs1.setAbstractionFromCallEdge(new Abstraction(local, null, null, false, true, null));
+		Abstraction abs2 = new Abstraction(local, null, null, false, true, null);
+		abs2.setAbstractionFromCallEdge(new Abstraction(other, null, null, false, true, null));
+		Abstraction abs3 = new Abstraction(local, null, null, false, true, null);
+		abs3.setAbstractionFromCallEdge(new Abstraction(local, null, null, false, true, null));
+
+		AbstractionPool pool = new AbstractionPool();
+		assertSame(abs1, pool.intern(abs1));
+		assertNotSame(abs1, pool.intern(abs2));
+		assertSame(abs1, pool.intern(abs3));
+		assertEquals(2, pool.size());
+	}
+
+}
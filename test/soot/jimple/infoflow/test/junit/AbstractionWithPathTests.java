@@ -0,0 +1,42 @@
+package soot.jimple.infoflow.test.junit;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.Arrays;
+import java.util.Collections;
+
+import org.junit.Test;
+
+import soot.Local;
+import soot.NullType;
+import soot.Unit;
+import soot.jimple.infoflow.data.AbstractionWithPath;
+import soot.jimple.internal.JNopStmt;
+import soot.jimple.internal.JimpleLocal;
+/**
+ * checks that abstractions derived from the same abstraction share their path prefix, but do not see each
+ * other's later path elements
+ */
+public class AbstractionWithPathTests {
+
+	@Test
+	public void sharedPrefixTest() {
+		Local a = new JimpleLocal("a", NullType.v());
+		Local b = new JimpleLocal("b", NullType.v());
+		Unit u1 = new JNopStmt();
+		Unit u2 = new JNopStmt();
+		Unit u3 = new JNopStmt();
+
+		AbstractionWithPath root = new AbstractionWithPath(a, null, null, false, true, null);
+		root.addPathElement(u1);
+		AbstractionWithPath left = (AbstractionWithPath) root.deriveNewAbstraction(a, null);
+		left.addPathElement(u2);
+		AbstractionWithPath right = (AbstractionWithPath) root.deriveNewAbstraction(b, null);
+		right.addPathElement(u3);
+
+		assertEquals(Collections.singletonList(u1), root.getPropagationPath());
+		assertEquals(Arrays.asList(u1, u2), left.getPropagationPath());
+		assertEquals(Arrays.asList(u1, u3), right.getPropagationPath());
+	}
+
+}
@@ -0,0 +1,72 @@
+package soot.jimple.infoflow.test.junit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+
+import org.junit.Test;
+
+import soot.G;
+import soot.Local;
+import soot.NullType;
+import soot.Scene;
+import soot.SootField;
+import soot.jimple.infoflow.data.AccessPath;
+import soot.jimple.infoflow.data.AccessPathStore;
+import soot.jimple.internal.JimpleLocal;
+/**
+ * checks that the access path store hands out one access path per base value and fields
+ */
+public class AccessPathStoreTests {
+
+	@Test
+	public void canonicalTest() {
+		AccessPathStore.v().bindToScene(Scene.v());
+		Local a = new JimpleLocal("a", NullType.v());
+		Local b = new JimpleLocal("b", NullType.v());
+		SootField f = new SootField("f", NullType.v());
+
+		SootField[] fields = new SootField[] { f };
+		AccessPath canonical = AccessPathStore.v().getAccessPath(a, fields);
+		assertSame(canonical, AccessPathStore.v().getAccessPath(a, new SootField[] { f }));
+
+		// The store copies the array it is given
+		fields[0] = new SootField("g", NullType.v());
+		assertSame(f, canonical.getFirstField());
+
+		AccessPath copy = canonical.copyWithNewValue(b);
+		assertNotSame(canonical, copy);
+		assertFalse(canonical.equals(copy));
+		assertSame(copy, AccessPathStore.v().getAccessPath(b, new SootField[] { f }));
+		assertSame(canonical, copy.copyWithNewValue(a));
+		assertSame(canonical, canonical.clone());
+
+		// Access paths from before the store was cleared are only equal to
+		// themselves, but can be made canonical again
+		AccessPathStore.v().clear();
+		assertEquals(0, AccessPathStore.v().size());
+		AccessPath fresh = AccessPathStore.v().getAccessPath(a, new SootField[] { f });
+		assertFalse(canonical.equals(fresh));
+		assertSame(fresh, AccessPathStore.v().intern(canonical));
+	}
+
+	@Test
+	public void resetTest() {
+		Local a = new JimpleLocal("a", NullType.v());
+		AccessPathStore.v().bindToScene(Scene.v());
+		AccessPathStore.v().clear();
+		AccessPathStore.v().getAccessPath(a);
+		assertEquals(1, AccessPathStore.v().size());
+
+		// Binding the same Scene again keeps the access paths
+		AccessPathStore.v().bindToScene(Scene.v());
+		assertEquals(1, AccessPathStore.v().size());
+
+		// The store must not keep the access paths of an old Scene
+		G.reset();
+		AccessPathStore.v().bindToScene(Scene.v());
+		assertEquals(0, AccessPathStore.v().size());
+	}
+
+}
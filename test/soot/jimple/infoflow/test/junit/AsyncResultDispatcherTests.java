@@ -0,0 +1,124 @@
+package soot.jimple.infoflow.test.junit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Collections;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Test;
+
+import soot.Local;
+import soot.NullType;
+import soot.jimple.Stmt;
+import soot.jimple.infoflow.InfoflowResults;
+import soot.jimple.infoflow.InfoflowResults.SinkInfo;
+import soot.jimple.infoflow.InfoflowResults.SourceInfo;
+import soot.jimple.infoflow.handlers.AsyncResultDispatcher;
+import soot.jimple.infoflow.handlers.ResultFoundHandler;
+import soot.jimple.internal.JNopStmt;
+import soot.jimple.internal.JimpleLocal;
+/**
+ * checks that new results are streamed to the handlers without blocking the threads that record them
+ */
+public class AsyncResultDispatcherTests {
+
+	@Test(timeout=30000)
+	public void dispatchTest() throws InterruptedException {
+		final AtomicInteger count = new AtomicInteger();
+		ResultFoundHandler handler = new ResultFoundHandler() {
+
+			@Override
+			public void onResultFound(SinkInfo sink, SourceInfo source) {
+				count.incrementAndGet();
+			}
+
+		};
+		AsyncResultDispatcher dispatcher = new AsyncResultDispatcher(Collections.singleton(handler), 100);
+		InfoflowResults results = new InfoflowResults();
+		results.addResultFoundHandler(dispatcher);
+
+		Local sink = new JimpleLocal("sink", NullType.v());
+		Stmt sinkStmt = new JNopStmt();
+		Local source = new JimpleLocal("source", NullType.v());
+		Stmt sourceStmt = new JNopStmt();
+		results.addResult(sink, sinkStmt, source, sourceStmt);
+		results.addResult(sink, sinkStmt, source, sourceStmt);
+		results.addResult(sink, sinkStmt, new JimpleLocal("source2", NullType.v()), new JNopStmt());
+
+		assertTrue(dispatcher.shutdown(10000));
+		assertEquals(2, count.get());
+	}
+
+	@Test(timeout=30000)
+	public void fullQueueTest() throws InterruptedException {
+		final CountDownLatch release = new CountDownLatch(1);
+		ResultFoundHandler handler = new ResultFoundHandler() {
+
+			@Override
+			public void onResultFound(SinkInfo sink, SourceInfo source) {
+				try {
+					release.await();
+				}
+				catch (InterruptedException ex) {
+					Thread.currentThread().interrupt();
+				}
+			}
+
+		};
+		AsyncResultDispatcher dispatcher = new AsyncResultDispatcher(Collections.singleton(handler), 2);
+		Local sink = new JimpleLocal("sink", NullType.v());
+		Stmt sinkStmt = new JNopStmt();
+		Local source = new JimpleLocal("source", NullType.v());
+		Stmt sourceStmt = new JNopStmt();
+
+		// The handler blocks, so the queue fills up, but recording results
+		// must not block
+		for (int i = 0; i < 10; i++)
+			dispatcher.onResultFound(new SinkInfo(sink, sinkStmt), new SourceInfo(source, sourceStmt));
+		assertTrue(dispatcher.getDroppedResultCount() >= 7);
+
+		release.countDown();
+		assertTrue(dispatcher.shutdown(10000));
+	}
+
+	@Test(timeout=30000)
+	public void shutdownTimeoutTest() throws InterruptedException {
+		final CountDownLatch started = new CountDownLatch(1);
+		final CountDownLatch release = new CountDownLatch(1);
+		ResultFoundHandler handler = new ResultFoundHandler() {
+
+			@Override
+			public void onResultFound(SinkInfo sink, SourceInfo source) {
+				started.countDown();
+				try {
+					release.await();
+				}
+				catch (InterruptedException ex) {
+					Thread.currentThread().interrupt();
+				}
+			}
+
+		};
+		AsyncResultDispatcher dispatcher = new AsyncResultDispatcher(Collections.singleton(handler), 10);
+		SinkInfo sink = new SinkInfo(new JimpleLocal("sink", NullType.v()), new JNopStmt());
+		SourceInfo source = new SourceInfo(new JimpleLocal("source", NullType.v()), new JNopStmt());
+
+		// The first result blocks the handler, the others stay in the queue
+		dispatcher.onResultFound(sink, source);
+		started.await();
+		for (int i = 0; i < 4; i++)
+			dispatcher.onResultFound(sink, source);
+		assertEquals(0, dispatcher.getDroppedResultCount());
+
+		// The results still queued when the shutdown times out are dropped,
+		// and so are all results that arrive afterwards
+		assertFalse(dispatcher.shutdown(100));
+		assertEquals(4, dispatcher.getDroppedResultCount());
+		dispatcher.onResultFound(sink, source);
+		assertEquals(5, dispatcher.getDroppedResultCount());
+	}
+
+}
@@ -0,0 +1,58 @@
+package soot.jimple.infoflow.test.junit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import heros.InterproceduralCFG;
+
+import org.junit.Test;
+
+import soot.SootMethod;
+import soot.Unit;
+import soot.jimple.Stmt;
+import soot.jimple.infoflow.source.CachingSourceSinkManager;
+import soot.jimple.infoflow.source.ISourceSinkManager;
+import soot.jimple.internal.JNopStmt;
+/**
+ * checks that the underlying source/sink manager is only asked once per statement
+ */
+public class CachingSourceSinkManagerTests {
+
+	private static class CountingSourceSinkManager implements ISourceSinkManager {
+		private final Stmt source;
+		private int calls = 0;
+
+		public CountingSourceSinkManager(Stmt source) {
+			this.source = source;
+		}
+
+		@Override
+		public boolean isSource(Stmt sCallSite, InterproceduralCFG<Unit, SootMethod> cfg) {
+			calls++;
+			return sCallSite == source;
+		}
+
+		@Override
+		public boolean isSink(Stmt sCallSite, InterproceduralCFG<Unit, SootMethod> cfg) {
+			calls++;
+			return false;
+		}
+	}
+
+	@Test
+	public void cacheTest() {
+		Stmt source = new JNopStmt();
+		Stmt other = new JNopStmt();
+		CountingSourceSinkManager manager = new CountingSourceSinkManager(source);
+		CachingSourceSinkManager cache = new CachingSourceSinkManager(manager);
+
+		for (int i = 0; i < 10; i++) {
+			assertTrue(cache.isSource(source, null));
+			assertFalse(cache.isSink(source, null));
+			assertFalse(cache.isSource(other, null));
+		}
+		assertEquals(4, manager.calls);
+		assertEquals(2, cache.size());
+	}
+
+}
@@ -0,0 +1,209 @@
+package soot.jimple.infoflow.test.junit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import soot.G;
+import soot.Local;
+import soot.Modifier;
+import soot.RefType;
+import soot.Scene;
+import soot.SootClass;
+import soot.SootField;
+import soot.SootMethod;
+import soot.Type;
+import soot.Value;
+import soot.jimple.AssignStmt;
+import soot.jimple.InstanceInvokeExpr;
+import soot.jimple.Jimple;
+import soot.jimple.Stmt;
+import soot.jimple.infoflow.data.AccessPath;
+import soot.jimple.infoflow.data.AccessPathStore;
+import soot.jimple.infoflow.taintWrappers.CachingTaintWrapper;
+import soot.jimple.infoflow.taintWrappers.ITaintPropagationWrapper;
+import soot.jimple.internal.JimpleLocal;
+/**
+ * checks that the caching taint wrapper gives the same answers as the wrapper it caches, and that it only asks
+ * that wrapper once per callee and tainted position
+ */
+public class CachingTaintWrapperTests {
+
+	/**
+	 * Wrapper for methods of the form <code>Object m(Object)</code>: a tainted
+	 * argument taints the base object and the return value. Methods without
+	 * a rule get a null answer.
+	 */
+	private static class CountingTaintWrapper implements ITaintPropagationWrapper {
+		private final Set<SootMethod> unknownMethods = new HashSet<SootMethod>();
+		private int calls = 0;
+
+		@Override
+		public Set<AccessPath> getTaintsForMethod(Stmt stmt, AccessPath taintedPath) {
+			calls++;
+			if (unknownMethods.contains(stmt.getInvokeExpr().getMethod()))
+				return null;
+			Set<AccessPath> taints = new HashSet<AccessPath>();
+			taints.add(taintedPath);
+			InstanceInvokeExpr iexpr = (InstanceInvokeExpr) stmt.getInvokeExpr();
+			if (!taintedPath.isStaticFieldRef() && iexpr.getArgs().contains(taintedPath.getPlainValue())) {
+				taints.add(taintedPath.copyWithNewValue(iexpr.getBase()));
+				if (stmt instanceof AssignStmt)
+					taints.add(AccessPathStore.v().getAccessPath(((AssignStmt) stmt).getLeftOp()));
+			}
+			return taints;
+		}
+
+		@Override
+		public boolean isExclusive(Stmt stmt, AccessPath taintedPath) {
+			return true;
+		}
+	}
+
+	private SootClass testClass;
+	private SootField field;
+	private SootField staticField;
+
+	@Before
+	public void resetSoot() {
+		G.reset();
+		AccessPathStore.v().bindToScene(Scene.v());
+		testClass = new SootClass("a.C", Modifier.PUBLIC);
+		Scene.v().addClass(testClass);
+		field = new SootField("f", RefType.v("java.lang.Object"));
+		testClass.addField(field);
+		staticField = new SootField("s", RefType.v("java.lang.Object"), Modifier.STATIC);
+		testClass.addField(staticField);
+	}
+
+	private SootMethod addMethod(String name) {
+		SootMethod sm = new SootMethod(name, Collections.<Type>singletonList(RefType.v("java.lang.Object")),
+				RefType.v("java.lang.Object"), Modifier.PUBLIC);
+		testClass.addMethod(sm);
+		return sm;
+	}
+
+	private static Local local(String name) {
+		return new JimpleLocal(name, RefType.v("java.lang.Object"));
+	}
+
+	private static Stmt call(Local result, Local base, SootMethod callee, Value... args) {
+		return Jimple.v().newAssignStmt(result,
+				Jimple.v().newVirtualInvokeExpr(base, callee.makeRef(), Arrays.asList(args)));
+	}
+
+	@Test
+	public void rebaseTest() {
+		SootMethod m = addMethod("m");
+		CountingTaintWrapper wrapped = new CountingTaintWrapper();
+		CachingTaintWrapper cache = new CachingTaintWrapper(wrapped, 1000);
+
+		Local a1 = local("a1");
+		Stmt first = call(local("r1"), local("b1"), m, a1);
+		AccessPath firstTaint = AccessPathStore.v().getAccessPath(a1);
+		assertEquals(new CountingTaintWrapper().getTaintsForMethod(first, firstTaint),
+				cache.getTaintsForMethod(first, firstTaint));
+		assertEquals(1, wrapped.calls);
+
+		// Another call site with other locals is answered from the cache, the
+		// taints are moved onto its locals
+		Local a2 = local("a2");
+		Stmt second = call(local("r2"), local("b2"), m, a2);
+		AccessPath secondTaint = AccessPathStore.v().getAccessPath(a2);
+		assertEquals(new CountingTaintWrapper().getTaintsForMethod(second, secondTaint),
+				cache.getTaintsForMethod(second, secondTaint));
+		assertEquals(1, wrapped.calls);
+		assertTrue(cache.isExclusive(second, secondTaint));
+
+		// The same fields on a tainted base are a different question
+		Local b3 = local("b3");
+		Stmt third = call(local("r3"), b3, m, local("a3"));
+		AccessPath thirdTaint = AccessPathStore.v().getAccessPath(Jimple.v().newInstanceFieldRef(b3, field.makeRef()));
+		assertEquals(new CountingTaintWrapper().getTaintsForMethod(third, thirdTaint),
+				cache.getTaintsForMethod(third, thirdTaint));
+		assertEquals(2, wrapped.calls);
+	}
+
+	@Test
+	public void nullAnswerTest() {
+		SootMethod m = addMethod("unknown");
+		CountingTaintWrapper wrapped = new CountingTaintWrapper();
+		wrapped.unknownMethods.add(m);
+		CachingTaintWrapper cache = new CachingTaintWrapper(wrapped, 1000);
+
+		for (int i = 0; i < 3; i++) {
+			Local a = local("a" + i);
+			assertNull(cache.getTaintsForMethod(call(local("r" + i), local("b" + i), m, a),
+					AccessPathStore.v().getAccessPath(a)));
+		}
+		assertEquals(1, wrapped.calls);
+	}
+
+	@Test
+	public void sameLocalTwiceTest() {
+		SootMethod m = new SootMethod("twice", Arrays.<Type>asList(RefType.v("java.lang.Object"),
+				RefType.v("java.lang.Object")), RefType.v("java.lang.Object"), Modifier.PUBLIC);
+		testClass.addMethod(m);
+		CountingTaintWrapper wrapped = new CountingTaintWrapper();
+		CachingTaintWrapper cache = new CachingTaintWrapper(wrapped, 1000);
+
+		// The position of the tainted value is ambiguous, so every call is
+		// forwarded
+		for (int i = 0; i < 3; i++) {
+			Local a = local("a" + i);
+			Stmt stmt = call(local("r" + i), local("b" + i), m, a, a);
+			assertEquals(new CountingTaintWrapper().getTaintsForMethod(stmt, AccessPathStore.v().getAccessPath(a)),
+					cache.getTaintsForMethod(stmt, AccessPathStore.v().getAccessPath(a)));
+		}
+		assertEquals(3, wrapped.calls);
+	}
+
+	@Test
+	public void staticFieldTest() {
+		SootMethod m = addMethod("m");
+		CountingTaintWrapper wrapped = new CountingTaintWrapper();
+		CachingTaintWrapper cache = new CachingTaintWrapper(wrapped, 1000);
+
+		AccessPath staticTaint = AccessPathStore.v().getAccessPath(Jimple.v().newStaticFieldRef(staticField.makeRef()));
+		for (int i = 0; i < 3; i++) {
+			Stmt stmt = call(local("r" + i), local("b" + i), m, local("a" + i));
+			assertEquals(Collections.singleton(staticTaint), cache.getTaintsForMethod(stmt, staticTaint));
+		}
+		assertEquals(1, wrapped.calls);
+	}
+
+	@Test
+	public void evictionTest() {
+		List<SootMethod> methods = new ArrayList<SootMethod>();
+		for (int i = 0; i < 100; i++)
+			methods.add(addMethod("m" + i));
+		CountingTaintWrapper wrapped = new CountingTaintWrapper();
+		CachingTaintWrapper cache = new CachingTaintWrapper(wrapped, 16);
+
+		for (int round = 0; round < 2; round++)
+			for (SootMethod m : methods) {
+				Local a = local("a");
+				cache.getTaintsForMethod(call(local("r"), local("b"), m, a), AccessPathStore.v().getAccessPath(a));
+			}
+		// The cache holds at most 16 answers, so most of them have been
+		// evicted before the second round
+		assertTrue(wrapped.calls >= 200 - 16);
+
+		// The most recently used answer is still there
+		int calls = wrapped.calls;
+		Local a = local("a");
+		cache.getTaintsForMethod(call(local("r"), local("b"), methods.get(99), a), AccessPathStore.v().getAccessPath(a));
+		assertEquals(calls, wrapped.calls);
+	}
+
+}
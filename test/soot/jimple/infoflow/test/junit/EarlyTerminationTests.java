@@ -0,0 +1,54 @@
+package soot.jimple.infoflow.test.junit;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Test;
+
+import soot.jimple.infoflow.Infoflow;
+/**
+ * checks that the analysis stops early after the first flow or when its budget is exhausted
+ */
+public class EarlyTerminationTests extends JUnitTests {
+
+	private List<String> multiCallEntryPoint() {
+		List<String> epoints = new ArrayList<String>();
+		epoints.add("<soot.jimple.infoflow.test.OtherTestCode: void multiCallTest()>");
+		return epoints;
+	}
+
+	@Test
+	public void stopAfterFirstFlowTest() {
+		Infoflow infoflow = initInfoflow();
+		infoflow.setStopAfterFirstFlow(true);
+		// Other threads may find the second flow before the first one has
+		// stopped the analysis, but it must not be recorded
+		infoflow.setNumThreads(4);
+		infoflow.computeInfoflow(path, multiCallEntryPoint(), sources, sinks);
+		checkInfoflow(infoflow, 1);
+	}
+
+	@Test
+	public void edgeBudgetTest() {
+		Infoflow infoflow = initInfoflow();
+		infoflow.setMaxEdges(1);
+		infoflow.computeInfoflow(path, multiCallEntryPoint(), sources, sinks);
+		assertTrue(infoflow.isResultAvailable());
+		assertTrue(infoflow.getResults().isIncomplete());
+		assertTrue(infoflow.getResults().size() < 2);
+	}
+
+	@Test
+	public void unexhaustedBudgetTest() {
+		Infoflow infoflow = initInfoflow();
+		infoflow.setMaxEdges(1000000);
+		infoflow.setMaxTime(600000);
+		infoflow.computeInfoflow(path, multiCallEntryPoint(), sources, sinks);
+		checkInfoflow(infoflow, 2);
+		assertFalse(infoflow.getResults().isIncomplete());
+	}
+
+}
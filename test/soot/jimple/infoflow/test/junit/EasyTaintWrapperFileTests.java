@@ -0,0 +1,159 @@
+package soot.jimple.infoflow.test.junit;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+
+import org.junit.Test;
+
+import soot.jimple.infoflow.taintWrappers.EasyTaintWrapper;
+import soot.jimple.infoflow.taintWrappers.EasyTaintWrapperFile;
+/**
+ * checks that compiled taint wrapper files contain the same rules as the text files they are created from, and that
+ * the wrappers loaded from them find every rule
+ */
+public class EasyTaintWrapperFileTests {
+
+	private static byte[] readFile(File f) throws IOException {
+		RandomAccessFile file = new RandomAccessFile(f, "r");
+		try {
+			byte[] data = new byte[(int) file.length()];
+			file.readFully(data);
+			return data;
+		}
+		finally {
+			file.close();
+		}
+	}
+
+	/**
+	 * Checks that the given tables contain the same methods for every class,
+	 * and that each of them is found by a lookup in the loaded table
+	 */
+	private static void assertSameRules(Map<String, List<String>> expected, Map<String, List<String>> loaded) {
+		assertEquals(expected.size(), loaded.size());
+		for (Entry<String, List<String>> entry : expected.entrySet()) {
+			assertTrue(loaded.containsKey(entry.getKey()));
+			List<String> methods = loaded.get(entry.getKey());
+			assertEquals(new HashSet<String>(entry.getValue()), new HashSet<String>(methods));
+			for (String method : entry.getValue())
+				assertTrue(methods.contains(method));
+			assertFalse(methods.contains(entry.getKey()));
+		}
+		assertFalse(loaded.containsKey("java.lang.DoesNotExist"));
+		assertNull(loaded.get("java.lang.DoesNotExist"));
+		assertNull(loaded.get(""));
+	}
+
+	@Test
+	public void roundTripTest() throws IOException {
+		File compiled = File.createTempFile("wrapper", ".bin");
+		File first = File.createTempFile("wrapper", ".bin");
+		File second = File.createTempFile("wrapper", ".bin");
+		try {
+			EasyTaintWrapper text = new EasyTaintWrapper(new File("EasyTaintWrapperSource.txt"));
+			EasyTaintWrapperFile.compile(new File("EasyTaintWrapperSource.txt"), compiled);
+			assertTrue(compiled.length() > 8);
+
+			// The loaded rules must be the ones from the text file
+			EasyTaintWrapper loaded = EasyTaintWrapperFile.load(compiled);
+			assertSameRules(text.getClassList(), loaded.getClassList());
+			assertSameRules(text.getExcludeList(), loaded.getExcludeList());
+			assertSameRules(text.getKillList(), loaded.getKillList());
+			assertEquals(text.getIncludeList(), loaded.getIncludeList());
+
+			// Loading and writing the rules again must not change them
+			EasyTaintWrapperFile.compile(loaded, first);
+			EasyTaintWrapperFile.compile(EasyTaintWrapperFile.load(first), second);
+			assertArrayEquals(readFile(first), readFile(second));
+		}
+		finally {
+			compiled.delete();
+			first.delete();
+			second.delete();
+		}
+	}
+
+	private static void writeFile(File f, byte[] data) throws IOException {
+		FileOutputStream out = new FileOutputStream(f);
+		try {
+			out.write(data);
+		}
+		finally {
+			out.close();
+		}
+	}
+
+	private static void assertInvalid(File f, byte[] data) {
+		try {
+			writeFile(f, data);
+			EasyTaintWrapperFile.load(f);
+			fail("Invalid file has been loaded");
+		}
+		catch (IOException ex) {
+			// expected
+		}
+	}
+
+	@Test
+	public void invalidFileTest() throws IOException {
+		File compiled = File.createTempFile("wrapper", ".bin");
+		File invalid = File.createTempFile("wrapper", ".bin");
+		try {
+			assertInvalid(invalid, new byte[] { 1, 2, 3, 4, 5, 6, 7, 8 });
+
+			EasyTaintWrapperFile.compile(new File("EasyTaintWrapperSource.txt"), compiled);
+			byte[] data = readFile(compiled);
+
+			// Truncated at every position within the string count and the
+			// first string, and just before the end
+			for (int length = 0; length < 20; length++)
+				assertInvalid(invalid, Arrays.copyOf(data, length));
+			assertInvalid(invalid, Arrays.copyOf(data, data.length - 1));
+
+			// Trailing data
+			assertInvalid(invalid, Arrays.copyOf(data, data.length + 1));
+
+			// Unsupported version
+			byte[] corrupt = data.clone();
+			corrupt[7] = 1;
+			assertInvalid(invalid, corrupt);
+
+			// Negative and oversized table offset
+			corrupt = data.clone();
+			corrupt[8] = (byte) 0x80;
+			assertInvalid(invalid, corrupt);
+			corrupt[8] = 0x7f;
+			assertInvalid(invalid, corrupt);
+
+			// Length of the first string beyond the end of the file
+			corrupt = data.clone();
+			corrupt[24] = 0x7f;
+			assertInvalid(invalid, corrupt);
+
+			// String offset outside of the file
+			corrupt = data.clone();
+			for (int i = 4; i > 0; i--)
+				corrupt[data.length - i] = (byte) 0xff;
+			assertInvalid(invalid, corrupt);
+		}
+		finally {
+			compiled.delete();
+			invalid.delete();
+		}
+	}
+
+}
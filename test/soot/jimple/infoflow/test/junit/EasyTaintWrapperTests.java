@@ -0,0 +1,112 @@
+package soot.jimple.infoflow.test.junit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import soot.BooleanType;
+import soot.G;
+import soot.RefType;
+import soot.Scene;
+import soot.SootClass;
+import soot.SootMethod;
+import soot.Type;
+import soot.jimple.infoflow.taintWrappers.EasyTaintWrapper;
+/**
+ * checks that the EasyTaintWrapper answers from its per-class caches the same way as without them
+ */
+public class EasyTaintWrapperTests {
+
+	private static final String ADD = "boolean add(java.lang.Object)";
+
+	@Before
+	public void resetSoot() {
+		G.reset();
+		addClass("java.lang.Object", null);
+	}
+
+	private SootClass addClass(String name, SootClass superclass) {
+		SootClass sc = new SootClass(name);
+		if (superclass != null)
+			sc.setSuperclass(superclass);
+		Scene.v().addClass(sc);
+		return sc;
+	}
+
+	private SootMethod addMethod(SootClass sc) {
+		List<Type> params = Collections.<Type>singletonList(RefType.v("java.lang.Object"));
+		SootMethod sm = new SootMethod("add", params, BooleanType.v());
+		sc.addMethod(sm);
+		return sm;
+	}
+
+	@Test
+	public void hierarchyTest() {
+		HashMap<String, List<String>> classList = new HashMap<String, List<String>>();
+		classList.put("a.List", Collections.singletonList(ADD));
+		EasyTaintWrapper wrapper = new EasyTaintWrapper(classList);
+
+		SootClass object = Scene.v().getSootClass("java.lang.Object");
+		SootClass list = addClass("a.List", object);
+		SootClass myList = addClass("b.MyList", list);
+		SootClass other = addClass("b.Other", object);
+		SootMethod listAdd = addMethod(list);
+		SootMethod myListAdd = addMethod(myList);
+		SootMethod otherAdd = addMethod(other);
+
+		// The second round is answered from the cache
+		for (int i = 0; i < 2; i++) {
+			assertTrue(wrapper.supportsCallee(listAdd));
+			assertTrue(wrapper.supportsCallee(myListAdd));
+			assertFalse(wrapper.supportsCallee(otherAdd));
+		}
+
+		// After a reset, the same class names may form a different hierarchy
+		resetSoot();
+		object = Scene.v().getSootClass("java.lang.Object");
+		addClass("a.List", object);
+		myList = addClass("b.MyList", object);
+		assertFalse(wrapper.supportsCallee(addMethod(myList)));
+	}
+
+	private static boolean matchesPrefix(Set<String> includeList, String className) {
+		for (String prefix : includeList)
+			if (className.startsWith(prefix))
+				return true;
+		return false;
+	}
+
+	@Test
+	public void includeListTest() {
+		Set<String> includeList = new HashSet<String>();
+		includeList.add("java.util.");
+		includeList.add("a.b");
+		EasyTaintWrapper wrapper = new EasyTaintWrapper(new HashMap<String, List<String>>(),
+				new HashMap<String, List<String>>(), new HashMap<String, List<String>>(), includeList);
+
+		SootClass object = Scene.v().getSootClass("java.lang.Object");
+		String[] names = new String[] { "java.util.ArrayList", "java.utility.Foo",
+				"a.b.C", "a.bc.D", "a.C", "b.a.b.C" };
+		for (int i = 0; i < 2; i++)
+			for (String name : names) {
+				SootClass sc = Scene.v().containsClass(name) ? Scene.v().getSootClass(name)
+						: addClass(name, object);
+				SootMethod sm = sc.declaresMethod(ADD) ? sc.getMethod(ADD) : addMethod(sc);
+				assertEquals(name, matchesPrefix(includeList, name), wrapper.supportsCallee(sm));
+			}
+
+		// Classes added after the first query are checked as well
+		assertTrue(wrapper.supportsCallee(addMethod(addClass("a.b.Late", object))));
+		assertFalse(wrapper.supportsCallee(addMethod(addClass("a.Late", object))));
+	}
+
+}
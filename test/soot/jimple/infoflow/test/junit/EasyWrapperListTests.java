@@ -8,6 +8,7 @@ import java.util.List;
 import org.junit.Test;
 
 import soot.jimple.infoflow.Infoflow;
+import soot.jimple.infoflow.taintWrappers.CachingTaintWrapper;
 import soot.jimple.infoflow.taintWrappers.EasyTaintWrapper;
 /**
  * tests functionality of TaintWrapper. Additionally all tests can be executed with TaintWrapper by setting the debug flag in {@link soot.jimple.infoflow.test.junit.JUnitTests} to true
@@ -30,6 +31,16 @@ public class EasyWrapperListTests extends JUnitTests {
 		checkInfoflow(infoflow, 1);
     }
 	
+	@Test
+    public void concreteArrayListPos0CachedTest(){
+		Infoflow infoflow = initInfoflow();
+    	List<String> epoints = new ArrayList<String>();
+    	epoints.add("<soot.jimple.infoflow.test.ListTestCode: void concreteWriteReadPos0Test()>");
+    	infoflow.setTaintWrapper(new CachingTaintWrapper(easyWrapper, 1000));
+    	infoflow.computeInfoflow(path, epoints,sources, sinks);
+		checkInfoflow(infoflow, 1);
+    }
+	
 	@Test
     public void concreteArrayListPos1Test(){
 		Infoflow infoflow = initInfoflow();
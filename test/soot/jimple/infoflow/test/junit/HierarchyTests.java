@@ -6,6 +6,8 @@ import java.util.List;
 import org.junit.Test;
 
 import soot.jimple.infoflow.Infoflow;
+import soot.jimple.infoflow.entryPointCreators.DefaultEntryPointCreator;
+import soot.jimple.infoflow.source.RuleBasedSourceSinkManager;
 /**
  * covers taint propagation of fields with classes from a class hierarchy
  */
@@ -20,6 +22,20 @@ public class HierarchyTests extends JUnitTests {
 			checkInfoflow(infoflow, 1);
 	    }
 	    
+	    @Test
+	    public void hierarchytaintedRulesTest(){
+	    	Infoflow infoflow = initInfoflow();
+	    	List<String> epoints = new ArrayList<String>();
+	    	epoints.add("<soot.jimple.infoflow.test.HierarchyTestCode: void taintedOutputTest()>");
+	    	List<String> sourceRules = new ArrayList<String>();
+	    	sourceRules.add("<soot.jimple.infoflow.test.android.*: * getDeviceId()>");
+	    	List<String> sinkRules = new ArrayList<String>();
+	    	sinkRules.add("<+soot.jimple.infoflow.test.android.ConnectionManager: void publish(*)>");
+			infoflow.computeInfoflow(path, new DefaultEntryPointCreator(), epoints,
+					new RuleBasedSourceSinkManager(sourceRules, sinkRules));
+			checkInfoflow(infoflow, 1);
+	    }
+	    
 	    @Test
 	    public void hierarchyuntaintedTest(){
 	    	Infoflow infoflow = initInfoflow();
@@ -0,0 +1,98 @@
+package soot.jimple.infoflow.test.junit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+import org.junit.Test;
+
+import soot.Local;
+import soot.NullType;
+import soot.jimple.Stmt;
+import soot.jimple.infoflow.InfoflowResults;
+import soot.jimple.infoflow.InfoflowResults.SinkInfo;
+import soot.jimple.infoflow.InfoflowResults.SourceInfo;
+import soot.jimple.internal.JNopStmt;
+import soot.jimple.internal.JimpleLocal;
+/**
+ * checks that results are recorded correctly by concurrent threads
+ */
+public class InfoflowResultsTests {
+
+	@Test(timeout=30000)
+	public void concurrentAddTest() throws InterruptedException {
+		final InfoflowResults results = new InfoflowResults();
+		final Local sink = new JimpleLocal("sink", NullType.v());
+		final Stmt sinkStmt = new JNopStmt();
+		final int numThreads = 8;
+		final int numSources = 1000;
+		final Local[] sources = new Local[numSources];
+		final Stmt[] sourceStmts = new Stmt[numSources];
+		for (int i = 0; i < numSources; i++) {
+			sources[i] = new JimpleLocal("source" + i, NullType.v());
+			sourceStmts[i] = new JNopStmt();
+		}
+
+		List<Thread> threads = new ArrayList<Thread>();
+		for (int t = 0; t < numThreads; t++) {
+			Thread thread = new Thread() {
+
+				@Override
+				public void run() {
+					for (int i = 0; i < numSources; i++)
+						results.addResult(sink, sinkStmt, sources[i], sourceStmts[i]);
+				}
+
+			};
+			threads.add(thread);
+			thread.start();
+		}
+		for (Thread thread : threads)
+			thread.join();
+
+		assertEquals(1, results.size());
+		Set<SourceInfo> sourceInfos = results.getResults().get(new SinkInfo(sink, sinkStmt));
+		assertEquals(numSources, sourceInfos.size());
+	}
+
+	@Test
+	public void duplicateResultTest() {
+		InfoflowResults results = new InfoflowResults();
+		Local sink = new JimpleLocal("sink", NullType.v());
+		Local source = new JimpleLocal("source", NullType.v());
+		Stmt sinkStmt = new JNopStmt();
+		Stmt sourceStmt = new JNopStmt();
+		assertTrue(results.addResult(new SinkInfo(sink, sinkStmt), new SourceInfo(source, sourceStmt)));
+		assertFalse(results.addResult(new SinkInfo(sink, sinkStmt), new SourceInfo(source, sourceStmt)));
+	}
+
+	@Test
+	public void indexTest() {
+		InfoflowResults results = new InfoflowResults();
+		Local sink = new JimpleLocal("sink", NullType.v());
+		Local source1 = new JimpleLocal("source1", NullType.v());
+		Local source2 = new JimpleLocal("source2", NullType.v());
+		Stmt sinkStmt = new JNopStmt();
+		Stmt sourceStmt1 = new JNopStmt();
+		Stmt sourceStmt2 = new JNopStmt();
+
+		results.addResult(sink, sinkStmt, source1, sourceStmt1);
+		assertTrue(results.containsSink(sink));
+		assertTrue(results.isPathBetween(sink, source1));
+		assertFalse(results.isPathBetween(sink, source2));
+		assertTrue(results.isPathBetween(sink.toString(), source1.toString()));
+		assertFalse(results.isPathBetween(sink.toString(), source2.toString()));
+
+		results.addResult(sink, sinkStmt, source2, sourceStmt2);
+		assertTrue(results.isPathBetween(sink, source2));
+
+		assertEquals(1, results.findSinksByStatement(sinkStmt).size());
+		assertTrue(results.findSinksByStatement(sourceStmt1).isEmpty());
+		assertEquals(1, results.findSinksBySourceStatement(sourceStmt2).size());
+	}
+
+}
@@ -0,0 +1,97 @@
+package soot.jimple.infoflow.test.junit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import heros.edgefunc.EdgeIdentity;
+import heros.solver.IFDSSolver;
+import heros.solver.PathEdge;
+
+import java.util.Collections;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Test;
+
+import soot.NullType;
+import soot.Unit;
+import soot.jimple.infoflow.InfoflowProblem;
+import soot.jimple.infoflow.data.Abstraction;
+import soot.jimple.infoflow.heros.InfoflowSolver;
+import soot.jimple.infoflow.source.DefaultSourceSinkManager;
+import soot.jimple.internal.JNopStmt;
+import soot.jimple.internal.JimpleLocal;
+/**
+ * checks that an edge is scheduled exactly once, no matter how many threads inject or propagate it at the same time
+ */
+public class InfoflowSolverTests {
+
+	/**
+	 * Solver that counts the edges it schedules instead of processing them
+	 */
+	private static class CountingSolver extends InfoflowSolver {
+		private final AtomicInteger scheduled = new AtomicInteger();
+
+		public CountingSolver(InfoflowProblem problem) {
+			super(problem, false, null);
+		}
+
+		@Override
+		protected void scheduleEdgeProcessing(PathEdge<Unit, Abstraction> edge) {
+			scheduled.incrementAndGet();
+		}
+
+		public void propagate(PathEdge<Unit, Abstraction> edge) {
+			propagate(edge.factAtSource(), edge.getTarget(), edge.factAtTarget(),
+					EdgeIdentity.<IFDSSolver.BinaryDomain>v(), null, false);
+		}
+	}
+
+	@Test(timeout=300000)
+	public void concurrentInjectionTest() throws InterruptedException {
+		final int numThreads = 8;
+		InfoflowProblem problem = new InfoflowProblem(null, new DefaultSourceSinkManager
+				(Collections.<String>emptyList(), Collections.<String>emptyList()));
+		for (int round = 0; round < 20; round++) {
+			final CountingSolver solver = new CountingSolver(problem);
+			final PathEdge<Unit, Abstraction> edge = new PathEdge<Unit, Abstraction>(
+					new Abstraction(new JimpleLocal("p", NullType.v()), null, null, false, true, null), new JNopStmt(), new Abstraction(new JimpleLocal("a", NullType.v()), null, null, false, true, null));
+			final CountDownLatch start = new CountDownLatch(1);
+			final AtomicInteger injected = new AtomicInteger();
+			Thread[] threads = new Thread[numThreads];
+			for (int i = 0; i < numThreads; i++) {
+				// Half of the threads inject the edge, the others propagate
+				// it like the solver itself does
+				final boolean inject = i % 2 == 0;
+				threads[i] = new Thread() {
+					@Override
+					public void run() {
+						try {
+							start.await();
+						}
+						catch (InterruptedException e) {
+							return;
+						}
+						if (!inject)
+							solver.propagate(edge);
+						else if (solver.processEdge(edge))
+							injected.incrementAndGet();
+					}
+				};
+				threads[i].start();
+			}
+			start.countDown();
+			for (Thread t : threads)
+				t.join();
+
+			assertEquals(1, solver.scheduled.get());
+			assertTrue(injected.get() <= 1);
+
+			// The edge is known now, so injecting it again does nothing
+			assertFalse(solver.processEdge(edge));
+			assertEquals(1, solver.scheduled.get());
+		}
+	}
+
+}
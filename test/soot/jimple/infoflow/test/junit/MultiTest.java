@@ -2,11 +2,13 @@ package soot.jimple.infoflow.test.junit;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Set;
 
 import org.junit.Assert;
 import org.junit.Test;
 
 import soot.jimple.infoflow.Infoflow;
+import soot.jimple.infoflow.InfoflowResults.SourceInfo;
 import soot.jimple.infoflow.AbstractInfoflowProblem.PathTrackingMethod;
 /**
  * contain various tests with more than one source, conditional statements, loops and java-internal functions on tainted objects
@@ -26,6 +28,43 @@ public class MultiTest extends JUnitTests {
 		Assert.assertTrue(infoflow.getResults().isPathBetweenMethods(sink, SOURCE_STRING_PWD));
     }
 
+    @Test
+    public void multiTest1LazyPaths(){
+    	Infoflow infoflow = initInfoflow();
+    	infoflow.setPathTracking(PathTrackingMethod.LazyTracking);
+    	List<String> epoints = new ArrayList<String>();
+    	epoints.add("<soot.jimple.infoflow.test.MultiTestCode: void multiSourceCode()>");
+		infoflow.computeInfoflow(path, epoints,sources, sinks);
+		checkInfoflow(infoflow, 2);
+		Assert.assertTrue(infoflow.getResults().isPathBetweenMethods(sink, SOURCE_STRING_PWD));
+		for (Set<SourceInfo> sourceInfos : infoflow.getResults().getResults().values())
+			for (SourceInfo si : sourceInfos)
+				Assert.assertFalse(si.getPath().isEmpty());
+    }
+
+    @Test
+    public void multiTest1MergedSources(){
+    	Infoflow infoflow = initInfoflow();
+    	infoflow.setMergeSources(true);
+    	List<String> epoints = new ArrayList<String>();
+    	epoints.add("<soot.jimple.infoflow.test.MultiTestCode: void multiSourceCode()>");
+		infoflow.computeInfoflow(path, epoints,sources, sinks);
+		checkInfoflow(infoflow, 2);
+		Assert.assertTrue(infoflow.getResults().isPathBetweenMethods(sink, SOURCE_STRING_PWD));
+    }
+
+    @Test
+    public void multiTestSharedCalleeMergedSources(){
+    	Infoflow infoflow = initInfoflow();
+    	infoflow.setMergeSources(true);
+    	List<String> epoints = new ArrayList<String>();
+    	epoints.add("<soot.jimple.infoflow.test.MultiTestCode: void multiSourceSharedCallee()>");
+		infoflow.computeInfoflow(path, epoints,sources, sinks);
+		checkInfoflow(infoflow, 1);
+		Assert.assertTrue(infoflow.getResults().isPathBetweenMethods(sink, sourceDeviceId));
+		Assert.assertFalse(infoflow.getResults().isPathBetweenMethods(sink, SOURCE_STRING_PWD));
+    }
+
     @Test
     public void multiTest2(){
     	Infoflow infoflow = initInfoflow();
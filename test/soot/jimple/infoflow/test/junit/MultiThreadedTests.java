@@ -0,0 +1,121 @@
+package soot.jimple.infoflow.test.junit;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Test;
+
+import soot.jimple.infoflow.IInfoflow.QueuePolicy;
+import soot.jimple.infoflow.Infoflow;
+import soot.jimple.infoflow.heros.SharedQueueExecutor;
+/**
+ * runs some of the other tests with several worker threads and every queue policy, and checks that they find
+ * the same flows as with the default settings
+ */
+public class MultiThreadedTests extends JUnitTests {
+
+	private static final int THREADS = 4;
+
+	private Infoflow initInfoflow(QueuePolicy policy) {
+		Infoflow infoflow = initInfoflow();
+		infoflow.setNumThreads(THREADS);
+		infoflow.setQueuePolicy(policy);
+		return infoflow;
+	}
+
+	private void runFieldTest(Infoflow infoflow) {
+		List<String> epoints = new ArrayList<String>();
+		epoints.add("<soot.jimple.infoflow.test.OtherTestCode: void testWithField()>");
+		infoflow.computeInfoflow(path, epoints, sources, sinks);
+		checkInfoflow(infoflow, 2);
+	}
+
+	private void runMultiCallTest(Infoflow infoflow) {
+		List<String> epoints = new ArrayList<String>();
+		epoints.add("<soot.jimple.infoflow.test.OtherTestCode: void multiCallTest()>");
+		infoflow.computeInfoflow(path, epoints, sources, sinks);
+		checkInfoflow(infoflow, 2);
+	}
+
+	private void runListTest(Infoflow infoflow) {
+		List<String> epoints = new ArrayList<String>();
+		epoints.add("<soot.jimple.infoflow.test.ListTestCode: void writeReadTest()>");
+		infoflow.computeInfoflow(path, epoints, sources, sinks);
+		checkInfoflow(infoflow, 1);
+	}
+
+	private void runNegativeTest(Infoflow infoflow) {
+		List<String> epoints = new ArrayList<String>();
+		epoints.add("<soot.jimple.infoflow.test.OtherTestCode: void easyNegativeTest()>");
+		infoflow.computeInfoflow(path, epoints, sources, sinks);
+		negativeCheckInfoflow(infoflow);
+	}
+
+	@Test
+	public void sharedQueueFieldTest() {
+		runFieldTest(initInfoflow(QueuePolicy.SharedQueue));
+	}
+
+	@Test
+	public void sharedQueueMultiCallTest() {
+		runMultiCallTest(initInfoflow(QueuePolicy.SharedQueue));
+	}
+
+	@Test
+	public void sharedQueueListTest() {
+		runListTest(initInfoflow(QueuePolicy.SharedQueue));
+	}
+
+	@Test
+	public void sharedQueueNegativeTest() {
+		runNegativeTest(initInfoflow(QueuePolicy.SharedQueue));
+	}
+
+	@Test
+	public void workStealingFieldTest() {
+		runFieldTest(initInfoflow(QueuePolicy.WorkStealing));
+	}
+
+	@Test
+	public void workStealingMultiCallTest() {
+		runMultiCallTest(initInfoflow(QueuePolicy.WorkStealing));
+	}
+
+	@Test
+	public void workStealingListTest() {
+		runListTest(initInfoflow(QueuePolicy.WorkStealing));
+	}
+
+	@Test
+	public void workStealingNegativeTest() {
+		runNegativeTest(initInfoflow(QueuePolicy.WorkStealing));
+	}
+
+	@Test
+	public void sinkDistanceFieldTest() {
+		runFieldTest(initInfoflow(QueuePolicy.SinkDistance));
+	}
+
+	@Test
+	public void sinkDistanceMultiCallTest() {
+		runMultiCallTest(initInfoflow(QueuePolicy.SinkDistance));
+	}
+
+	@Test
+	public void sinkDistanceListTest() {
+		runListTest(initInfoflow(QueuePolicy.SinkDistance));
+	}
+
+	@Test
+	public void sinkDistanceNegativeTest() {
+		runNegativeTest(initInfoflow(QueuePolicy.SinkDistance));
+	}
+
+	@Test
+	public void customExecutorTest() {
+		Infoflow infoflow = initInfoflow();
+		infoflow.setExecutor(new SharedQueueExecutor(THREADS));
+		runMultiCallTest(infoflow);
+	}
+
+}
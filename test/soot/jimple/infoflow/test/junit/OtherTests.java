@@ -21,7 +21,37 @@ public class OtherTests extends JUnitTests{
 		infoflow.computeInfoflow(path, epoints,sources, sinks);
 		checkInfoflow(infoflow, 2);
     }
+
+	@Test
+    public void fieldPrunedCallsTest(){
+    	Infoflow infoflow = initInfoflow();
+    	infoflow.setPruneIrrelevantCalls(true);
+    	List<String> epoints = new ArrayList<String>();
+    	epoints.add("<soot.jimple.infoflow.test.OtherTestCode: void testWithField()>");
+		infoflow.computeInfoflow(path, epoints,sources, sinks);
+		checkInfoflow(infoflow, 2);
+    }
 	
+	@Test
+    public void passOverPrunedCallTest(){
+    	Infoflow infoflow = initInfoflow();
+    	infoflow.setPruneIrrelevantCalls(true);
+    	List<String> epoints = new ArrayList<String>();
+    	epoints.add("<soot.jimple.infoflow.test.OtherTestCode: void passOverIrrelevantCall()>");
+		infoflow.computeInfoflow(path, epoints,sources, sinks);
+		checkInfoflow(infoflow, 1);
+    }
+
+	@Test
+    public void fieldWritingCalleeNotPrunedTest(){
+    	Infoflow infoflow = initInfoflow();
+    	infoflow.setPruneIrrelevantCalls(true);
+    	List<String> epoints = new ArrayList<String>();
+    	epoints.add("<soot.jimple.infoflow.test.OtherTestCode: void writeFieldInCallee()>");
+		infoflow.computeInfoflow(path, epoints,sources, sinks);
+		checkInfoflow(infoflow, 1);
+    }
+
 	@Test
     public void defaultlifecycleTest(){
     	Infoflow infoflow = initInfoflow();
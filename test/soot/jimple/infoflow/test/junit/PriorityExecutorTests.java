@@ -0,0 +1,60 @@
+package soot.jimple.infoflow.test.junit;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+
+import org.junit.Test;
+
+import soot.jimple.infoflow.heros.PriorityExecutor;
+/**
+ * checks that the priority executor runs queued tasks with lower priority values first and tasks with equal
+ * priorities in the order in which they have been submitted
+ */
+public class PriorityExecutorTests {
+
+	@Test(timeout = 30000)
+	public void orderTest() throws InterruptedException {
+		final PriorityExecutor executor = new PriorityExecutor(1);
+		final List<Integer> order = Collections.synchronizedList(new ArrayList<Integer>());
+		final CountDownLatch blocker = new CountDownLatch(1);
+
+		// Keep the only worker busy until all tasks are queued
+		executor.execute(new Runnable() {
+
+			@Override
+			public void run() {
+				try {
+					blocker.await();
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+				}
+			}
+
+		});
+
+		int[] priorities = new int[] { 5, 1, 3, 1, 0 };
+		for (int i = 0; i < priorities.length; i++) {
+			final int id = i;
+			executor.setPriority(priorities[i]);
+			executor.execute(new Runnable() {
+
+				@Override
+				public void run() {
+					order.add(id);
+				}
+
+			});
+		}
+		blocker.countDown();
+		executor.awaitCompletion();
+		executor.shutdown();
+
+		assertEquals(Arrays.asList(4, 1, 3, 2, 0), order);
+	}
+
+}
@@ -0,0 +1,45 @@
+package soot.jimple.infoflow.test.junit;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Test;
+
+import soot.jimple.infoflow.Infoflow;
+import soot.jimple.infoflow.InfoflowResults.SinkInfo;
+import soot.jimple.infoflow.InfoflowResults.SourceInfo;
+import soot.jimple.infoflow.handlers.ResultFoundHandler;
+/**
+ * checks that results are streamed to the result handlers while the analysis is running
+ */
+public class ResultStreamingTests extends JUnitTests {
+
+	@Test
+	public void streamingTest() {
+		final AtomicInteger count = new AtomicInteger();
+		Infoflow infoflow = initInfoflow();
+		infoflow.addResultFoundHandler(new ResultFoundHandler() {
+
+			@Override
+			public void onResultFound(SinkInfo sink, SourceInfo source) {
+				count.incrementAndGet();
+			}
+
+		});
+		List<String> epoints = new ArrayList<String>();
+		epoints.add("<soot.jimple.infoflow.test.OtherTestCode: void multiCallTest()>");
+		infoflow.computeInfoflow(path, epoints, sources, sinks);
+		checkInfoflow(infoflow, 2);
+
+		// Every result that has not been dropped has been streamed
+		int resultCount = 0;
+		for (Set<SourceInfo> sourceInfos : infoflow.getResults().getResults().values())
+			resultCount += sourceInfos.size();
+		assertEquals(resultCount, count.get() + infoflow.getResults().getDroppedResultCount());
+	}
+
+}
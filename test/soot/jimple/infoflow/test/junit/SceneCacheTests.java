@@ -0,0 +1,30 @@
+package soot.jimple.infoflow.test.junit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import org.junit.Test;
+
+import soot.G;
+import soot.jimple.infoflow.util.SceneCache;
+/**
+ * checks that caches for Soot objects are dropped when Soot is reset
+ */
+public class SceneCacheTests {
+
+	@Test
+	public void resetTest() {
+		SceneCache<String, Integer> cache = new SceneCache<String, Integer>();
+		assertNull(cache.putIfAbsent("a", 1));
+		assertEquals(Integer.valueOf(1), cache.putIfAbsent("a", 2));
+		assertEquals(Integer.valueOf(1), cache.get("a"));
+		assertEquals(1, cache.size());
+
+		G.reset();
+		assertNull(cache.get("a"));
+		assertEquals(0, cache.size());
+		assertNull(cache.putIfAbsent("a", 3));
+		assertEquals(Integer.valueOf(3), cache.get("a"));
+	}
+
+}
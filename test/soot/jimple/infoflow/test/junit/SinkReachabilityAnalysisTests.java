@@ -0,0 +1,194 @@
+package soot.jimple.infoflow.test.junit;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import soot.Body;
+import soot.G;
+import soot.Local;
+import soot.MethodOrMethodContext;
+import soot.Modifier;
+import soot.RefType;
+import soot.Scene;
+import soot.SootClass;
+import soot.SootField;
+import soot.SootMethod;
+import soot.Type;
+import soot.Unit;
+import soot.VoidType;
+import soot.jimple.Jimple;
+import soot.jimple.Stmt;
+import soot.jimple.ThrowStmt;
+import soot.jimple.infoflow.util.SinkReachabilityAnalysis;
+import soot.jimple.toolkits.callgraph.CallGraph;
+import soot.jimple.toolkits.callgraph.Edge;
+import soot.jimple.toolkits.callgraph.ReachableMethods;
+/**
+ * checks which methods the sink reachability analysis considers irrelevant for taints passed into them. All test
+ * methods are static methods of the form <code>void m(Object)</code>, the call graph is built by hand.
+ */
+public class SinkReachabilityAnalysisTests {
+
+	private SootClass testClass;
+	private SootField field;
+	private CallGraph callGraph;
+	private SootMethod entryPoint;
+	private SootMethod sinkMethod;
+
+	@Before
+	public void resetSoot() {
+		G.reset();
+		testClass = new SootClass("a.C", Modifier.PUBLIC);
+		Scene.v().addClass(testClass);
+		field = new SootField("f", RefType.v("java.lang.Object"), Modifier.STATIC);
+		testClass.addField(field);
+		callGraph = new CallGraph();
+		entryPoint = addMethod("main");
+		sinkMethod = addMethod("sink");
+	}
+
+	/**
+	 * Adds a method with an empty body to the test class
+	 * @param name The name of the new method
+	 * @return The new method
+	 */
+	private SootMethod addMethod(String name) {
+		SootMethod sm = new SootMethod(name, Collections.<Type>singletonList(RefType.v("java.lang.Object")),
+				VoidType.v(), Modifier.PUBLIC | Modifier.STATIC);
+		testClass.addMethod(sm);
+		Body body = Jimple.v().newBody(sm);
+		Local param = Jimple.v().newLocal("p", RefType.v("java.lang.Object"));
+		body.getLocals().add(param);
+		body.getUnits().add(Jimple.v().newIdentityStmt(param,
+				Jimple.v().newParameterRef(RefType.v("java.lang.Object"), 0)));
+		sm.setActiveBody(body);
+		return sm;
+	}
+
+	/**
+	 * Adds a statement to the body of the given method
+	 */
+	private static void addStmt(SootMethod sm, Unit u) {
+		sm.getActiveBody().getUnits().add(u);
+	}
+
+	/**
+	 * Adds a call passing the parameter of the caller to the callee, together
+	 * with the matching call graph edge
+	 */
+	private void addCall(SootMethod caller, SootMethod callee) {
+		Stmt call = Jimple.v().newInvokeStmt(Jimple.v().newStaticInvokeExpr(callee.makeRef(),
+				caller.getActiveBody().getParameterLocal(0)));
+		addStmt(caller, call);
+		callGraph.addEdge(new Edge(caller, call, callee));
+	}
+
+	/**
+	 * Terminates all test methods and runs the analysis
+	 */
+	private SinkReachabilityAnalysis analyze(SootMethod... methods) {
+		List<SootMethod> allMethods = new ArrayList<SootMethod>();
+		Collections.addAll(allMethods, entryPoint, sinkMethod);
+		Collections.addAll(allMethods, methods);
+		for (SootMethod sm : allMethods) {
+			Unit last = sm.getActiveBody().getUnits().getLast();
+			if (!(last instanceof ThrowStmt))
+				addStmt(sm, Jimple.v().newReturnVoidStmt());
+		}
+
+		Collection<MethodOrMethodContext> entryPoints = Collections.<MethodOrMethodContext>singleton(entryPoint);
+		ReachableMethods reachableMethods = new ReachableMethods(callGraph, entryPoints);
+		reachableMethods.update();
+		return new SinkReachabilityAnalysis(callGraph, reachableMethods,
+				Collections.singleton(sinkMethod));
+	}
+
+	@Test
+	public void localOnlyCalleeTest() {
+		SootMethod callee = addMethod("local");
+		Local copy = Jimple.v().newLocal("copy", RefType.v("java.lang.Object"));
+		callee.getActiveBody().getLocals().add(copy);
+		addStmt(callee, Jimple.v().newAssignStmt(copy, callee.getActiveBody().getParameterLocal(0)));
+		addCall(entryPoint, callee);
+
+		SinkReachabilityAnalysis analysis = analyze(callee);
+		assertTrue(analysis.isIrrelevant(callee));
+		assertFalse(analysis.canReachSink(callee));
+	}
+
+	@Test
+	public void sinkCalleeTest() {
+		SootMethod callee = addMethod("callsSink");
+		SootMethod indirect = addMethod("callsSinkIndirectly");
+		addCall(callee, sinkMethod);
+		addCall(indirect, callee);
+		addCall(entryPoint, indirect);
+
+		SinkReachabilityAnalysis analysis = analyze(callee, indirect);
+		assertTrue(analysis.canReachSink(callee));
+		assertTrue(analysis.canReachSink(indirect));
+		assertFalse(analysis.isIrrelevant(callee));
+		assertFalse(analysis.isIrrelevant(indirect));
+	}
+
+	@Test
+	public void fieldWritingCalleeTest() {
+		SootMethod callee = addMethod("writesField");
+		SootMethod indirect = addMethod("writesFieldIndirectly");
+		addStmt(callee, Jimple.v().newAssignStmt(Jimple.v().newStaticFieldRef(field.makeRef()),
+				callee.getActiveBody().getParameterLocal(0)));
+		addCall(indirect, callee);
+		addCall(entryPoint, indirect);
+
+		SinkReachabilityAnalysis analysis = analyze(callee, indirect);
+		assertFalse(analysis.canReachSink(callee));
+		assertFalse(analysis.isIrrelevant(callee));
+		assertFalse(analysis.isIrrelevant(indirect));
+	}
+
+	@Test
+	public void throwingCalleeTest() {
+		SootMethod callee = addMethod("throws");
+		addStmt(callee, Jimple.v().newThrowStmt(callee.getActiveBody().getParameterLocal(0)));
+		addCall(entryPoint, callee);
+
+		SinkReachabilityAnalysis analysis = analyze(callee);
+		assertFalse(analysis.isIrrelevant(callee));
+	}
+
+	@Test
+	public void bodylessCalleeTest() {
+		SootMethod nativeMethod = new SootMethod("nativeMethod",
+				Collections.<Type>singletonList(RefType.v("java.lang.Object")),
+				VoidType.v(), Modifier.PUBLIC | Modifier.STATIC | Modifier.NATIVE);
+		testClass.addMethod(nativeMethod);
+		SootMethod callee = addMethod("callsNative");
+		addCall(callee, nativeMethod);
+		addCall(entryPoint, callee);
+
+		SinkReachabilityAnalysis analysis = analyze(callee);
+		assertFalse(analysis.isIrrelevant(callee));
+	}
+
+	@Test
+	public void unresolvedCallTest() {
+		// A call without any call graph edge may go anywhere
+		SootMethod unknown = addMethod("unknown");
+		SootMethod callee = addMethod("callsUnknown");
+		addStmt(callee, Jimple.v().newInvokeStmt(Jimple.v().newStaticInvokeExpr(unknown.makeRef(),
+				callee.getActiveBody().getParameterLocal(0))));
+		addCall(entryPoint, callee);
+
+		SinkReachabilityAnalysis analysis = analyze(callee);
+		assertFalse(analysis.isIrrelevant(callee));
+	}
+
+}
@@ -0,0 +1,44 @@
+package soot.jimple.infoflow.test.junit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+import soot.jimple.infoflow.heros.SolverBudget;
+import soot.jimple.infoflow.heros.SolverBudget.BudgetType;
+/**
+ * checks that the solver budget is exhausted once one of its limits has been exceeded
+ */
+public class SolverBudgetTests {
+
+	@Test
+	public void edgeBudgetTest() {
+		SolverBudget budget = new SolverBudget(-1, 10, -1);
+		for (int i = 0; i < 10; i++)
+			assertTrue(budget.edgeProcessed());
+		assertFalse(budget.isExhausted());
+		assertFalse(budget.edgeProcessed());
+		assertTrue(budget.isExhausted());
+		assertEquals(BudgetType.Edges, budget.getExhaustedBudget());
+	}
+
+	@Test
+	public void timeBudgetTest() throws InterruptedException {
+		SolverBudget budget = new SolverBudget(1, -1, -1);
+		Thread.sleep(10);
+		assertFalse(budget.edgeProcessed());
+		assertEquals(BudgetType.Time, budget.getExhaustedBudget());
+	}
+
+	@Test
+	public void unlimitedTest() {
+		SolverBudget budget = new SolverBudget(-1, -1, -1);
+		for (int i = 0; i < 5000; i++)
+			assertTrue(budget.edgeProcessed());
+		assertNull(budget.getExhaustedBudget());
+	}
+
+}
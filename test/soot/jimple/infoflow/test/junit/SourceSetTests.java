@@ -0,0 +1,103 @@
+package soot.jimple.infoflow.test.junit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.BitSet;
+
+import org.junit.Test;
+
+import soot.Local;
+import soot.NullType;
+import soot.Unit;
+import soot.jimple.infoflow.data.Abstraction;
+import soot.jimple.infoflow.data.AccessPathStore;
+import soot.jimple.infoflow.data.SourceSet;
+import soot.jimple.infoflow.data.SourceSetRegistry;
+import soot.jimple.internal.JNopStmt;
+import soot.jimple.internal.JimpleLocal;
+/**
+ * checks that facts merged across sources still know all of their sources
+ */
+public class SourceSetTests {
+
+	@Test
+	public void resolveTest() {
+		SourceSet leaf1 = new SourceSet(1);
+		SourceSet leaf2 = new SourceSet(3);
+		SourceSet node1 = new SourceSet();
+		SourceSet node2 = new SourceSet();
+		node1.addPredecessor(leaf1);
+		node1.addPredecessor(node2);
+		node2.addPredecessor(node1);
+		assertEquals(1, node2.resolve().cardinality());
+
+		node2.addPredecessor(leaf2);
+		BitSet sources = node1.resolve();
+		assertEquals(2, sources.cardinality());
+		assertTrue(sources.get(1));
+		assertTrue(sources.get(3));
+	}
+
+	@Test
+	public void registerTest() {
+		Local local = new JimpleLocal("a", NullType.v());
+		Unit target = new JNopStmt();
+		Abstraction abs1 = new Abstraction(local, null, null, false, true, null)
+				.deriveWithSourceSet(new SourceSet(0));
+		Abstraction abs2 = new Abstraction(local, null, null, false, true, null)
+				.deriveWithSourceSet(new SourceSet(1));
+
+		Abstraction context = new Abstraction(new JimpleLocal("z", NullType.v()), null, null, false, true, null);
+
+		SourceSetRegistry registry = new SourceSetRegistry();
+		Abstraction merged1 = registry.register(context, target, abs1);
+		Abstraction merged2 = registry.register(context, target, abs2);
+		assertEquals(abs1, merged1);
+		assertSame(merged1.getSourceSet(), merged2.getSourceSet());
+		assertSame(merged1, registry.register(context, target, merged1));
+		assertEquals(1, registry.size());
+		assertEquals(2, merged1.getSourceSet().resolve().cardinality());
+	}
+
+	@Test
+	public void callingContextTest() {
+		Local arg1 = new JimpleLocal("a", NullType.v());
+		Local arg2 = new JimpleLocal("b", NullType.v());
+		Local param = new JimpleLocal("p", NullType.v());
+		Unit callSite1 = new JNopStmt();
+		Unit callSite2 = new JNopStmt();
+		Unit calleeStmt = new JNopStmt();
+		Abstraction zero = new Abstraction(new JimpleLocal("zero", NullType.v()), null, null, false, true, null);
+		SourceSetRegistry registry = new SourceSetRegistry();
+
+		// Two callers pass facts from different sources into the same callee
+		Abstraction caller1 = registry.register(zero, callSite1, new Abstraction(arg1, null, null, false, true, null)
+				.deriveWithSourceSet(new SourceSet(0)));
+		Abstraction caller2 = registry.register(zero, callSite2, new Abstraction(arg2, null, null, false, true, null)
+				.deriveWithSourceSet(new SourceSet(1)));
+		Abstraction entry1 = caller1.deriveCalleeEntry().deriveNewAbstraction(AccessPathStore.v().getAccessPath(param));
+		Abstraction entry2 = caller2.deriveCalleeEntry().deriveNewAbstraction(AccessPathStore.v().getAccessPath(param));
+		assertFalse(entry1.equals(entry2));
+
+		// Inside the callee, the facts of both contexts must not be merged
+		Abstraction callee1 = registry.register(entry1, calleeStmt, entry1);
+		Abstraction callee2 = registry.register(entry2, calleeStmt, entry2);
+		assertNotSame(callee1.getSourceSet(), callee2.getSourceSet());
+		assertEquals(1, callee1.getSourceSet().resolve().cardinality());
+		assertTrue(callee1.getSourceSet().resolve().get(0));
+		assertTrue(callee2.getSourceSet().resolve().get(1));
+
+		// A fact returned to the first caller only carries its own source and
+		// belongs to the caller's context again
+		Abstraction returned = registry.register(zero, callSite1, callee1.deriveNewAbstraction(AccessPathStore.v().getAccessPath(arg1)));
+		assertNull(returned.getCallingContext());
+		assertEquals(1, returned.getSourceSet().resolve().cardinality());
+		assertTrue(returned.getSourceSet().resolve().get(0));
+	}
+
+}
@@ -0,0 +1,42 @@
+package soot.jimple.infoflow.test.junit;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Test;
+
+import soot.jimple.infoflow.Infoflow;
+import soot.jimple.infoflow.entryPointCreators.DefaultEntryPointCreator;
+import soot.jimple.infoflow.source.DefaultSourceSinkManager;
+import soot.jimple.infoflow.source.ISourceSinkManager;
+import soot.jimple.infoflow.source.RuleBasedSourceSinkManager;
+/**
+ * checks that source/sink managers with cached method roles can be reused for several analysis runs
+ */
+public class SourceSinkManagerTests extends JUnitTests {
+
+	private void runTwice(ISourceSinkManager manager) {
+		List<String> epoints = new ArrayList<String>();
+		epoints.add("<soot.jimple.infoflow.test.HierarchyTestCode: void taintedOutputTest()>");
+		for (int i = 0; i < 2; i++) {
+			Infoflow infoflow = initInfoflow();
+			infoflow.computeInfoflow(path, new DefaultEntryPointCreator(), epoints, manager);
+			checkInfoflow(infoflow, 1);
+		}
+	}
+
+	@Test
+	public void reusedDefaultManagerTest() {
+		runTwice(new DefaultSourceSinkManager(sources, sinks));
+	}
+
+	@Test
+	public void reusedRuleBasedManagerTest() {
+		List<String> sourceRules = new ArrayList<String>();
+		sourceRules.add("<soot.jimple.infoflow.test.android.*: * getDeviceId()>");
+		List<String> sinkRules = new ArrayList<String>();
+		sinkRules.add("<+soot.jimple.infoflow.test.android.ConnectionManager: void publish(*)>");
+		runTwice(new RuleBasedSourceSinkManager(sourceRules, sinkRules));
+	}
+
+}
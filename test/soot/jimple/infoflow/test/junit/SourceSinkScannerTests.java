@@ -0,0 +1,84 @@
+package soot.jimple.infoflow.test.junit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import heros.InterproceduralCFG;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.Test;
+
+import soot.Body;
+import soot.SootMethod;
+import soot.Type;
+import soot.Unit;
+import soot.VoidType;
+import soot.jimple.Jimple;
+import soot.jimple.Stmt;
+import soot.jimple.infoflow.source.ISourceSinkManager;
+import soot.jimple.infoflow.source.SourceSinkScanner;
+import soot.jimple.internal.JNopStmt;
+/**
+ * checks that the parallel source/sink scan finds the same statements in the same order as the sequential one
+ */
+public class SourceSinkScannerTests {
+
+	/**
+	 * Takes every third statement as a source and every fifth one as a sink
+	 */
+	private static class ListSourceSinkManager implements ISourceSinkManager {
+		private final List<Unit> sources = new ArrayList<Unit>();
+		private final List<Unit> sinks = new ArrayList<Unit>();
+
+		@Override
+		public boolean isSource(Stmt sCallSite, InterproceduralCFG<Unit, SootMethod> cfg) {
+			return sources.contains(sCallSite);
+		}
+
+		@Override
+		public boolean isSink(Stmt sCallSite, InterproceduralCFG<Unit, SootMethod> cfg) {
+			return sinks.contains(sCallSite);
+		}
+	}
+
+	@Test
+	public void parallelScanTest() {
+		ListSourceSinkManager manager = new ListSourceSinkManager();
+		List<SootMethod> methods = new ArrayList<SootMethod>();
+		int stmtCount = 0;
+		for (int i = 0; i < 500; i++) {
+			SootMethod m = new SootMethod("m" + i, Collections.<Type>emptyList(), VoidType.v());
+			methods.add(m);
+			// Leave some methods without a body
+			if (i % 7 == 0)
+				continue;
+			Body body = Jimple.v().newBody(m);
+			for (int j = 0; j < i % 4 + 1; j++) {
+				Unit u = new JNopStmt();
+				body.getUnits().add(u);
+				if (stmtCount % 3 == 0)
+					manager.sources.add(u);
+				if (stmtCount % 5 == 0)
+					manager.sinks.add(u);
+				stmtCount++;
+			}
+			m.setActiveBody(body);
+		}
+
+		SourceSinkScanner sequential = new SourceSinkScanner(manager, null, 1);
+		sequential.scan(methods);
+		SourceSinkScanner parallel = new SourceSinkScanner(manager, null, 4);
+		parallel.scan(methods);
+
+		assertEquals(manager.sources, sequential.getSources());
+		assertEquals(manager.sinks, sequential.getSinks());
+		assertFalse(sequential.getSinkMethods().isEmpty());
+		assertEquals(sequential.getSources(), parallel.getSources());
+		assertEquals(sequential.getSinks(), parallel.getSinks());
+		assertEquals(new ArrayList<SootMethod>(sequential.getSinkMethods()),
+				new ArrayList<SootMethod>(parallel.getSinkMethods()));
+	}
+
+}
@@ -0,0 +1,99 @@
+package soot.jimple.infoflow.test.junit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.Test;
+
+import soot.Transform;
+import soot.jimple.infoflow.Infoflow;
+import soot.jimple.infoflow.taintWrappers.EasyTaintWrapper;
+import soot.jimple.infoflow.taintWrappers.ITaintPropagationWrapper;
+import soot.jimple.infoflow.taintWrappers.MethodSummary;
+import soot.jimple.infoflow.taintWrappers.SummaryGenerator;
+import soot.jimple.infoflow.taintWrappers.SummaryTaintWrapper;
+/**
+ * checks that generated library summaries describe the flows through the list classes and that replaying them
+ * gives the same results as the EasyTaintWrapper
+ */
+public class SummaryGeneratorTests extends JUnitTests {
+
+	private static final String LIST_ADD = "<java.util.ArrayList: boolean add(java.lang.Object)>";
+	private static final String LIST_GET = "<java.util.ArrayList: java.lang.Object get(int)>";
+
+	private Map<String, MethodSummary> generateSummaries(File outputFile) {
+		List<String> methods = new ArrayList<String>();
+		methods.add(LIST_ADD);
+		methods.add(LIST_GET);
+		SummaryGenerator generator = new SummaryGenerator(methods, outputFile);
+
+		Infoflow infoflow = initInfoflow();
+		infoflow.setPreProcessors(Collections.singletonList(new Transform("wjtp.summaries", generator)));
+		List<String> epoints = new ArrayList<String>();
+		epoints.add("<soot.jimple.infoflow.test.ListTestCode: void concreteWriteReadPos0Test()>");
+		infoflow.computeInfoflow(path, epoints, sources, sinks);
+		return generator.getSummaries();
+	}
+
+	private Infoflow runWithWrapper(String entryPoint, ITaintPropagationWrapper wrapper) {
+		Infoflow infoflow = initInfoflow();
+		infoflow.setTaintWrapper(wrapper);
+		List<String> epoints = new ArrayList<String>();
+		epoints.add(entryPoint);
+		infoflow.computeInfoflow(path, epoints, sources, sinks);
+		return infoflow;
+	}
+
+	@Test
+	public void arrayListSummaryTest() {
+		Map<String, MethodSummary> summaries = generateSummaries(null);
+
+		MethodSummary add = summaries.get(LIST_ADD);
+		assertNotNull(add);
+		assertTrue(add.getTargets(0).contains(MethodSummary.BASE));
+
+		MethodSummary get = summaries.get(LIST_GET);
+		assertNotNull(get);
+		assertTrue(get.getTargets(MethodSummary.BASE).contains(MethodSummary.RETURN));
+	}
+
+	@Test
+	public void summaryFileTest() throws IOException {
+		File f = File.createTempFile("summaries", ".txt");
+		try {
+			Map<String, MethodSummary> summaries = generateSummaries(f);
+			assertEquals(summaries, SummaryTaintWrapper.readSummaries(f));
+		}
+		finally {
+			f.delete();
+		}
+	}
+
+	@Test
+	public void replayTest() throws IOException {
+		SummaryTaintWrapper summaryWrapper = new SummaryTaintWrapper(generateSummaries(null));
+		EasyTaintWrapper easyWrapper = new EasyTaintWrapper(new File("EasyTaintWrapperSource.txt"));
+
+		String[] entryPoints = new String[] {
+				"<soot.jimple.infoflow.test.ListTestCode: void concreteWriteReadPos0Test()>",
+				"<soot.jimple.infoflow.test.ListTestCode: void concreteWriteReadPos1Test()>",
+				"<soot.jimple.infoflow.test.ListTestCode: void concreteWriteReadNegativeTest()>" };
+		for (String entryPoint : entryPoints) {
+			Infoflow expected = runWithWrapper(entryPoint, easyWrapper);
+			Infoflow actual = runWithWrapper(entryPoint, summaryWrapper);
+			assertTrue(actual.isResultAvailable());
+			assertEquals(entryPoint, expected.getResults().size(), actual.getResults().size());
+			assertEquals(entryPoint, expected.getResults().isPathBetweenMethods(sink, sourceDeviceId),
+					actual.getResults().isPathBetweenMethods(sink, sourceDeviceId));
+		}
+	}
+
+}
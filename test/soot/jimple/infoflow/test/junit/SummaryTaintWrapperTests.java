@@ -0,0 +1,73 @@
+package soot.jimple.infoflow.test.junit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.junit.Test;
+
+import soot.jimple.infoflow.taintWrappers.MethodSummary;
+import soot.jimple.infoflow.taintWrappers.SummaryTaintWrapper;
+/**
+ * checks that method summaries are written to and read from summary files without changes
+ */
+public class SummaryTaintWrapperTests {
+
+	@Test
+	public void roundTripTest() throws IOException {
+		MethodSummary append = new MethodSummary();
+		assertTrue(append.addFlow(0, MethodSummary.BASE));
+		assertTrue(append.addFlow(0, MethodSummary.RETURN));
+		assertTrue(append.addFlow(MethodSummary.BASE, MethodSummary.RETURN));
+		assertFalse(append.addFlow(0, MethodSummary.BASE));
+		assertFalse(append.addFlow(0, 0));
+
+		MethodSummary copy = new MethodSummary();
+		copy.addFlow(0, 2);
+
+		Map<String, MethodSummary> summaries = new LinkedHashMap<String, MethodSummary>();
+		summaries.put("<java.lang.StringBuilder: java.lang.StringBuilder append(java.lang.String)>", append);
+		summaries.put("<java.lang.System: void arraycopy(java.lang.Object,int,java.lang.Object,int,int)>", copy);
+		summaries.put("<java.lang.Object: int hashCode()>", new MethodSummary());
+
+		File f = File.createTempFile("summaries", ".txt");
+		try {
+			SummaryTaintWrapper.writeSummaries(summaries, f);
+			Map<String, MethodSummary> loaded = SummaryTaintWrapper.readSummaries(f);
+			assertEquals(summaries, loaded);
+			assertTrue(loaded.get("<java.lang.Object: int hashCode()>").isEmpty());
+			assertEquals("BASE -> RETURN, P0 -> RETURN, P0 -> BASE",
+					loaded.get("<java.lang.StringBuilder: java.lang.StringBuilder append(java.lang.String)>").toString());
+			assertEquals(3, new SummaryTaintWrapper(f).getSummaryCount());
+		}
+		finally {
+			f.delete();
+		}
+	}
+
+	@Test
+	public void invalidFileTest() throws IOException {
+		File invalid = File.createTempFile("summaries", ".txt");
+		try {
+			FileWriter writer = new FileWriter(invalid);
+			writer.write("<java.lang.Object: int hashCode()>\tP0\tNOWHERE\n");
+			writer.close();
+			SummaryTaintWrapper.readSummaries(invalid);
+			fail("Invalid file has been loaded");
+		}
+		catch (IOException ex) {
+			// expected
+		}
+		finally {
+			invalid.delete();
+		}
+	}
+
+}
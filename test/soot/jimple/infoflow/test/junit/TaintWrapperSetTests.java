@@ -0,0 +1,107 @@
+package soot.jimple.infoflow.test.junit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+
+import org.junit.Test;
+
+import soot.NullType;
+import soot.jimple.Stmt;
+import soot.jimple.infoflow.data.AccessPath;
+import soot.jimple.infoflow.data.AccessPathStore;
+import soot.jimple.infoflow.taintWrappers.ITaintPropagationWrapper;
+import soot.jimple.infoflow.taintWrappers.TaintWrapperSet;
+import soot.jimple.internal.JNopStmt;
+import soot.jimple.internal.JimpleLocal;
+/**
+ * checks the order in which the wrappers of a taint wrapper set are queried and their statistics
+ */
+public class TaintWrapperSetTests {
+
+	private static class FixedWrapper implements ITaintPropagationWrapper {
+		private final String name;
+		private final List<String> log;
+		private final Set<AccessPath> taints;
+		private final boolean exclusive;
+
+		public FixedWrapper(String name, List<String> log, Set<AccessPath> taints, boolean exclusive) {
+			this.name = name;
+			this.log = log;
+			this.taints = taints;
+			this.exclusive = exclusive;
+		}
+
+		@Override
+		public Set<AccessPath> getTaintsForMethod(Stmt stmt, AccessPath taintedPath) {
+			log.add(name);
+			return taints;
+		}
+
+		@Override
+		public boolean isExclusive(Stmt stmt, AccessPath taintedPath) {
+			log.add(name);
+			return exclusive;
+		}
+	}
+
+	@Test
+	public void orderTest() {
+		List<String> log = new ArrayList<String>();
+		AccessPath ap1 = AccessPathStore.v().getAccessPath(new JimpleLocal("a", NullType.v()));
+		AccessPath ap2 = AccessPathStore.v().getAccessPath(new JimpleLocal("b", NullType.v()));
+		FixedWrapper expensive = new FixedWrapper("expensive", log, Collections.singleton(ap1), true);
+		FixedWrapper cheap = new FixedWrapper("cheap", log, Collections.<AccessPath>emptySet(), true);
+		FixedWrapper medium = new FixedWrapper("medium", log, Collections.singleton(ap2), false);
+
+		TaintWrapperSet set = new TaintWrapperSet();
+		set.setCollectStatistics(true);
+		set.addWrapper(expensive, 10);
+		set.addWrapper(cheap, 1);
+		set.addWrapper(medium, 5);
+		set.addWrapper(cheap, 1);
+
+		Stmt stmt = new JNopStmt();
+		Set<AccessPath> taints = set.getTaintsForMethod(stmt, ap1);
+		assertEquals(2, taints.size());
+		assertTrue(taints.contains(ap1));
+		assertTrue(taints.contains(ap2));
+		assertEquals("[cheap, medium, expensive]", log.toString());
+
+		// The first exclusive wrapper ends the query
+		log.clear();
+		assertTrue(set.isExclusive(stmt, ap1));
+		assertEquals("[cheap]", log.toString());
+
+		assertEquals(2, set.getCallCount(cheap));
+		assertEquals(1, set.getHitCount(cheap));
+		assertEquals(1, set.getCallCount(expensive));
+		assertEquals(1, set.getHitCount(medium));
+		assertEquals(-1, set.getCallCount(new FixedWrapper("other", log, null, false)));
+
+		// Without statistics, the counters stay as they are
+		set.setCollectStatistics(false);
+		set.getTaintsForMethod(stmt, ap1);
+		assertEquals(2, set.getCallCount(cheap));
+		assertEquals(1, set.getCallCount(expensive));
+	}
+
+	@Test
+	public void singleResultTest() {
+		List<String> log = new ArrayList<String>();
+		AccessPath ap = AccessPathStore.v().getAccessPath(new JimpleLocal("a", NullType.v()));
+		Set<AccessPath> result = Collections.singleton(ap);
+		TaintWrapperSet set = new TaintWrapperSet();
+		set.addWrapper(new FixedWrapper("first", log, result, false));
+		set.addWrapper(new FixedWrapper("second", log, null, false));
+
+		// If only one wrapper produces taints, its result is not copied
+		assertSame(result, set.getTaintsForMethod(new JNopStmt(), ap));
+	}
+
+}
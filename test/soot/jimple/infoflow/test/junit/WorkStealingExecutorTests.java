@@ -0,0 +1,122 @@
+package soot.jimple.infoflow.test.junit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Test;
+
+import soot.jimple.infoflow.heros.CancellableExecutor;
+import soot.jimple.infoflow.heros.SharedQueueExecutor;
+import soot.jimple.infoflow.heros.WorkStealingExecutor;
+/**
+ * checks that the work-stealing executor only reports completion once all tasks, including the ones that
+ * two mutually dependent producers keep scheduling for each other, are done
+ */
+public class WorkStealingExecutorTests {
+
+	/**
+	 * Task that alternately schedules new work for the "forward" and the
+	 * "backward" side until the given depth has been reached
+	 */
+	private static class PingPongTask implements Runnable {
+		private final WorkStealingExecutor executor;
+		private final AtomicInteger counter;
+		private final int level;
+		private final int maxLevel;
+
+		public PingPongTask(WorkStealingExecutor executor, AtomicInteger counter, int level, int maxLevel) {
+			this.executor = executor;
+			this.counter = counter;
+			this.level = level;
+			this.maxLevel = maxLevel;
+		}
+
+		@Override
+		public void run() {
+			counter.incrementAndGet();
+			if (level < maxLevel) {
+				executor.execute(new PingPongTask(executor, counter, level + 1, maxLevel));
+				executor.execute(new PingPongTask(executor, counter, level + 1, maxLevel));
+			}
+		}
+	}
+
+	@Test(timeout = 30000)
+	public void mutualFeedingTest() throws InterruptedException {
+		WorkStealingExecutor executor = new WorkStealingExecutor(4);
+		AtomicInteger counter = new AtomicInteger(0);
+		executor.execute(new PingPongTask(executor, counter, 0, 14));
+		executor.execute(new PingPongTask(executor, counter, 0, 14));
+		executor.awaitCompletion();
+		assertEquals(2 * ((1 << 15) - 1), counter.get());
+		assertEquals(0, executor.getNumRunningTasks());
+		executor.shutdown();
+		assertTrue(executor.awaitTermination(10, TimeUnit.SECONDS));
+	}
+
+	@Test(timeout = 30000)
+	public void exceptionTest() throws InterruptedException {
+		WorkStealingExecutor executor = new WorkStealingExecutor(2);
+		executor.execute(new Runnable() {
+
+			@Override
+			public void run() {
+				throw new IllegalStateException("Expected failure");
+			}
+
+		});
+		executor.awaitCompletion();
+		assertNotNull(executor.getException());
+		assertTrue(executor.isShutdown());
+	}
+
+	/**
+	 * Task that keeps scheduling new work forever and cancels the executor
+	 * once it has run a given number of times
+	 */
+	private static class EndlessTask implements Runnable {
+		private final CancellableExecutor executor;
+		private final AtomicInteger counter;
+		private final int cancelAfter;
+
+		public EndlessTask(CancellableExecutor executor, AtomicInteger counter, int cancelAfter) {
+			this.executor = executor;
+			this.counter = counter;
+			this.cancelAfter = cancelAfter;
+		}
+
+		@Override
+		public void run() {
+			if (counter.incrementAndGet() == cancelAfter)
+				executor.shutdownNow();
+			executor.execute(new EndlessTask(executor, counter, cancelAfter));
+			executor.execute(new EndlessTask(executor, counter, cancelAfter));
+		}
+	}
+
+	private void checkCancellation(CancellableExecutor executor) throws InterruptedException {
+		AtomicInteger counter = new AtomicInteger(0);
+		executor.execute(new EndlessTask(executor, counter, 1000));
+		executor.awaitCompletion();
+		assertTrue(executor.isAborted());
+		assertTrue(executor.isShutdown());
+		assertNull(executor.getException());
+		assertTrue(executor.awaitTermination(10, TimeUnit.SECONDS));
+	}
+
+	@Test(timeout = 30000)
+	public void cancelWorkStealingTest() throws InterruptedException {
+		checkCancellation(new WorkStealingExecutor(4));
+	}
+
+	@Test(timeout = 30000)
+	public void cancelSharedQueueTest() throws InterruptedException {
+		checkCancellation(new SharedQueueExecutor(4));
+	}
+
+}